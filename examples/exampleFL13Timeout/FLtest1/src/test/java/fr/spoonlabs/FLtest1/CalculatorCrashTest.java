@@ -0,0 +1,36 @@
+package fr.spoonlabs.FLtest1;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CalculatorCrashTest {
+
+	Calculator c = new Calculator();
+
+	@Test
+	public void testMod() {
+
+		assertEquals(1, c.calculate("%", 3, 2));
+
+	}
+
+	@Test
+	public void testHang() throws InterruptedException {
+
+		assertEquals(4, c.calculate("+", 3, 1));
+		while (true) {
+			Thread.sleep(1000);
+		}
+
+	}
+
+	@Test
+	public void testExit() {
+
+		assertEquals(2, c.calculate("-", 3, 1));
+		System.exit(1);
+
+	}
+
+}
@@ -0,0 +1,17 @@
+package fr.spoonlabs.FLtest1;
+
+public class Counter {
+
+	private int count = 0;
+
+	public Counter() {
+	}
+
+	public void increment() {
+		count++;
+	}
+
+	public int getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,26 @@
+package fr.spoonlabs.FLtest1;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CounterTest {
+
+	Counter c = new Counter();
+
+	@Test
+	public void testInitial() {
+
+		assertEquals(0, c.getCount());
+
+	}
+
+	@Test
+	public void testIncrement() {
+
+		c.increment();
+		assertEquals(1, c.getCount());
+
+	}
+
+}
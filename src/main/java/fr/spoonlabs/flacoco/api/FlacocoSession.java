@@ -0,0 +1,105 @@
+package fr.spoonlabs.flacoco.api;
+
+import fr.spoonlabs.flacoco.api.result.FlacocoResult;
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.ClassIndex;
+import fr.spoonlabs.flacoco.core.coverage.CoverageRunner;
+import fr.spoonlabs.flacoco.core.test.TestContext;
+import fr.spoonlabs.flacoco.core.test.TestDetector;
+import fr.spoonlabs.flacoco.localization.spectrum.SpectrumRunner;
+import fr.spoonlabs.flacoco.utils.spoon.SpoonBlockInspector;
+import org.apache.log4j.Logger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Entry point to Flacoco for running several fault localizations of the same project.
+ * <p>
+ * The detected tests, the index of the classes and the parsed source files are kept between runs, and are discarded
+ * as soon as a class file of the project is added, removed or modified. The coverage matrix of the last run is also
+ * kept, so that the results can be updated after a change of a few lines with {@link #relocalize(Collection)}.
+ */
+public class FlacocoSession implements FlacocoAPI {
+
+	private Logger logger = Logger.getLogger(FlacocoSession.class);
+
+	private FlacocoConfig config;
+
+	private ClassIndex classIndex;
+
+	private SpoonBlockInspector blockInspector;
+
+	private List<TestContext> tests;
+
+	/**
+	 * Runner of the last run
+	 */
+	private SpectrumRunner runner;
+
+	public FlacocoSession(FlacocoConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * Runs the fault localization, reusing what was computed by the previous runs of the session. Runs of a session
+	 * are executed one at a time.
+	 *
+	 * @return FlacocoResult populated with the fault localization data.
+	 */
+	@Override
+	public synchronized FlacocoResult run() {
+		this.logger.info("Running Flacoco...");
+		refresh();
+
+		switch (this.config.getFamily()) {
+			case SPECTRUM_BASED:
+				runner = new SpectrumRunner(config, tests, new CoverageRunner(config, classIndex, blockInspector));
+				return runner.run();
+		}
+		return null;
+	}
+
+	/**
+	 * Updates the results of the last run after a change of the given lines, such as the application of a patch,
+	 * executing again only the tests affected by the change. The class files of the project must have been updated
+	 * with the change. Tests added by the change are not detected, they are only detected by {@link #run()}.
+	 *
+	 * @param changedLocations Lines changed since the last run
+	 * @return FlacocoResult populated with the fault localization data.
+	 */
+	public synchronized FlacocoResult relocalize(Collection<Location> changedLocations) {
+		if (runner == null) {
+			return run();
+		}
+
+		this.logger.info("Running Flacoco again after the change of " + changedLocations.size() + " lines...");
+		// The class files and the source files changed, but the tests and the other source files are kept
+		this.classIndex = new ClassIndex(config);
+		this.blockInspector.invalidate(changedLocations.stream().map(Location::getClassName)
+				.collect(Collectors.toSet()));
+		return runner.relocalize(changedLocations, new CoverageRunner(config, classIndex, blockInspector));
+	}
+
+	public FlacocoConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Detects the tests and indexes the classes again if the class files changed since the previous run
+	 */
+	private void refresh() {
+		ClassIndex currentIndex = new ClassIndex(config);
+		if (classIndex != null && classIndex.getStamp() == currentIndex.getStamp()) {
+			this.logger.debug("Reusing the tests and the classes of the previous run");
+			return;
+		}
+
+		this.classIndex = currentIndex;
+		this.blockInspector = new SpoonBlockInspector(config);
+		this.tests = new TestDetector(config).getTests();
+	}
+
+}
@@ -1,6 +1,7 @@
 package fr.spoonlabs.flacoco.api.result;
 
 import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import fr.spoonlabs.flacoco.localization.spectrum.SpectrumFormula;
 import spoon.reflect.code.CtStatement;
 
 import java.util.ArrayList;
@@ -29,6 +30,8 @@ public class FlacocoResult {
 
     private Set<TestMethod> failingTests;
 
+    private Map<SpectrumFormula, Map<Location, Suspiciousness>> formulaSuspiciousnessMaps;
+
     /**
      * Returns an ordered mapping from {@link Location} to a {@link Suspiciousness}. Note that the mapping's iteration
      * follows a descending order, from most to least suspicious
@@ -82,4 +85,37 @@ public class FlacocoResult {
     public void setFailingTests(Set<TestMethod> failingTests) {
         this.failingTests = failingTests;
     }
+
+    /**
+     * Returns the ordered mapping from {@link Location} to {@link Suspiciousness} of each spectrum formula, i.e. the
+     * spectrum formula and the additional spectrum formulas of the configuration
+     * @return The ordered mappings, or null if the fault localization is not spectrum-based
+     */
+    public Map<SpectrumFormula, Map<Location, Suspiciousness>> getFormulaSuspiciousnessMaps() {
+        return formulaSuspiciousnessMaps;
+    }
+
+    public void setFormulaSuspiciousnessMaps(Map<SpectrumFormula, Map<Location, Suspiciousness>> formulaSuspiciousnessMaps) {
+        this.formulaSuspiciousnessMaps = formulaSuspiciousnessMaps;
+    }
+
+    /**
+     * Detaches every suspiciousness of the result from the coverage matrix it was computed from, see
+     * {@link Suspiciousness#detach()}, so that the result no longer keeps the matrix in memory nor sees its updates
+     * @return This result
+     */
+    public FlacocoResult detach() {
+        List<Map<?, Suspiciousness>> maps = new ArrayList<>();
+        maps.add(defaultSuspiciousnessMap);
+        maps.add(spoonSuspiciousnessMap);
+        if (formulaSuspiciousnessMaps != null) {
+            maps.addAll(formulaSuspiciousnessMaps.values());
+        }
+        for (Map<?, Suspiciousness> map : maps) {
+            if (map != null) {
+                map.values().forEach(Suspiciousness::detach);
+            }
+        }
+        return this;
+    }
 }
@@ -6,11 +6,17 @@ public class Location {
 
     private String className;
 
-    private Integer lineNumber;
+    private int lineNumber;
 
-    public Location(String className, Integer lineNumber) {
+    /**
+     * Locations are used as keys of large maps, so the hash code is only computed once
+     */
+    private int hashCode;
+
+    public Location(String className, int lineNumber) {
         this.className = className;
         this.lineNumber = lineNumber;
+        this.hashCode = Objects.hash(className, lineNumber);
     }
 
     public String getClassName() {
@@ -31,11 +37,13 @@ public class Location {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Location location = (Location) o;
-        return Objects.equals(className, location.className) && Objects.equals(lineNumber, location.lineNumber);
+        // Class names are usually the same instance, see fr.spoonlabs.flacoco.core.coverage.SymbolTable
+        return lineNumber == location.lineNumber && hashCode == location.hashCode
+                && (className == location.className || Objects.equals(className, location.className));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(className, lineNumber);
+        return hashCode;
     }
 }
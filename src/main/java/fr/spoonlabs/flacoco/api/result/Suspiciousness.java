@@ -1,35 +1,110 @@
 package fr.spoonlabs.flacoco.api.result;
 
+import fr.spoonlabs.flacoco.core.coverage.CoverageSpectrum;
 import fr.spoonlabs.flacoco.core.test.method.TestMethod;
 
 import java.util.List;
 
+/**
+ * Suspiciousness score of a location, with the test cases executing it.
+ * <p>
+ * The suspiciousness computed from a coverage matrix only reads its test cases from the matrix when they are
+ * requested, so that the lists of test cases of every location are not built for the few that are used. The matrix
+ * stays reachable, and its later updates are seen, as long as the suspiciousness is: {@link #detach()} builds the
+ * lists once and releases the matrix.
+ */
 public class Suspiciousness implements Comparable<Suspiciousness> {
 
 	private Double score;
 
+	private int nrPassingTestCases;
+
+	private int nrFailingTestCases;
+
 	private List<TestMethod> passingTestCases;
 
 	private List<TestMethod> failingTestCases;
 
+	/**
+	 * Matrix the test cases are read from, when they are not given
+	 */
+	private CoverageSpectrum matrix;
+
+	private int locationId;
+
 	public Suspiciousness(Double score, List<TestMethod> passingTestCases, List<TestMethod> failingTestCases) {
 		this.score = score;
 		this.passingTestCases = passingTestCases;
 		this.failingTestCases = failingTestCases;
+		this.nrPassingTestCases = passingTestCases == null ? 0 : passingTestCases.size();
+		this.nrFailingTestCases = failingTestCases == null ? 0 : failingTestCases.size();
+	}
+
+	/**
+	 * Creates a suspiciousness whose test cases are only read from the matrix when they are requested
+	 *
+	 * @param matrix     The matrix containing the location
+	 * @param locationId The id of the location in the matrix
+	 */
+	public Suspiciousness(Double score, int nrPassingTestCases, int nrFailingTestCases, CoverageSpectrum matrix,
+						  int locationId) {
+		this.score = score;
+		this.nrPassingTestCases = nrPassingTestCases;
+		this.nrFailingTestCases = nrFailingTestCases;
+		this.matrix = matrix;
+		this.locationId = locationId;
+	}
+
+	/**
+	 * Reads the test cases from the matrix, if they are not read yet, and releases the matrix
+	 */
+	public synchronized void detach() {
+		if (matrix != null) {
+			passingTestCases = matrix.getExecutingTests(locationId, true);
+			failingTestCases = matrix.getExecutingTests(locationId, false);
+			matrix = null;
+		}
+	}
+
+	/**
+	 * @return true if the test cases are no longer read from a coverage matrix
+	 */
+	public synchronized boolean isDetached() {
+		return matrix == null;
 	}
 
 	public Double getScore() {
 		return score;
 	}
 
-	public List<TestMethod> getPassingTestCases() {
+	public synchronized List<TestMethod> getPassingTestCases() {
+		if (matrix != null) {
+			return matrix.getExecutingTests(locationId, true);
+		}
 		return passingTestCases;
 	}
 
-	public List<TestMethod> getFailingTestCases() {
+	public synchronized List<TestMethod> getFailingTestCases() {
+		if (matrix != null) {
+			return matrix.getExecutingTests(locationId, false);
+		}
 		return failingTestCases;
 	}
 
+	/**
+	 * @return The number of passing test cases executing the location
+	 */
+	public int getNrPassingTestCases() {
+		return nrPassingTestCases;
+	}
+
+	/**
+	 * @return The number of failing test cases executing the location
+	 */
+	public int getNrFailingTestCases() {
+		return nrFailingTestCases;
+	}
+
 	@Override
 	public int compareTo(Suspiciousness suspiciousness) {
 		return Double.compare(this.score, suspiciousness.score);
@@ -39,8 +114,8 @@ public class Suspiciousness implements Comparable<Suspiciousness> {
 	public String toString() {
 		return "Suspiciousness{" +
 				"score=" + score +
-				", passingTestCases=" + passingTestCases +
-				", failingTestCases=" + failingTestCases +
+				", passingTestCases=" + getPassingTestCases() +
+				", failingTestCases=" + getFailingTestCases() +
 				'}';
 	}
 }
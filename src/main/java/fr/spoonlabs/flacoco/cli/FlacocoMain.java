@@ -2,6 +2,9 @@ package fr.spoonlabs.flacoco.cli;
 
 import fr.spoonlabs.flacoco.api.Flacoco;
 import fr.spoonlabs.flacoco.api.result.FlacocoResult;
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.api.result.Suspiciousness;
+import fr.spoonlabs.flacoco.cli.daemon.FlacocoDaemon;
 import fr.spoonlabs.flacoco.cli.export.CSVExporter;
 import fr.spoonlabs.flacoco.cli.export.FlacocoExporter;
 import fr.spoonlabs.flacoco.cli.export.JSONExporter;
@@ -15,18 +18,23 @@ import picocli.CommandLine.Option;
 import spoon.Launcher;
 import spoon.reflect.declaration.CtClass;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
 @Command(name = "FlacocoMain", mixinStandardHelpOptions = true, version = "0.0.1", description = "Flacoco: fault localization")
 public class FlacocoMain implements Callable<Integer> {
 
+	@CommandLine.Spec
+	CommandLine.Model.CommandSpec spec;
+
 	@Option(names = {"-w", "--workspace"}, description = "Path to the workspace directory of flacoco.", defaultValue = "./")
 	String workspace;
 
@@ -36,6 +44,18 @@ public class FlacocoMain implements Callable<Integer> {
 	@Option(names = {"-f", "--formula"}, description = "Spectrum formula to use. Valid values: ${COMPLETION-CANDIDATES}", defaultValue = "OCHIAI")
 	SpectrumFormula spectrumFormula;
 
+	@Option(names = {"--additionalFormulas"}, arity = "0..*", description = "Additional spectrum formulas, computed from the same spectrum as the one of --formula. The ranking of each one is exported to its own output, named after the output with the formula before the extension, so --output is required. Valid values: ${COMPLETION-CANDIDATES}")
+	Set<SpectrumFormula> additionalSpectrumFormulas = new HashSet<>();
+
+	@Option(names = {"--hierarchical"}, description = "Rank the methods first, and only compute the line-level spectrum of the classes containing the given number of most suspicious methods. Disabled when 0.", defaultValue = "0")
+	int hierarchicalTopMethods = 0;
+
+	@Option(names = {"--from-matrix"}, description = "Path to a coverage matrix saved with --save-matrix. The matrix is scored without running any test.")
+	String fromMatrix;
+
+	@Option(names = {"--save-matrix"}, description = "Path of the file where the computed coverage matrix is saved, in a binary format which can be scored later with --from-matrix.")
+	String saveMatrix;
+
 	@Option(names = {"-c", "--classpath"}, description = "Classpath of the project under analyzis.")
 	String classpath;
 
@@ -69,15 +89,45 @@ public class FlacocoMain implements Callable<Integer> {
 	@Option(names = {"--testRunnerTimeoutInMs"}, description = "Timeout for each test execution with test-runner. Must be greater than 0. Default value is 1000000", defaultValue = "1000000")
 	int testRunnerTimeoutInMs = 1000000;
 
+	@Option(names = {"--testRunnerTimeoutPerTestInMs"}, description = "Timeout for each test method executed with test-runner. When greater than 0, the timeout of each forked execution is this value times its number of test methods, without exceeding --testRunnerTimeoutInMs.", defaultValue = "0")
+	int testRunnerTimeoutPerTestInMs = 0;
+
 	@Option(names = {"--testRunnerJVMArgs"}, description = "JVM args for test-runner's test execution VMs.")
 	String testRunnerJVMArgs = null;
 
+	@Option(names = {"--testRunnerReuseJVM"}, description = "Run the tests in long-lived test-runner JVMs, reused as long as the classpath, the options and the class files are unchanged.", defaultValue = "false")
+	boolean testRunnerReuseJVM = false;
+
+	@Option(names = {"--testRunnerMaxExecutionsPerJVM"}, description = "Number of executions after which a reused test-runner JVM is replaced. Must be greater than 0. Default value is 100", defaultValue = "100")
+	int testRunnerMaxExecutionsPerJVM = 100;
+
+	@Option(names = {"--testRunnerInProcess"}, description = "Run the tests in the flacoco JVM, with classes instrumented by jacoco when loaded, instead of forking JVMs. Tests exiting the JVM are not supported.", defaultValue = "false")
+	boolean testRunnerInProcess = false;
+
+	@Option(names = {"--offlineInstrumentation"}, description = "Instrument the classes once with jacoco, in the workspace, instead of in every test-runner JVM. Only changed classes are instrumented again in later runs.", defaultValue = "false")
+	boolean offlineInstrumentation = false;
+
+	@Option(names = {"--parallelism"}, description = "Number of test-runner JVMs to run concurrently. Each test context is split into shards by test class. Must be greater than 0. Default value is 1", defaultValue = "1")
+	int parallelism = 1;
+
+	@Option(names = {"--coverageCache"}, description = "Reuse the coverage of tests whose class files, and the class files they covered, did not change since the last run. The cache is stored in the workspace.", defaultValue = "false")
+	boolean coverageCache = false;
+
+	@Option(names = {"--failingTestsFirst"}, description = "Compute the coverage of the failing tests first, and then the coverage of the passing tests restricted to the classes covered by the failing tests. Lines with a suspiciousness score of 0 or less, which are the lines not covered by any failing test for every formula including OP2, are not computed, so this is ignored if the -includeZeros flag is set. Tests are executed twice, first without coverage to find the failing ones, which takes up to about twice as long as a single execution when only a few lines are covered by failing tests. With --coverageCache, the first execution is skipped for the tests with an up-to-date cached outcome.", defaultValue = "false")
+	boolean failingTestsFirst = false;
+
+	@Option(names = {"--testSelection"}, description = "Skip the passing tests that cannot cover any class covered by the failing tests, based on the class dependencies of each test class or on its cached coverage. Implies --failingTestsFirst.", defaultValue = "false")
+	boolean testSelection = false;
+
 	@Option(names = {"--threshold"}, description = "Threshold for suspiciousness score. Flacoco will only return suspicious results with score >= threshold. Results with a score of 0 are only included if the -includeZeros flag is set.", defaultValue = "0.0")
 	double threshold = 0.0;
 
 	@Option(names = {"--includeZeros"}, description = "Flag for including lines with a suspiciousness sore of 0.", defaultValue = "false")
 	boolean includeZeros = false;
 
+	@Option(names = {"--top"}, description = "Number of most suspicious lines to return. All of them are returned when 0.", defaultValue = "0")
+	int topK = 0;
+
 	@Option(names = {"--complianceLevel"}, description = "Compliance level for Spoon. Default value is 8", defaultValue = "8")
 	int complianceLevel = 8;
 
@@ -138,6 +188,18 @@ public class FlacocoMain implements Callable<Integer> {
 		Set<String> jUnit5Tests;
 	}
 
+	@Option(names = {"--daemon"}, description = "Run as a daemon serving fault localization requests on the given localhost HTTP port, instead of running once. The options of each request are given as a JSON FlacocoConfig posted to /localize. Disabled when 0.", defaultValue = "0")
+	int daemonPort = 0;
+
+	@Option(names = {"--daemonTokenFile"}, description = "File the daemon writes its token to, only readable by its owner. Requests must carry it in an 'Authorization: Bearer <token>' header. Defaults to flacoco-daemon.token in the workspace.")
+	String daemonTokenFile;
+
+	@Option(names = {"--daemonMaxSessions"}, description = "Maximum number of configurations whose tests, classes and source files are kept by the daemon. Must be greater than 0. Default value is 8", defaultValue = "8")
+	int daemonMaxSessions = 8;
+
+	@Option(names = {"--daemonMemoryBudgetInMb"}, description = "Used heap above which the daemon evicts the least recently used configurations. Defaults to 3/4 of the maximum heap when 0.", defaultValue = "0")
+	long daemonMemoryBudgetInMb = 0;
+
 	@Option(names = "-v", scope = CommandLine.ScopeType.INHERIT, description = "Verbose mode.")
 	public void setVerbose(boolean[] verbose) {
 		// For now we have these two levels, but in the future we might want to add more
@@ -151,6 +213,16 @@ public class FlacocoMain implements Callable<Integer> {
 
 	@Override
 	public Integer call() {
+		if (this.daemonPort > 0) {
+			return runDaemon();
+		}
+
+		// The ranking of each additional formula needs an output of its own
+		if (!this.additionalSpectrumFormulas.isEmpty() && this.output == null) {
+			throw new CommandLine.ParameterException(this.spec.commandLine(),
+					"--additionalFormulas requires --output, the rankings of the additional formulas are written next to it");
+		}
+
 		FlacocoConfig config = setupFlacocoConfig();
 
 		Flacoco flacoco = new Flacoco(config);
@@ -161,6 +233,25 @@ public class FlacocoMain implements Callable<Integer> {
 		return 0;
 	}
 
+	private Integer runDaemon() {
+		long memoryBudget = this.daemonMemoryBudgetInMb > 0 ? this.daemonMemoryBudgetInMb * 1024 * 1024
+				: Runtime.getRuntime().maxMemory() / 4 * 3;
+		File tokenFile = this.daemonTokenFile != null ? new File(this.daemonTokenFile)
+				: new File(this.workspace, "flacoco-daemon.token");
+		FlacocoDaemon daemon = new FlacocoDaemon(this.daemonPort, Math.max(1, this.daemonMaxSessions), memoryBudget,
+				tokenFile.getAbsoluteFile());
+		try {
+			daemon.start();
+			Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+			daemon.awaitTermination();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return 0;
+	}
+
 	private FlacocoConfig setupFlacocoConfig() {
 		FlacocoConfig config = new FlacocoConfig();
 		config.setWorkspace(new File(this.workspace).getAbsolutePath());
@@ -188,10 +279,22 @@ public class FlacocoMain implements Callable<Integer> {
 		if (this.testRunnerTimeoutInMs > 0)
 			config.setTestRunnerTimeoutInMs(this.testRunnerTimeoutInMs);
 		config.setTestRunnerTimeoutInMs(testRunnerTimeoutInMs);
+		config.setTestRunnerTimeoutPerTestInMs(testRunnerTimeoutPerTestInMs);
 		if (this.testRunnerJVMArgs != null && !this.testRunnerJVMArgs.trim().isEmpty())
 			config.setTestRunnerJVMArgs(testRunnerJVMArgs);
+		config.setTestRunnerReuseJVM(testRunnerReuseJVM);
+		if (this.testRunnerMaxExecutionsPerJVM > 0)
+			config.setTestRunnerMaxExecutionsPerJVM(this.testRunnerMaxExecutionsPerJVM);
+		config.setTestRunnerInProcess(testRunnerInProcess);
+		config.setOfflineInstrumentation(offlineInstrumentation);
+		if (this.parallelism > 0)
+			config.setParallelism(this.parallelism);
+		config.setCoverageCache(coverageCache);
+		config.setFailingTestsFirst(failingTestsFirst);
+		config.setTestSelection(testSelection);
 		config.setThreshold(threshold);
 		config.setIncludeZeros(includeZeros);
+		config.setTopK(topK);
 		config.setComplianceLevel(complianceLevel);
 
 		config.setTestDetectionStrategy(this.testDetectionStrategy);
@@ -202,6 +305,12 @@ public class FlacocoMain implements Callable<Integer> {
 		config.setJacocoExcludes(this.jacocoExcludes);
 
 		config.setSpectrumFormula(this.spectrumFormula);
+		config.setAdditionalSpectrumFormulas(this.additionalSpectrumFormulas);
+		config.setHierarchicalTopMethods(this.hierarchicalTopMethods);
+		if (this.fromMatrix != null && !this.fromMatrix.trim().isEmpty())
+			config.setFromMatrix(new File(this.fromMatrix).getAbsolutePath());
+		if (this.saveMatrix != null && !this.saveMatrix.trim().isEmpty())
+			config.setSaveMatrix(new File(this.saveMatrix).getAbsolutePath());
 
 		return config;
 	}
@@ -212,6 +321,23 @@ public class FlacocoMain implements Callable<Integer> {
 			OutputStreamWriter outputStreamWriter = getOutputStreamWriter(exporter);
 			exporter.export(result, outputStreamWriter);
 			outputStreamWriter.close();
+
+			// Each additional formula has its own output
+			if (result.getFormulaSuspiciousnessMaps() != null) {
+				for (Map.Entry<SpectrumFormula, Map<Location, Suspiciousness>> entry : result.getFormulaSuspiciousnessMaps().entrySet()) {
+					if (entry.getKey() == this.spectrumFormula) {
+						continue;
+					}
+					FlacocoResult formulaResult = new FlacocoResult();
+					formulaResult.setDefaultSuspiciousnessMap(entry.getValue());
+					formulaResult.setFailingTests(result.getFailingTests());
+
+					outputStreamWriter = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(
+							getOutputFile(exporter, entry.getKey().name().toLowerCase()))));
+					exporter.export(formulaResult, outputStreamWriter);
+					outputStreamWriter.close();
+				}
+			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -219,20 +345,31 @@ public class FlacocoMain implements Callable<Integer> {
 
 	private OutputStreamWriter getOutputStreamWriter(FlacocoExporter exporter) throws IOException {
 		if (this.output == null) {
-			return new OutputStreamWriter(System.out);
-		} else if (this.output.isEmpty()) {
-			File file = new File("flacoco_results." + exporter.extension());
-			if (!file.exists()) {
-				file.createNewFile();
-			}
-			return new OutputStreamWriter(new FileOutputStream(file));
+			return new OutputStreamWriter(new BufferedOutputStream(System.out));
 		} else {
-			File file = new File(this.output);
-			if (!file.exists()) {
-				file.createNewFile();
-			}
-			return new OutputStreamWriter(new FileOutputStream(file));
+			return new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(getOutputFile(exporter, null))));
+		}
+	}
+
+	/**
+	 * @param formula Name of the formula to insert before the extension, or null for the output itself
+	 */
+	private File getOutputFile(FlacocoExporter exporter, String formula) throws IOException {
+		File file;
+		if (this.output == null || this.output.isEmpty()) {
+			file = new File("flacoco_results." + (formula == null ? "" : formula + ".") + exporter.extension());
+		} else if (formula == null) {
+			file = new File(this.output);
+		} else {
+			int extension = this.output.lastIndexOf('.');
+			file = extension > this.output.lastIndexOf(File.separatorChar)
+					? new File(this.output.substring(0, extension) + "." + formula + this.output.substring(extension))
+					: new File(this.output + "." + formula);
+		}
+		if (!file.exists()) {
+			file.createNewFile();
 		}
+		return file;
 	}
 
 	private FlacocoExporter getExporter() {
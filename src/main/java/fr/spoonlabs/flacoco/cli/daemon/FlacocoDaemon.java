@@ -0,0 +1,248 @@
+package fr.spoonlabs.flacoco.cli.daemon;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.InstanceCreator;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fr.spoonlabs.flacoco.api.FlacocoSession;
+import fr.spoonlabs.flacoco.api.result.FlacocoResult;
+import fr.spoonlabs.flacoco.cli.export.JSONExporter;
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.framework.TestRunnerWorkerPool;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running Flacoco process, serving fault localization requests on a localhost HTTP port.
+ * <p>
+ * The endpoints are:
+ * <ul>
+ *     <li>POST /localize: the body is a FlacocoConfig as JSON, with the names of its fields. The response is the
+ *     ranking, in the format of {@link JSONExporter}</li>
+ *     <li>POST /shutdown: stops the daemon</li>
+ * </ul>
+ * Requests with the same configuration share a {@link FlacocoSession}, so that the detected tests, the classes and
+ * the parsed source files of the project are reused. The test-runner JVMs are reused by default.
+ * <p>
+ * Any local process or web page may reach the port, while a request runs the tests of any project it names. Requests
+ * must therefore carry the token of the daemon, written at start-up to a file only readable by its owner, as an
+ * {@code Authorization: Bearer <token>} header. Requests from browsers, which have an {@code Origin} header, are
+ * rejected, and /localize only accepts an {@code application/json} body.
+ */
+public class FlacocoDaemon {
+
+	private Logger logger = Logger.getLogger(FlacocoDaemon.class);
+
+	private int port;
+
+	private SessionCache sessions;
+
+	/**
+	 * File the token is written to
+	 */
+	private File tokenFile;
+
+	private String token;
+
+	private Gson gson;
+
+	private HttpServer server;
+
+	private ExecutorService executor;
+
+	private CountDownLatch stopped = new CountDownLatch(1);
+
+	/**
+	 * @param port         Port to listen on, or 0 for any free port
+	 * @param maxSessions  Maximum number of sessions kept
+	 * @param memoryBudget Maximum used heap, in bytes, above which sessions are evicted
+	 * @param tokenFile    File the token of the daemon is written to, replaced if it exists
+	 */
+	public FlacocoDaemon(int port, int maxSessions, long memoryBudget, File tokenFile) {
+		this.port = port;
+		this.sessions = new SessionCache(maxSessions, memoryBudget);
+		this.tokenFile = tokenFile;
+		// Fields missing from the request keep their default value
+		this.gson = new GsonBuilder().registerTypeAdapter(FlacocoConfig.class, (InstanceCreator<FlacocoConfig>) type -> {
+			FlacocoConfig config = new FlacocoConfig();
+			config.setTestRunnerReuseJVM(true);
+			return config;
+		}).create();
+	}
+
+	public void start() throws IOException {
+		byte[] bytes = new byte[32];
+		new SecureRandom().nextBytes(bytes);
+		token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+		writeToken();
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/localize", this::localize);
+		server.createContext("/shutdown", this::shutdown);
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		server.setExecutor(executor);
+		server.start();
+		logger.info("Flacoco daemon listening on " + server.getAddress() + ", its token is in " + tokenFile);
+	}
+
+	/**
+	 * @return The port the daemon is listening on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return The token requests must carry, also written to the token file
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * Waits until the daemon is stopped
+	 */
+	public void awaitTermination() throws InterruptedException {
+		stopped.await();
+	}
+
+	public synchronized void stop() {
+		if (stopped.getCount() == 0) {
+			return;
+		}
+		server.stop(0);
+		executor.shutdownNow();
+		sessions.shutdown();
+		TestRunnerWorkerPool.shutdown();
+		tokenFile.delete();
+		stopped.countDown();
+		logger.info("Flacoco daemon stopped");
+	}
+
+	public SessionCache getSessions() {
+		return sessions;
+	}
+
+	private void localize(HttpExchange exchange) throws IOException {
+		if (!authorize(exchange)) {
+			return;
+		}
+		String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+		if (contentType == null || !contentType.toLowerCase().startsWith("application/json")) {
+			respond(exchange, 415, "The configuration must be posted as application/json");
+			return;
+		}
+
+		FlacocoConfig config;
+		try {
+			config = gson.fromJson(IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8),
+					FlacocoConfig.class);
+		} catch (JsonParseException e) {
+			respond(exchange, 400, "Invalid configuration: " + e.getMessage());
+			return;
+		}
+		if (config == null) {
+			respond(exchange, 400, "Missing configuration");
+			return;
+		}
+		// Relative paths are resolved against the working directory of the daemon
+		config.setProjectPath(config.getProjectPath());
+		config.setWorkspace(new File(config.getWorkspace()).getAbsolutePath());
+
+		try {
+			FlacocoSession session = sessions.get(gson.toJson(config), config);
+			FlacocoResult result = session.run();
+			sessions.scheduleTrim();
+
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+			new JSONExporter().export(result, writer);
+			writer.close();
+			respond(exchange, 200, "application/json", outputStream.toByteArray());
+		} catch (Exception e) {
+			logger.error("Could not localize the faults of " + config.getProjectPath(), e);
+			respond(exchange, 500, String.valueOf(e));
+		}
+	}
+
+	private void shutdown(HttpExchange exchange) throws IOException {
+		if (!authorize(exchange)) {
+			return;
+		}
+		respond(exchange, 200, "Stopping");
+		// The server waits for the exchanges to finish, so it is stopped from another thread
+		new Thread(this::stop).start();
+	}
+
+	/**
+	 * Checks the method, the origin and the token of the request, and responds with an error if one is not valid
+	 *
+	 * @return true if the request can be served
+	 */
+	private boolean authorize(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, "Only POST is supported");
+			return false;
+		}
+		if (exchange.getRequestHeaders().containsKey("Origin")) {
+			respond(exchange, 403, "Requests from browsers are not accepted");
+			return false;
+		}
+		String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+		// Compared in constant time, so that the token cannot be guessed from the response times
+		if (authorization == null || !MessageDigest.isEqual(authorization.getBytes(StandardCharsets.UTF_8),
+				("Bearer " + token).getBytes(StandardCharsets.UTF_8))) {
+			respond(exchange, 401, "Missing or invalid token, see " + tokenFile);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the token to a new file, only readable and writable by its owner
+	 */
+	private void writeToken() throws IOException {
+		Path path = tokenFile.toPath();
+		Files.deleteIfExists(path);
+		try {
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException e) {
+			// Not a POSIX file system
+			Files.createFile(path);
+			tokenFile.setReadable(false, false);
+			tokenFile.setReadable(true, true);
+			tokenFile.setWritable(false, false);
+			tokenFile.setWritable(true, true);
+		}
+		Files.write(path, token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void respond(HttpExchange exchange, int status, String message) throws IOException {
+		respond(exchange, status, "text/plain; charset=utf-8", message.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(body);
+		}
+	}
+
+}
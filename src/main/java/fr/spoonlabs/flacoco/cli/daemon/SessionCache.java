@@ -0,0 +1,132 @@
+package fr.spoonlabs.flacoco.cli.daemon;
+
+import fr.spoonlabs.flacoco.api.FlacocoSession;
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import org.apache.log4j.Logger;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Least recently used sessions of the daemon, one per configuration.
+ * <p>
+ * The cache keeps at most a given number of sessions. When the used heap exceeds the memory budget, the least
+ * recently used sessions are also evicted, until the heap is back under the budget or only the most recently used
+ * session is left. Since the heap is only measured again once it is collected, this eviction can be run on a
+ * background thread with {@link #scheduleTrim()}.
+ */
+public class SessionCache {
+
+	private Logger logger = Logger.getLogger(SessionCache.class);
+
+	private int maxSessions;
+
+	private long memoryBudget;
+
+	/**
+	 * Key is the configuration of the session, in access order
+	 */
+	private LinkedHashMap<String, FlacocoSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Thread of the evictions scheduled by {@link #scheduleTrim()}, started by the first one
+	 */
+	private ExecutorService evictor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "flacoco-session-eviction");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Last eviction scheduled, null if none was
+	 */
+	private Future<?> pendingTrim;
+
+	/**
+	 * @param maxSessions  Maximum number of sessions
+	 * @param memoryBudget Maximum used heap, in bytes, above which sessions are evicted
+	 */
+	public SessionCache(int maxSessions, long memoryBudget) {
+		this.maxSessions = maxSessions;
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * @param key Key of the configuration, sessions are shared by the requests with the same key
+	 * @return The session of the configuration, created if there is none
+	 */
+	public synchronized FlacocoSession get(String key, FlacocoConfig config) {
+		FlacocoSession session = sessions.get(key);
+		if (session == null) {
+			logger.info("Creating a session for " + config.getProjectPath());
+			session = new FlacocoSession(config);
+			sessions.put(key, session);
+
+			Iterator<Map.Entry<String, FlacocoSession>> iterator = sessions.entrySet().iterator();
+			while (sessions.size() > maxSessions) {
+				evict(iterator);
+			}
+		}
+		return session;
+	}
+
+	/**
+	 * Evicts the least recently used sessions while the used heap exceeds the memory budget. The sessions stay
+	 * available while the heap is collected.
+	 */
+	public void trim() {
+		while (true) {
+			synchronized (this) {
+				if (sessions.size() <= 1 || getUsedMemory() <= memoryBudget) {
+					return;
+				}
+				evict(sessions.entrySet().iterator());
+			}
+			// Memory of the evicted session is only measured once it is collected
+			System.gc();
+		}
+	}
+
+	/**
+	 * Runs {@link #trim()} on the background thread of the cache, unless a run is already pending
+	 *
+	 * @return The pending run
+	 */
+	public synchronized Future<?> scheduleTrim() {
+		if (pendingTrim == null || pendingTrim.isDone()) {
+			pendingTrim = evictor.submit(this::trim);
+		}
+		return pendingTrim;
+	}
+
+	/**
+	 * Stops the background thread of the cache
+	 */
+	public void shutdown() {
+		evictor.shutdownNow();
+	}
+
+	public synchronized int size() {
+		return sessions.size();
+	}
+
+	public synchronized boolean contains(String key) {
+		return sessions.containsKey(key);
+	}
+
+	private void evict(Iterator<Map.Entry<String, FlacocoSession>> iterator) {
+		FlacocoSession session = iterator.next().getValue();
+		iterator.remove();
+		logger.info("Evicting the session for " + session.getConfig().getProjectPath());
+	}
+
+	private long getUsedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
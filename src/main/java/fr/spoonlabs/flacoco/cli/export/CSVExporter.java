@@ -17,6 +17,7 @@ public class CSVExporter implements FlacocoExporter {
 	@Override
 	public void export(FlacocoResult result, OutputStreamWriter outputStream) throws IOException {
 		// TODO: Using a CsvListWriter because CsvMapWriter had some issues. Ideally, we could use CsvMapWriter and reduce the complexity here
+		// Rows are written one by one, as the result is iterated, through the buffered writer of the CsvListWriter
 		CsvListWriter writer = new CsvListWriter(outputStream, csvPreference);
 		for (Map.Entry<Location, Suspiciousness> entry : result.getDefaultSuspiciousnessMap().entrySet()) {
 			writer.write(entry.getKey().getClassName(), entry.getKey().getLineNumber(), entry.getValue().getScore());
@@ -1,33 +1,34 @@
 package fr.spoonlabs.flacoco.cli.export;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 import fr.spoonlabs.flacoco.api.result.FlacocoResult;
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.api.result.Suspiciousness;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.lang.reflect.Type;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 public class JSONExporter implements FlacocoExporter {
 
 	@Override
 	public void export(FlacocoResult result, OutputStreamWriter outputStream) throws IOException {
 		Gson gson = new Gson();
-		Type gsonType = new TypeToken<List<JSONEntry>>() {}.getType();
 
-		String gsonString = gson.toJson(
-				result.getDefaultSuspiciousnessMap().entrySet().stream()
-						.map(x -> new JSONEntry(
-								x.getKey().getClassName(),
-								x.getKey().getLineNumber(),
-								x.getValue().getScore())
-						).collect(Collectors.toList()),
-				gsonType
-		);
-
-		outputStream.write(gsonString);
+		// Entries are written one by one, as the result is iterated
+		JsonWriter writer = new JsonWriter(new BufferedWriter(outputStream));
+		writer.beginArray();
+		for (Map.Entry<Location, Suspiciousness> entry : result.getDefaultSuspiciousnessMap().entrySet()) {
+			gson.toJson(new JSONEntry(
+					entry.getKey().getClassName(),
+					entry.getKey().getLineNumber(),
+					entry.getValue().getScore()
+			), JSONEntry.class, writer);
+		}
+		writer.endArray();
+		writer.flush();
 	}
 
 	@Override
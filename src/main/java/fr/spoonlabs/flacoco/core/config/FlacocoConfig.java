@@ -35,9 +35,19 @@ public class FlacocoConfig {
 	private boolean coverTests;
 	private boolean testRunnerVerbose;
 	private int testRunnerTimeoutInMs;
+	private int testRunnerTimeoutPerTestInMs;
 	private String testRunnerJVMArgs;
+	private boolean testRunnerReuseJVM;
+	private int testRunnerMaxExecutionsPerJVM;
+	private boolean testRunnerInProcess;
+	private boolean offlineInstrumentation;
+	private int parallelism;
+	private boolean coverageCache;
+	private boolean failingTestsFirst;
+	private boolean testSelection;
 	private double threshold;
 	private boolean includeZeros;
+	private int topK;
 	private int complianceLevel;
 
 	private TestDetectionStrategy testDetectionStrategy;
@@ -52,6 +62,10 @@ public class FlacocoConfig {
 	private FaultLocalizationFamily family;
 	//------Options for spectrum-based fault localization------
 	private SpectrumFormula spectrumFormula;
+	private Set<SpectrumFormula> additionalSpectrumFormulas;
+	private int hierarchicalTopMethods;
+	private String fromMatrix;
+	private String saveMatrix;
 
 	public FlacocoConfig() {
 		initDefaults();
@@ -71,9 +85,19 @@ public class FlacocoConfig {
 		this.coverTests = false;
 		this.testRunnerVerbose = false;
 		this.testRunnerTimeoutInMs = 1000000; // for the whole execution (16 min)
+		this.testRunnerTimeoutPerTestInMs = 0; // disabled
 		this.testRunnerJVMArgs = null;
+		this.testRunnerReuseJVM = false;
+		this.testRunnerMaxExecutionsPerJVM = 100;
+		this.testRunnerInProcess = false;
+		this.offlineInstrumentation = false;
+		this.parallelism = 1;
+		this.coverageCache = false;
+		this.failingTestsFirst = false;
+		this.testSelection = false;
 		this.threshold = 0.0;
 		this.includeZeros = false;
+		this.topK = 0; // all
 		this.complianceLevel = 8;
 
 		this.testDetectionStrategy = TestDetectionStrategy.CLASSLOADER;
@@ -87,6 +111,10 @@ public class FlacocoConfig {
 
 		this.family = FaultLocalizationFamily.SPECTRUM_BASED;
 		this.spectrumFormula = SpectrumFormula.OCHIAI;
+		this.additionalSpectrumFormulas = new HashSet<>();
+		this.hierarchicalTopMethods = 0; // disabled
+		this.fromMatrix = null; // run the tests
+		this.saveMatrix = null; // disabled
 	}
 
 	public String getWorkspace() {
@@ -221,6 +249,14 @@ public class FlacocoConfig {
 		this.testRunnerTimeoutInMs = testRunnerTimeoutInMs;
 	}
 
+	public int getTestRunnerTimeoutPerTestInMs() {
+		return testRunnerTimeoutPerTestInMs;
+	}
+
+	public void setTestRunnerTimeoutPerTestInMs(int testRunnerTimeoutPerTestInMs) {
+		this.testRunnerTimeoutPerTestInMs = testRunnerTimeoutPerTestInMs;
+	}
+
 	public String getTestRunnerJVMArgs() {
 		return testRunnerJVMArgs;
 	}
@@ -229,6 +265,70 @@ public class FlacocoConfig {
 		this.testRunnerJVMArgs = testRunnerJVMArgs;
 	}
 
+	public boolean isTestRunnerReuseJVM() {
+		return testRunnerReuseJVM;
+	}
+
+	public void setTestRunnerReuseJVM(boolean testRunnerReuseJVM) {
+		this.testRunnerReuseJVM = testRunnerReuseJVM;
+	}
+
+	public int getTestRunnerMaxExecutionsPerJVM() {
+		return testRunnerMaxExecutionsPerJVM;
+	}
+
+	public void setTestRunnerMaxExecutionsPerJVM(int testRunnerMaxExecutionsPerJVM) {
+		this.testRunnerMaxExecutionsPerJVM = testRunnerMaxExecutionsPerJVM;
+	}
+
+	public boolean isTestRunnerInProcess() {
+		return testRunnerInProcess;
+	}
+
+	public void setTestRunnerInProcess(boolean testRunnerInProcess) {
+		this.testRunnerInProcess = testRunnerInProcess;
+	}
+
+	public boolean isOfflineInstrumentation() {
+		return offlineInstrumentation;
+	}
+
+	public void setOfflineInstrumentation(boolean offlineInstrumentation) {
+		this.offlineInstrumentation = offlineInstrumentation;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public boolean isCoverageCache() {
+		return coverageCache;
+	}
+
+	public void setCoverageCache(boolean coverageCache) {
+		this.coverageCache = coverageCache;
+	}
+
+	public boolean isFailingTestsFirst() {
+		return failingTestsFirst;
+	}
+
+	public void setFailingTestsFirst(boolean failingTestsFirst) {
+		this.failingTestsFirst = failingTestsFirst;
+	}
+
+	public boolean isTestSelection() {
+		return testSelection;
+	}
+
+	public void setTestSelection(boolean testSelection) {
+		this.testSelection = testSelection;
+	}
+
 	public TestDetectionStrategy getTestDetectionStrategy() {
 		return testDetectionStrategy;
 	}
@@ -293,6 +393,47 @@ public class FlacocoConfig {
 		this.spectrumFormula = spectrumFormula;
 	}
 
+	/**
+	 * @return Formulas whose rankings are computed from the same spectrum as the one of the spectrum formula
+	 */
+	public Set<SpectrumFormula> getAdditionalSpectrumFormulas() {
+		return additionalSpectrumFormulas;
+	}
+
+	public void setAdditionalSpectrumFormulas(Set<SpectrumFormula> additionalSpectrumFormulas) {
+		this.additionalSpectrumFormulas = additionalSpectrumFormulas;
+	}
+
+	public int getHierarchicalTopMethods() {
+		return hierarchicalTopMethods;
+	}
+
+	public void setHierarchicalTopMethods(int hierarchicalTopMethods) {
+		this.hierarchicalTopMethods = hierarchicalTopMethods;
+	}
+
+	/**
+	 * @return Path to a coverage matrix file to score instead of running the tests, or null to run the tests
+	 */
+	public String getFromMatrix() {
+		return fromMatrix;
+	}
+
+	public void setFromMatrix(String fromMatrix) {
+		this.fromMatrix = fromMatrix;
+	}
+
+	/**
+	 * @return Path of the file where the coverage matrix is saved once computed, or null to not save it
+	 */
+	public String getSaveMatrix() {
+		return saveMatrix;
+	}
+
+	public void setSaveMatrix(String saveMatrix) {
+		this.saveMatrix = saveMatrix;
+	}
+
 	public double getThreshold() {
 		return threshold;
 	}
@@ -309,6 +450,17 @@ public class FlacocoConfig {
 		this.includeZeros = includeZeros;
 	}
 
+	/**
+	 * @return Number of most suspicious lines to keep in the results, all of them if 0
+	 */
+	public int getTopK() {
+		return topK;
+	}
+
+	public void setTopK(int topK) {
+		this.topK = topK;
+	}
+
 	public int getComplianceLevel() {
 		return complianceLevel;
 	}
@@ -341,9 +493,19 @@ public class FlacocoConfig {
 				", coverTests=" + coverTests +
 				", testRunnerVerbose=" + testRunnerVerbose +
 				", testRunnerTimeoutInMs=" + testRunnerTimeoutInMs +
+				", testRunnerTimeoutPerTestInMs=" + testRunnerTimeoutPerTestInMs +
 				", testRunnerJVMArgs='" + testRunnerJVMArgs + '\'' +
+				", testRunnerReuseJVM=" + testRunnerReuseJVM +
+				", testRunnerMaxExecutionsPerJVM=" + testRunnerMaxExecutionsPerJVM +
+				", testRunnerInProcess=" + testRunnerInProcess +
+				", offlineInstrumentation=" + offlineInstrumentation +
+				", parallelism=" + parallelism +
+				", coverageCache=" + coverageCache +
+				", failingTestsFirst=" + failingTestsFirst +
+				", testSelection=" + testSelection +
 				", threshold=" + threshold +
 				", includeZeros=" + includeZeros +
+				", topK=" + topK +
 				", complianceLevel=" + complianceLevel +
 				", testDetectionStrategy=" + testDetectionStrategy +
 				", ignoredTests=" + ignoredTests +
@@ -353,6 +515,10 @@ public class FlacocoConfig {
 				", jacocoExcludes=" + jacocoExcludes +
 				", family=" + family +
 				", spectrumFormula=" + spectrumFormula +
+				", additionalSpectrumFormulas=" + additionalSpectrumFormulas +
+				", hierarchicalTopMethods=" + hierarchicalTopMethods +
+				", fromMatrix='" + fromMatrix + '\'' +
+				", saveMatrix='" + saveMatrix + '\'' +
 				", computeSpoonResults=" + computeSpoonResults +
 				'}';
 	}
@@ -0,0 +1,156 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import org.jacoco.core.runtime.WildcardMatcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Index of the classes of the binary directories, and of the jacoco includes and excludes of the config.
+ * <p>
+ * The directories are scanned once, the first time the index is queried, so that a single index is shared by
+ * everything that needs the classes of the project during a run.
+ */
+public class ClassIndex {
+
+	private FlacocoConfig config;
+
+	private Set<String> classes;
+
+	private Set<String> testClasses;
+
+	/**
+	 * Value that changes whenever a class file is added, removed or modified in the binary directories
+	 */
+	private long stamp;
+
+	private WildcardMatcher includes;
+
+	private WildcardMatcher excludes;
+
+	public ClassIndex(FlacocoConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * Computes if a given class is to be included in the post-coverage computation
+	 * <p>
+	 * If we have include-exclude patterns for Jacoco:
+	 * - We include the class if it matches the include patterns and does not match the excludes patterns
+	 * Else:
+	 * - We include the class if it is available in the binary directories
+	 *
+	 * @return true if the class should be included in the coverage result, false otherwise
+	 */
+	public boolean isInstrumented(String className) {
+		index();
+		// False if it matches an excludes pattern
+		if (excludes != null && excludes.matches(className)) {
+			return false;
+		}
+		// True if it matches an includes pattern and doesn't match any excludes pattern
+		if (includes != null && includes.matches(className)) {
+			return true;
+		}
+		// True if it is present in the available binaries
+		return classes.contains(className) || testClasses.contains(className);
+	}
+
+	/**
+	 * @return true if the class is in the test binary directories
+	 */
+	public boolean isTestClass(String className) {
+		index();
+		return testClasses.contains(className);
+	}
+
+	/**
+	 * @return The fully qualified names of the classes of the binary directories
+	 */
+	public Set<String> getClasses() {
+		index();
+		return classes;
+	}
+
+	/**
+	 * @return The fully qualified names of the classes of the test binary directories
+	 */
+	public Set<String> getTestClasses() {
+		index();
+		return testClasses;
+	}
+
+	/**
+	 * @return The binary directories, then the test binary directories
+	 */
+	public List<String> getDirectories() {
+		List<String> directories = new ArrayList<>(config.getBinJavaDir());
+		directories.addAll(config.getBinTestDir());
+		return directories;
+	}
+
+	/**
+	 * @return A value that changes whenever a class file is added, removed or modified in the binary directories
+	 */
+	public long getStamp() {
+		index();
+		return stamp;
+	}
+
+	private synchronized void index() {
+		if (classes != null) {
+			return;
+		}
+
+		stamp = 1;
+		Set<String> testClasses = scan(config.getBinTestDir());
+		Set<String> classes = scan(config.getBinJavaDir());
+		if (!config.getJacocoIncludes().isEmpty()) {
+			includes = new WildcardMatcher(String.join(":", config.getJacocoIncludes()));
+		}
+		if (!config.getJacocoExcludes().isEmpty()) {
+			excludes = new WildcardMatcher(String.join(":", config.getJacocoExcludes()));
+		}
+		this.testClasses = Collections.unmodifiableSet(testClasses);
+		this.classes = Collections.unmodifiableSet(classes);
+	}
+
+	/**
+	 * @return The fully qualified names of the classes of the directories
+	 */
+	private Set<String> scan(List<String> directories) {
+		Set<String> classes = new HashSet<>();
+		for (String directory : directories) {
+			Path root = new File(directory).toPath();
+			if (!root.toFile().isDirectory()) {
+				continue;
+			}
+			try (Stream<Path> paths = Files.walk(root)) {
+				for (Path path : (Iterable<Path>) paths.sorted()::iterator) {
+					String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+					File file = path.toFile();
+					stamp = 31 * stamp + name.hashCode();
+					stamp = 31 * stamp + file.lastModified();
+					stamp = 31 * stamp + file.length();
+					if (name.endsWith(".class")) {
+						classes.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+					}
+				}
+			} catch (IOException | UncheckedIOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return classes;
+	}
+
+}
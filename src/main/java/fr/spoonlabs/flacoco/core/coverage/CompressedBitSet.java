@@ -0,0 +1,341 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of non-negative ints, stored as a sorted array while it is sparse and as a bitset once it is dense.
+ * <p>
+ * An array takes 32 bits per element, a bitset takes 1 bit per possible element, so the set switches to a bitset
+ * once it has more than one element per 32 possible elements, and back to an array when a value added far beyond
+ * its elements would make it sparse. Removals do not change the storage, {@link #compact()} chooses it again.
+ */
+public class CompressedBitSet {
+
+	/**
+	 * Kinds of the serialized sets
+	 */
+	static final byte SPARSE = 0;
+	static final byte DENSE = 1;
+
+	/**
+	 * Number of bytes of the kind, the cardinality and the length written before the storage of a serialized set
+	 */
+	private static final int HEADER_BYTES = 1 + Integer.BYTES + Integer.BYTES;
+
+	/**
+	 * Sorted elements while the set is sparse, null once it is dense
+	 */
+	private int[] sparse = new int[4];
+
+	/**
+	 * Elements once the set is dense, null while it is sparse
+	 */
+	private long[] dense;
+
+	private int cardinality;
+
+	public void add(int value) {
+		if (dense != null && value >>> 6 >= dense.length && !isDense(cardinality + 1, value)) {
+			toSparse(cardinality + 1);
+		}
+		if (dense != null) {
+			ensureCapacity(value);
+			long word = dense[value >>> 6];
+			long bit = 1L << value;
+			if ((word & bit) == 0) {
+				dense[value >>> 6] = word | bit;
+				cardinality++;
+			}
+			return;
+		}
+
+		// Appending is the common case, since ids are assigned in increasing order
+		int index = cardinality > 0 && sparse[cardinality - 1] < value ? -cardinality - 1
+				: Arrays.binarySearch(sparse, 0, cardinality, value);
+		if (index >= 0) {
+			return;
+		}
+		index = -index - 1;
+		if (cardinality == sparse.length) {
+			sparse = Arrays.copyOf(sparse, Math.max(4, cardinality * 2));
+		}
+		System.arraycopy(sparse, index, sparse, index + 1, cardinality - index);
+		sparse[index] = value;
+		cardinality++;
+
+		if (isDense(cardinality, sparse[cardinality - 1])) {
+			toDense();
+		}
+	}
+
+	/**
+	 * Removes the value. The storage is kept, until {@link #compact()} is called.
+	 */
+	public void remove(int value) {
+		if (dense != null) {
+			if (value >>> 6 < dense.length && (dense[value >>> 6] & (1L << value)) != 0) {
+				dense[value >>> 6] &= ~(1L << value);
+				cardinality--;
+			}
+			return;
+		}
+
+		int index = Arrays.binarySearch(sparse, 0, cardinality, value);
+		if (index >= 0) {
+			System.arraycopy(sparse, index + 1, sparse, index, cardinality - index - 1);
+			cardinality--;
+		}
+	}
+
+	public boolean contains(int value) {
+		if (dense != null) {
+			return value >>> 6 < dense.length && (dense[value >>> 6] & (1L << value)) != 0;
+		}
+		return Arrays.binarySearch(sparse, 0, cardinality, value) >= 0;
+	}
+
+	public int cardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * @param words Bitset in the format of {@link java.util.BitSet#toLongArray()}
+	 * @return The number of elements that are also set in the given bitset
+	 */
+	public int intersectionCardinality(long[] words) {
+		int count = 0;
+		if (dense != null) {
+			for (int i = 0; i < Math.min(words.length, dense.length); i++) {
+				count += Long.bitCount(words[i] & dense[i]);
+			}
+			return count;
+		}
+		for (int i = 0; i < cardinality; i++) {
+			int value = sparse[i];
+			if (value >>> 6 < words.length && (words[value >>> 6] & (1L << value)) != 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Chooses the storage again from the current elements, and releases the unused capacity. Called once the set
+	 * is no longer modified, e.g. after values were removed.
+	 */
+	public void compact() {
+		if (cardinality == 0) {
+			dense = null;
+			sparse = new int[0];
+			return;
+		}
+
+		if (dense != null) {
+			int last = lastSetBit();
+			if (isDense(cardinality, last)) {
+				dense = Arrays.copyOf(dense, (last >>> 6) + 1);
+			} else {
+				toSparse(cardinality);
+			}
+		} else if (isDense(cardinality, sparse[cardinality - 1])) {
+			toDense();
+		} else {
+			sparse = Arrays.copyOf(sparse, cardinality);
+		}
+	}
+
+	/**
+	 * @return true if the set is stored as a bitset
+	 */
+	public boolean isDense() {
+		return dense != null;
+	}
+
+	/**
+	 * @return An iterator over the elements, in increasing order
+	 */
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+			private int index = 0;
+			private int next = dense != null ? nextSetBit(0) : -1;
+
+			@Override
+			public boolean hasNext() {
+				return dense != null ? next >= 0 : index < cardinality;
+			}
+
+			@Override
+			public int nextInt() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				if (dense == null) {
+					return sparse[index++];
+				}
+				int value = next;
+				next = nextSetBit(value + 1);
+				return value;
+			}
+		};
+	}
+
+	/**
+	 * @return The number of bytes written by {@link #write(DataOutput)}
+	 */
+	long serializedSize() {
+		return HEADER_BYTES + (dense != null ? (long) dense.length * Long.BYTES : (long) cardinality * Integer.BYTES);
+	}
+
+	/**
+	 * Writes the set as its kind ({@link #SPARSE} or {@link #DENSE}), its cardinality, the length of its storage and
+	 * its storage. The serialized set is read back by the static methods taking a buffer and a position.
+	 */
+	void write(DataOutput out) throws IOException {
+		out.writeByte(dense != null ? DENSE : SPARSE);
+		out.writeInt(cardinality);
+		if (dense != null) {
+			out.writeInt(dense.length);
+			for (long word : dense) {
+				out.writeLong(word);
+			}
+		} else {
+			out.writeInt(cardinality);
+			for (int i = 0; i < cardinality; i++) {
+				out.writeInt(sparse[i]);
+			}
+		}
+	}
+
+	/**
+	 * @param position Position of a set serialized by {@link #write(DataOutput)} in the buffer
+	 * @return The number of bytes of the serialized set, or -1 if its kind is unknown
+	 */
+	static long serializedSize(ByteBuffer buffer, int position) {
+		byte kind = buffer.get(position);
+		long length = buffer.getInt(position + 1 + Integer.BYTES);
+		if (length < 0 || (kind != SPARSE && kind != DENSE)) {
+			return -1;
+		}
+		return HEADER_BYTES + length * (kind == DENSE ? Long.BYTES : Integer.BYTES);
+	}
+
+	/**
+	 * @param position Position of a set serialized by {@link #write(DataOutput)} in the buffer
+	 */
+	static int cardinality(ByteBuffer buffer, int position) {
+		return buffer.getInt(position + 1);
+	}
+
+	/**
+	 * Same as {@link #intersectionCardinality(long[])}, on a serialized set
+	 *
+	 * @param position Position of a set serialized by {@link #write(DataOutput)} in the buffer
+	 */
+	static int intersectionCardinality(ByteBuffer buffer, int position, long[] words) {
+		int length = buffer.getInt(position + 1 + Integer.BYTES);
+		int storage = position + HEADER_BYTES;
+
+		int count = 0;
+		if (buffer.get(position) == DENSE) {
+			for (int i = 0; i < Math.min(length, words.length); i++) {
+				count += Long.bitCount(words[i] & buffer.getLong(storage + i * Long.BYTES));
+			}
+			return count;
+		}
+		for (int i = 0; i < length; i++) {
+			int value = buffer.getInt(storage + i * Integer.BYTES);
+			if (value >>> 6 < words.length && (words[value >>> 6] & (1L << value)) != 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Calls the consumer with the elements of a serialized set, in increasing order
+	 *
+	 * @param position Position of a set serialized by {@link #write(DataOutput)} in the buffer
+	 */
+	static void forEach(ByteBuffer buffer, int position, IntConsumer consumer) {
+		int length = buffer.getInt(position + 1 + Integer.BYTES);
+		int storage = position + HEADER_BYTES;
+
+		if (buffer.get(position) == DENSE) {
+			for (int i = 0; i < length; i++) {
+				long word = buffer.getLong(storage + i * Long.BYTES);
+				while (word != 0) {
+					consumer.accept(i * Long.SIZE + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+		} else {
+			for (int i = 0; i < length; i++) {
+				consumer.accept(buffer.getInt(storage + i * Integer.BYTES));
+			}
+		}
+	}
+
+	private int nextSetBit(int from) {
+		int wordIndex = from >>> 6;
+		if (wordIndex >= dense.length) {
+			return -1;
+		}
+		long word = dense[wordIndex] & (-1L << from);
+		while (true) {
+			if (word != 0) {
+				return wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word);
+			}
+			if (++wordIndex == dense.length) {
+				return -1;
+			}
+			word = dense[wordIndex];
+		}
+	}
+
+	/**
+	 * @return true if a set of the given cardinality and greatest element is smaller as a bitset
+	 */
+	private static boolean isDense(int cardinality, int last) {
+		return (long) cardinality * Integer.SIZE > last + 1L;
+	}
+
+	private int lastSetBit() {
+		for (int wordIndex = dense.length - 1; wordIndex >= 0; wordIndex--) {
+			if (dense[wordIndex] != 0) {
+				return wordIndex * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(dense[wordIndex]);
+			}
+		}
+		return -1;
+	}
+
+	private void toSparse(int capacity) {
+		int[] values = new int[capacity];
+		int index = 0;
+		for (int value = nextSetBit(0); value >= 0; value = nextSetBit(value + 1)) {
+			values[index++] = value;
+		}
+		sparse = values;
+		dense = null;
+	}
+
+	private void toDense() {
+		dense = new long[(sparse[cardinality - 1] >>> 6) + 1];
+		for (int i = 0; i < cardinality; i++) {
+			dense[sparse[i] >>> 6] |= 1L << sparse[i];
+		}
+		sparse = null;
+	}
+
+	private void ensureCapacity(int value) {
+		if (value >>> 6 >= dense.length) {
+			dense = Arrays.copyOf(dense, Math.max(dense.length * 2, (value >>> 6) + 1));
+		}
+	}
+
+}
@@ -18,7 +18,7 @@ public class CoverageFromSingleTestUnit {
 	/**
 	 * Coverage info
 	 */
-	protected CoveredTestResultPerTestMethod coveredTestResultPerTestMethod;
+	protected CoverageDetailed cov;
 
 	/**
 	 * Result of the execution: true if it's passing
@@ -30,13 +30,32 @@ public class CoverageFromSingleTestUnit {
 	 */
 	protected boolean isSkip;
 
+	/**
+	 * Stack trace of the failure, null if the test is passing or skipped
+	 */
+	protected String stackTrace;
+
 	public CoverageFromSingleTestUnit(TestMethod testMethod, CoveredTestResultPerTestMethod result) {
 		this.testMethod = testMethod;
-		this.coveredTestResultPerTestMethod = result;
+
+		this.cov = (CoverageDetailed) result.getCoverageOf(testMethod.getFullyQualifiedMethodName());
 
 		this.isPassing = result.getPassingTests().contains(testMethod.getFullyQualifiedMethodName());
 
 		this.isSkip = result.getIgnoredTests().contains(testMethod.getFullyQualifiedMethodName());
+
+		if (!isPassing && !isSkip) {
+			this.stackTrace = result.getFailureOf(testMethod.getFullyQualifiedMethodName()).stackTrace;
+		}
+	}
+
+	public CoverageFromSingleTestUnit(TestMethod testMethod, CoverageDetailed cov, boolean isPassing, boolean isSkip,
+									  String stackTrace) {
+		this.testMethod = testMethod;
+		this.cov = cov;
+		this.isPassing = isPassing;
+		this.isSkip = isSkip;
+		this.stackTrace = stackTrace;
 	}
 
 	public TestMethod getTestMethod() {
@@ -44,11 +63,7 @@ public class CoverageFromSingleTestUnit {
 	}
 
 	public CoverageDetailed getCov() {
-		return (CoverageDetailed) coveredTestResultPerTestMethod.getCoverageOf(testMethod.getFullyQualifiedMethodName());
-	}
-
-	public CoveredTestResultPerTestMethod getCoveredTestResultPerTestMethod() {
-		return coveredTestResultPerTestMethod;
+		return cov;
 	}
 
 	public boolean isPassing() {
@@ -59,6 +74,10 @@ public class CoverageFromSingleTestUnit {
 		return isSkip;
 	}
 
+	public String getStackTrace() {
+		return stackTrace;
+	}
+
 	@Override
 	public String toString() {
 		return "CoverageFromSingleTestUnit{" +
@@ -69,4 +88,4 @@ public class CoverageFromSingleTestUnit {
 				'}';
 	}
 
-}
\ No newline at end of file
+}
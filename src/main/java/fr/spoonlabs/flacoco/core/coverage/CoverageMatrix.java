@@ -2,7 +2,6 @@ package fr.spoonlabs.flacoco.core.coverage;
 
 import ch.scheitlin.alex.java.StackTrace;
 import ch.scheitlin.alex.java.StackTraceParser;
-import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
 import eu.stamp_project.testrunner.listener.impl.CoverageDetailed;
 import eu.stamp_project.testrunner.listener.impl.CoverageFromClass;
 import fr.spoonlabs.flacoco.api.result.Location;
@@ -10,38 +9,87 @@ import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
 import fr.spoonlabs.flacoco.core.test.method.TestMethod;
 import fr.spoonlabs.flacoco.utils.spoon.SpoonBlockInspector;
 import org.apache.log4j.Logger;
-import org.apache.maven.plugin.surefire.util.DirectoryScanner;
-import org.apache.maven.surefire.api.testset.TestListResolver;
-import org.jacoco.core.runtime.WildcardMatcher;
 
-import java.io.File;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * This class contains the result of the execution of a set of test units
+ * <p>
+ * Test methods and lines are given dense ids, each line is stored as the set of ids of the test methods that execute
+ * it, and the results of the test methods as a bitset. The rows returned by {@link #getRow(int)} are the ones of the
+ * matrix, and must not be modified.
  *
  * @author Matias Martinez
  */
-public class CoverageMatrix {
+public class CoverageMatrix implements CoverageSpectrum {
 
 	private Logger logger = Logger.getLogger(CoverageMatrix.class);
 
 	private FlacocoConfig config;
 
+	private ClassIndex classIndex;
+
+	private SpoonBlockInspector blockInspector;
+
 	public CoverageMatrix(FlacocoConfig config) {
+		this(config, new ClassIndex(config), new SpoonBlockInspector(config));
+	}
+
+	/**
+	 * @param classIndex     Index of the classes of the project, shared with the other users of the run
+	 * @param blockInspector Inspector of the blocks where exceptions were thrown, shared with the other matrices of
+	 *                       the run
+	 */
+	public CoverageMatrix(FlacocoConfig config, ClassIndex classIndex, SpoonBlockInspector blockInspector) {
 		this.config = config;
+		this.classIndex = classIndex;
+		this.blockInspector = blockInspector;
 	}
 
+	/**
+	 * Executed test methods, indexed by their id
+	 */
+	private List<TestMethod> testMethods = new ArrayList<>();
+
+	private Map<TestMethod, Integer> testIds = new HashMap<>();
+
+	/**
+	 * Results of the executed test methods, bit is set if the test method with that id is passing
+	 */
+	private BitSet passing = new BitSet();
+
+	/**
+	 * Covered lines, indexed by their id
+	 */
+	private List<Location> locations = new ArrayList<>();
+
+	private Map<Location, Integer> locationIds = new HashMap<>();
+
+	/**
+	 * Class names of the covered lines, shared by all the lines of a class
+	 */
+	private SymbolTable symbols = new SymbolTable();
+
+	/**
+	 * Ids of the test methods that execute each line, indexed by the id of the line
+	 */
+	private List<CompressedBitSet> rows = new ArrayList<>();
+
 	/**
 	 * Key is the line, value is a set of test methods that execute that line
+	 *
+	 * @deprecated Unmodifiable view of the matrix, kept for subclasses, use {@link #getResultExecution()}
 	 */
-	protected Map<Location, Set<TestMethod>> resultExecution = new HashMap<>();
+	@Deprecated
+	protected final Map<Location, Set<TestMethod>> resultExecution = newResultExecutionView();
 
 	/**
 	 * Map between executed test methods and their result. True if passing, false is failing.
+	 *
+	 * @deprecated Unmodifiable view of the matrix, kept for subclasses, use {@link #getTests()}
 	 */
-	protected Map<TestMethod, Boolean> tests = new HashMap<>();
+	@Deprecated
+	protected final Map<TestMethod, Boolean> tests = newTestsView();
 
 	/**
 	 * Processes a wrapper for the coverage from a single test unit
@@ -62,7 +110,7 @@ public class CoverageMatrix {
 		// Let's navigate the covered class per line.
 		for (String iClassNameCovered : covLine.getDetailedCoverage().keySet()) {
 
-			String className = iClassNameCovered.replace("/", ".");
+			String className = symbols.intern(iClassNameCovered.replace("/", "."));
 			if (!config.isCoverTests() && testClasses.contains(className)) {
 				continue;
 			}
@@ -82,20 +130,19 @@ public class CoverageMatrix {
 		// Now, we check if any exception was thrown and, if so, add the line where it was thrown
 		// since JaCoCo does not include them in coverage
 		// Handle tests that throw exceptions
-		CoveredTestResultPerTestMethod result = iCovWrapper.getCoveredTestResultPerTestMethod();
 		TestMethod testMethod = iCovWrapper.getTestMethod();
-		if (!isPassing && result.getFailureOf(testMethod.getFullyQualifiedMethodName()) != null) {
+		if (!isPassing && iCovWrapper.getStackTrace() != null) {
 
 			try {
-				StackTrace trace = StackTraceParser
-						.parse(result.getFailureOf(testMethod.getFullyQualifiedMethodName()).stackTrace);
+				StackTrace trace = StackTraceParser.parse(iCovWrapper.getStackTrace());
 
+				List<StackTraceElement> elements = new ArrayList<>();
 				for (StackTraceElement element : trace.getStackTraceLines()) {
 					// Search for first non-native element
 					if (!element.isNativeMethod()) {
 						// We want to keep it if and only if it the class was included in the coverage
 						// computation, which will ignore classes like org.junit.Assert
-						if (classToInclude(element.getClassName())) {
+						if (classIndex.isInstrumented(element.getClassName())) {
 
 							// We also want to ignore test classes if they coverTests is not set
 							if (!config.isCoverTests() && testClasses.contains(element.getClassName())) {
@@ -109,36 +156,322 @@ public class CoverageMatrix {
 
 							logger.debug("Adding a line where an exception was thrown: " + location);
 							this.add(location, testMethod, 1, false);
-
-							// Compute the executed lines from the block where the exception was thrown
-							// See: https://github.com/SpoonLabs/flacoco/issues/109
-							SpoonBlockInspector blockMatcher = new SpoonBlockInspector(config);
-							List<Location> locations = blockMatcher.getBlockLocations(element);
-
-							for (Location blockLocation : locations) {
-								logger.debug("Adding a line from the block where an exception was thrown: " + blockLocation);
-								this.add(blockLocation, testMethod, 1, false);
-							}
+							elements.add(element);
 						}
 					}
 				}
+
+				// Compute the executed lines from the blocks where the exception was thrown
+				// See: https://github.com/SpoonLabs/flacoco/issues/109
+				for (List<Location> locations : blockInspector.getBlockLocations(elements)) {
+					for (Location blockLocation : locations) {
+						logger.debug("Adding a line from the block where an exception was thrown: " + blockLocation);
+						this.add(blockLocation, testMethod, 1, false);
+					}
+				}
 			} catch (Exception e) {
 				throw new RuntimeException(e);
 			}
 		}
 	}
 
+	@Override
 	public Map<Location, Set<TestMethod>> getResultExecution() {
 		return resultExecution;
 	}
 
+	private Map<Location, Set<TestMethod>> newResultExecutionView() {
+		return new AbstractMap<Location, Set<TestMethod>>() {
+			@Override
+			public Set<TestMethod> get(Object key) {
+				Integer locationId = locationIds.get(key);
+				return locationId == null ? null : new TestSet(rows.get(locationId));
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				return locationIds.containsKey(key);
+			}
+
+			@Override
+			public int size() {
+				return locations.size();
+			}
+
+			@Override
+			public Set<Entry<Location, Set<TestMethod>>> entrySet() {
+				return new AbstractSet<Entry<Location, Set<TestMethod>>>() {
+					@Override
+					public Iterator<Entry<Location, Set<TestMethod>>> iterator() {
+						return new Iterator<Entry<Location, Set<TestMethod>>>() {
+							private int locationId = 0;
+
+							@Override
+							public boolean hasNext() {
+								return locationId < locations.size();
+							}
+
+							@Override
+							public Entry<Location, Set<TestMethod>> next() {
+								if (!hasNext()) {
+									throw new NoSuchElementException();
+								}
+								Entry<Location, Set<TestMethod>> entry = new SimpleImmutableEntry<>(
+										locations.get(locationId), new TestSet(rows.get(locationId)));
+								locationId++;
+								return entry;
+							}
+						};
+					}
+
+					@Override
+					public int size() {
+						return locations.size();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
 	public Map<TestMethod, Boolean> getTests() {
 		return tests;
 	}
 
+	private Map<TestMethod, Boolean> newTestsView() {
+		return new AbstractMap<TestMethod, Boolean>() {
+			@Override
+			public Boolean get(Object key) {
+				Integer testId = testIds.get(key);
+				return testId == null ? null : passing.get(testId);
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				return testIds.containsKey(key);
+			}
+
+			@Override
+			public int size() {
+				return testMethods.size();
+			}
+
+			@Override
+			public Set<Entry<TestMethod, Boolean>> entrySet() {
+				return new AbstractSet<Entry<TestMethod, Boolean>>() {
+					@Override
+					public Iterator<Entry<TestMethod, Boolean>> iterator() {
+						return new Iterator<Entry<TestMethod, Boolean>>() {
+							private int testId = 0;
+
+							@Override
+							public boolean hasNext() {
+								return testId < testMethods.size();
+							}
+
+							@Override
+							public Entry<TestMethod, Boolean> next() {
+								if (!hasNext()) {
+									throw new NoSuchElementException();
+								}
+								Entry<TestMethod, Boolean> entry = new SimpleImmutableEntry<>(testMethods.get(testId),
+										passing.get(testId));
+								testId++;
+								return entry;
+							}
+						};
+					}
+
+					@Override
+					public int size() {
+						return testMethods.size();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public List<Location> getLocations() {
+		return Collections.unmodifiableList(locations);
+	}
+
+	@Override
+	public int getNumberOfPassingTests() {
+		return passing.cardinality();
+	}
+
+	@Override
+	public int getNumberOfFailingTests() {
+		return testMethods.size() - passing.cardinality();
+	}
+
+	@Override
+	public void countExecutions(int[] passingExecuting, int[] failingExecuting, BitSet locationIds) {
+		long[] passingWords = passing.toLongArray();
+		for (int locationId = locationIds.nextSetBit(0); locationId >= 0 && locationId < rows.size();
+			 locationId = locationIds.nextSetBit(locationId + 1)) {
+			CompressedBitSet row = rows.get(locationId);
+			passingExecuting[locationId] = row.intersectionCardinality(passingWords);
+			failingExecuting[locationId] = row.cardinality() - passingExecuting[locationId];
+		}
+	}
+
+	@Override
+	public List<TestMethod> getExecutingTests(int locationId, boolean isPassing) {
+		List<TestMethod> executingTests = new ArrayList<>();
+		PrimitiveIterator.OfInt iterator = rows.get(locationId).iterator();
+		while (iterator.hasNext()) {
+			int testId = iterator.nextInt();
+			if (passing.get(testId) == isPassing) {
+				executingTests.add(testMethods.get(testId));
+			}
+		}
+		return executingTests;
+	}
+
+	/**
+	 * @param classNames Fully qualified names of classes
+	 * @return The test methods executing at least one line of the given classes
+	 */
+	public Set<TestMethod> getTestsExecutingClasses(Set<String> classNames) {
+		List<TestMethod> testMethods = getTestMethods();
+		Set<TestMethod> executingTests = new HashSet<>();
+		List<Location> locations = getLocations();
+		for (int locationId = 0; locationId < locations.size(); locationId++) {
+			if (classNames.contains(locations.get(locationId).getClassName())) {
+				PrimitiveIterator.OfInt iterator = getRow(locationId).iterator();
+				while (iterator.hasNext()) {
+					executingTests.add(testMethods.get(iterator.nextInt()));
+				}
+			}
+		}
+		return executingTests;
+	}
+
+	/**
+	 * @return The ids of the lines executed by at least one of the given test methods
+	 */
+	public BitSet getExecutedLocations(Collection<TestMethod> testMethods) {
+		BitSet testIds = toTestIds(testMethods);
+		BitSet locationIds = new BitSet();
+		for (int locationId = 0; locationId < getLocations().size(); locationId++) {
+			PrimitiveIterator.OfInt iterator = getRow(locationId).iterator();
+			while (iterator.hasNext()) {
+				if (testIds.get(iterator.nextInt())) {
+					locationIds.set(locationId);
+					break;
+				}
+			}
+		}
+		return locationIds;
+	}
+
+	/**
+	 * Removes the given test methods and their result, so that they are accounted for again only once they are added
+	 * again. The other test methods keep their result, but their ids change.
+	 * <p>
+	 * Lines are never removed, so that their ids do not change: a line that is no longer executed by any test method
+	 * keeps an empty row.
+	 */
+	public void removeTests(Collection<TestMethod> testMethods) {
+		BitSet removed = toTestIds(testMethods);
+		if (removed.isEmpty()) {
+			return;
+		}
+
+		// The kept test methods are given dense ids again, in the same order
+		int[] newIds = new int[this.testMethods.size()];
+		List<TestMethod> keptTestMethods = new ArrayList<>();
+		Map<TestMethod, Integer> keptTestIds = new HashMap<>();
+		BitSet keptPassing = new BitSet();
+		for (int testId = 0; testId < this.testMethods.size(); testId++) {
+			if (removed.get(testId)) {
+				newIds[testId] = -1;
+				continue;
+			}
+			newIds[testId] = keptTestMethods.size();
+			keptPassing.set(newIds[testId], passing.get(testId));
+			keptTestIds.put(this.testMethods.get(testId), newIds[testId]);
+			keptTestMethods.add(this.testMethods.get(testId));
+		}
+
+		for (int locationId = 0; locationId < rows.size(); locationId++) {
+			CompressedBitSet row = new CompressedBitSet();
+			PrimitiveIterator.OfInt iterator = rows.get(locationId).iterator();
+			while (iterator.hasNext()) {
+				int testId = newIds[iterator.nextInt()];
+				if (testId >= 0) {
+					row.add(testId);
+				}
+			}
+			rows.set(locationId, row);
+		}
+
+		this.testMethods = keptTestMethods;
+		this.testIds = keptTestIds;
+		this.passing = keptPassing;
+	}
+
+	/**
+	 * Replaces the index of the classes and the inspector of the blocks, once the classes of the project changed, so
+	 * that the coverage of the test methods executed again is processed against the changed classes
+	 */
+	void setClasses(ClassIndex classIndex, SpoonBlockInspector blockInspector) {
+		this.classIndex = classIndex;
+		this.blockInspector = blockInspector;
+	}
+
+	/**
+	 * Chooses the storage of each row again, once the tests were executed and removed, so that rows left sparse by
+	 * {@link #removeTests(Collection)} or by the later test methods are not kept as bitsets
+	 */
+	void compact() {
+		for (CompressedBitSet row : rows) {
+			row.compact();
+		}
+	}
+
+	private BitSet toTestIds(Collection<TestMethod> testMethods) {
+		BitSet testIds = new BitSet();
+		for (TestMethod testMethod : testMethods) {
+			Integer testId = getTestId(testMethod);
+			if (testId != null) {
+				testIds.set(testId);
+			}
+		}
+		return testIds;
+	}
+
+	@Override
 	public Set<TestMethod> getFailingTestCases() {
-		return this.tests.entrySet().stream().filter(x -> !x.getValue())
-				.map(Map.Entry::getKey).collect(Collectors.toSet());
+		Set<TestMethod> failing = new HashSet<>();
+		for (int testId = passing.nextClearBit(0); testId < testMethods.size(); testId = passing.nextClearBit(testId + 1)) {
+			failing.add(testMethods.get(testId));
+		}
+		return failing;
+	}
+
+	@Override
+	public List<TestMethod> getTestMethods() {
+		return Collections.unmodifiableList(testMethods);
+	}
+
+	/**
+	 * @return The id of the test method, or null if it was not executed
+	 */
+	Integer getTestId(TestMethod testMethod) {
+		return testIds.get(testMethod);
+	}
+
+	@Override
+	public BitSet getPassing() {
+		return (BitSet) passing.clone();
+	}
+
+	@Override
+	public CompressedBitSet getRow(int locationId) {
+		return rows.get(locationId);
 	}
 
 	/**
@@ -151,64 +484,88 @@ public class CoverageMatrix {
 	 * @param instExecutedAtLineI Number of instructions executed at the location
 	 * @param testResult The result of the test method
 	 */
-	public void add(Location location, TestMethod testMethod, int instExecutedAtLineI, Boolean testResult) {
-		if (instExecutedAtLineI > 0) {
-			Set<TestMethod> currentExecution;
+	public void add(Location location, TestMethod testMethod, int instExecutedAtLineI, boolean testResult) {
+		int testId = this.addTestMethod(testMethod, testResult);
 
-			if (this.resultExecution.containsKey(location)) {
-				currentExecution = this.resultExecution.get(location);
-			} else {
-				currentExecution = new HashSet<>();
-				this.resultExecution.put(location, currentExecution);
+		if (instExecutedAtLineI > 0) {
+			Integer locationId = this.locationIds.get(location);
+			if (locationId == null) {
+				String className = this.symbols.intern(location.getClassName());
+				if (className != location.getClassName()) {
+					location = new Location(className, location.getLineNumber());
+				}
+				locationId = this.locations.size();
+				this.locations.add(location);
+				this.locationIds.put(location, locationId);
+				this.rows.add(new CompressedBitSet());
 			}
 
-			currentExecution.add(testMethod);
+			this.rows.get(locationId).add(testId);
 		}
-
-		this.tests.put(testMethod, testResult);
 	}
 
 	/**
-	 * Computes if a given class is to be included in the post-coverage computation
+	 * Adds a test method which does not cover any location
 	 *
-	 * If we have include-exclude patterns for Jacoco:
-	 * - We include the class if it matches the include patterns and does not match the excludes patterns
-	 * Else:
-	 * - We include the class if it is available in the binary directories
-	 * @param className
-	 * @return true if the class should be included in the coverage result, false otherwise
-	 */
-    private boolean classToInclude(String className) {
-        // False if it matches an excludes pattern
-        for (String pattern : config.getJacocoExcludes()) {
-            WildcardMatcher matcher = new WildcardMatcher(pattern);
-            if (matcher.matches(className)) {
-                return false;
-            }
-        }
-        // True if it matches an includes pattern and doesn't match any excludes pattern
-        for (String pattern : config.getJacocoIncludes()) {
-            WildcardMatcher matcher = new WildcardMatcher(pattern);
-            if (matcher.matches(className)) {
-                return true;
-            }
-        }
-
-        // True if it is present in the available binaries
-        for (String dir : config.getBinJavaDir()) {
-            DirectoryScanner directoryScanner = new DirectoryScanner(new File(dir), TestListResolver.getWildcard());
-            if (directoryScanner.scan().getClasses().contains(className)) {
-                return true;
-            }
-        }
-        for (String dir : config.getBinTestDir()) {
-            DirectoryScanner directoryScanner = new DirectoryScanner(new File(dir), TestListResolver.getWildcard());
-            if (directoryScanner.scan().getClasses().contains(className)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
+	 * @param testMethod The test method
+	 * @param testResult The result of the test method
+	 */
+	public void addTest(TestMethod testMethod, boolean testResult) {
+		this.addTestMethod(testMethod, testResult);
+	}
+
+	/**
+	 * @return The id of the test method, assigned the first time it is added
+	 */
+	private int addTestMethod(TestMethod testMethod, boolean testResult) {
+		Integer testId = this.testIds.get(testMethod);
+		if (testId == null) {
+			testId = this.testMethods.size();
+			this.testMethods.add(testMethod);
+			this.testIds.put(testMethod, testId);
+		}
+		this.passing.set(testId, testResult);
+		return testId;
+	}
+
+	/**
+	 * Unmodifiable view of a row of the matrix as a set of test methods
+	 */
+	private class TestSet extends AbstractSet<TestMethod> {
+
+		private CompressedBitSet row;
+
+		TestSet(CompressedBitSet row) {
+			this.row = row;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Integer testId = testIds.get(o);
+			return testId != null && row.contains(testId);
+		}
+
+		@Override
+		public int size() {
+			return row.cardinality();
+		}
+
+		@Override
+		public Iterator<TestMethod> iterator() {
+			PrimitiveIterator.OfInt iterator = row.iterator();
+			return new Iterator<TestMethod>() {
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public TestMethod next() {
+					return testMethods.get(iterator.nextInt());
+				}
+			};
+		}
+
+	}
 
 }
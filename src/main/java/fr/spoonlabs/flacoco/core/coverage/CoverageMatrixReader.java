@@ -0,0 +1,159 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.core.test.method.StringTestMethod;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reads a coverage matrix written by {@link CoverageMatrixWriter}.
+ * <p>
+ * The test methods, the lines and the offsets of the rows are read onto the heap. The rows are memory-mapped in
+ * chunks, and are read from the file when the matrix is scored.
+ */
+public class CoverageMatrixReader {
+
+	private Logger logger = Logger.getLogger(CoverageMatrixReader.class);
+
+	/**
+	 * Largest number of bytes of a mapped chunk of rows
+	 */
+	private long chunkSize;
+
+	public CoverageMatrixReader() {
+		this(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param chunkSize Largest number of bytes of a mapped chunk of rows, at most {@link Integer#MAX_VALUE}
+	 */
+	CoverageMatrixReader(long chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @throws IOException If the file cannot be read, or is not a valid coverage matrix
+	 */
+	public CoverageSpectrum read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return read(file, channel);
+		} catch (EOFException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+				| NegativeArraySizeException e) {
+			throw new IOException(file + " is truncated or corrupt", e);
+		}
+	}
+
+	private CoverageSpectrum read(File file, FileChannel channel) throws IOException {
+		long size = channel.size();
+		// The stream is closed with the channel
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+		if (size < 6 * Integer.BYTES || in.readInt() != CoverageMatrixWriter.MAGIC) {
+			throw new IOException(file + " is not a coverage matrix");
+		}
+		int version = in.readInt();
+		if (version != CoverageMatrixWriter.VERSION) {
+			throw new IOException(file + " has version " + version + " of the coverage matrix format, expected "
+					+ CoverageMatrixWriter.VERSION);
+		}
+		int nrStrings = in.readInt();
+		int nrTests = in.readInt();
+		int nrLocations = in.readInt();
+		int nrPassingWords = in.readInt();
+		// Each of them takes at least 4 bytes
+		if ((long) nrStrings + nrTests + nrLocations + nrPassingWords > size / Integer.BYTES) {
+			throw new IOException(file + " is truncated or corrupt");
+		}
+		long position = 6 * Integer.BYTES;
+
+		// Strings are shared by the test methods and the lines
+		String[] strings = new String[nrStrings];
+		for (int i = 0; i < nrStrings; i++) {
+			int length = in.readInt();
+			if (length > size) {
+				throw new IOException(file + " is truncated or corrupt");
+			}
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+			position += Integer.BYTES + bytes.length;
+		}
+
+		List<TestMethod> testMethods = new ArrayList<>(nrTests);
+		for (int i = 0; i < nrTests; i++) {
+			testMethods.add(new StringTestMethod(strings[in.readInt()], strings[in.readInt()]));
+		}
+		position += (long) nrTests * 2 * Integer.BYTES;
+
+		long[] passingWords = new long[nrPassingWords];
+		for (int i = 0; i < nrPassingWords; i++) {
+			passingWords[i] = in.readLong();
+		}
+		position += (long) nrPassingWords * Long.BYTES;
+
+		List<Location> locations = new ArrayList<>(nrLocations);
+		for (int i = 0; i < nrLocations; i++) {
+			locations.add(new Location(strings[in.readInt()], in.readInt()));
+		}
+		position += (long) nrLocations * 2 * Integer.BYTES;
+
+		// The offsets are followed by the end of the last row
+		long rowsStart = position + (long) nrLocations * Long.BYTES;
+		long[] rowOffsets = new long[nrLocations + 1];
+		for (int i = 0; i < nrLocations; i++) {
+			rowOffsets[i] = in.readLong();
+			if (rowOffsets[i] < (i == 0 ? 0 : rowOffsets[i - 1] + 1)) {
+				throw new IOException(file + " is truncated or corrupt");
+			}
+		}
+		rowOffsets[nrLocations] = size - rowsStart;
+
+		// The rows are mapped in chunks, each row being in a single chunk, and the mappings stay valid once the
+		// channel is closed
+		List<ByteBuffer> chunks = new ArrayList<>();
+		List<Long> chunkOffsets = new ArrayList<>();
+		for (int first = 0; first < nrLocations; ) {
+			int last = first + 1;
+			while (last < nrLocations && rowOffsets[last + 1] - rowOffsets[first] <= chunkSize) {
+				last++;
+			}
+			long chunkLength = rowOffsets[last] - rowOffsets[first];
+			if (chunkLength > Integer.MAX_VALUE) {
+				throw new IOException(file + " is truncated or corrupt");
+			}
+			ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, rowsStart + rowOffsets[first], chunkLength);
+			for (int i = first; i < last; i++) {
+				int rowPosition = (int) (rowOffsets[i] - rowOffsets[first]);
+				if (CompressedBitSet.serializedSize(chunk, rowPosition) != rowOffsets[i + 1] - rowOffsets[i]) {
+					throw new IOException(file + " is truncated or corrupt");
+				}
+			}
+			chunks.add(chunk);
+			chunkOffsets.add(rowOffsets[first]);
+			first = last;
+		}
+
+		logger.debug("Read the coverage matrix of " + nrTests + " test methods and " + nrLocations + " lines from "
+				+ file + ", in " + chunks.size() + " chunks");
+
+		return new MappedCoverageMatrix(testMethods, BitSet.valueOf(passingWords), locations,
+				chunks.toArray(new ByteBuffer[0]), chunkOffsets.stream().mapToLong(Long::longValue).toArray(),
+				rowOffsets);
+	}
+
+}
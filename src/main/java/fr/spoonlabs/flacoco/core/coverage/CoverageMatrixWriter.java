@@ -0,0 +1,106 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes a {@link CoverageSpectrum} to a binary file, which can be scored later with {@link CoverageMatrixReader}.
+ * <p>
+ * The file is made of, in big-endian order:
+ * <ul>
+ *     <li>a header: magic number, version, number of strings, of test methods, of lines and of words of the
+ *     results</li>
+ *     <li>the string table: length and UTF-8 bytes of each class and method name</li>
+ *     <li>the test methods: ids of their class name and of their method name in the string table</li>
+ *     <li>the results of the test methods, as the words of a bitset where the bit of passing test methods is set</li>
+ *     <li>the lines: id of their class name in the string table and line number</li>
+ *     <li>the offset of the row of each line, from the start of the rows</li>
+ *     <li>the rows: ids of the test methods executing each line, as written by {@link CompressedBitSet}</li>
+ * </ul>
+ */
+public class CoverageMatrixWriter {
+
+	/**
+	 * "FLCM"
+	 */
+	static final int MAGIC = 0x464C434D;
+
+	/**
+	 * Version of the format, to be increased on every incompatible change
+	 */
+	static final int VERSION = 1;
+
+	private Logger logger = Logger.getLogger(CoverageMatrixWriter.class);
+
+	public void write(CoverageSpectrum matrix, File file) throws IOException {
+		List<TestMethod> testMethods = matrix.getTestMethods();
+		List<Location> locations = matrix.getLocations();
+		long[] passing = matrix.getPassing().toLongArray();
+
+		// Class names are shared by the test methods and the lines
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		for (TestMethod testMethod : testMethods) {
+			strings.putIfAbsent(testMethod.getFullyQualifiedClassName(), strings.size());
+			strings.putIfAbsent(getMethodName(testMethod), strings.size());
+		}
+		for (Location location : locations) {
+			strings.putIfAbsent(location.getClassName(), strings.size());
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(strings.size());
+			out.writeInt(testMethods.size());
+			out.writeInt(locations.size());
+			out.writeInt(passing.length);
+
+			for (String string : strings.keySet()) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+
+			for (TestMethod testMethod : testMethods) {
+				out.writeInt(strings.get(testMethod.getFullyQualifiedClassName()));
+				out.writeInt(strings.get(getMethodName(testMethod)));
+			}
+
+			for (long word : passing) {
+				out.writeLong(word);
+			}
+
+			for (Location location : locations) {
+				out.writeInt(strings.get(location.getClassName()));
+				out.writeInt(location.getLineNumber());
+			}
+
+			long offset = 0;
+			for (int locationId = 0; locationId < locations.size(); locationId++) {
+				out.writeLong(offset);
+				offset += matrix.getRow(locationId).serializedSize();
+			}
+
+			for (int locationId = 0; locationId < locations.size(); locationId++) {
+				matrix.getRow(locationId).write(out);
+			}
+		}
+
+		logger.debug("Wrote the coverage matrix of " + testMethods.size() + " test methods and " + locations.size()
+				+ " lines to " + file);
+	}
+
+	/**
+	 * @return The name of the test method, without its class name
+	 */
+	private String getMethodName(TestMethod testMethod) {
+		String methodName = testMethod.getFullyQualifiedMethodName();
+		return methodName.substring(methodName.lastIndexOf('#') + 1);
+	}
+
+}
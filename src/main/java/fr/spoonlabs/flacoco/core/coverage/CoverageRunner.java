@@ -1,16 +1,39 @@
 package fr.spoonlabs.flacoco.core.coverage;
 
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 
 import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
+import eu.stamp_project.testrunner.listener.impl.CoverageDetailed;
+import eu.stamp_project.testrunner.runner.ParserOptions;
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.cache.CoverageCache;
+import fr.spoonlabs.flacoco.core.coverage.cache.InstrumentationCache;
+import fr.spoonlabs.flacoco.core.coverage.framework.TestFrameworkStrategy;
+import fr.spoonlabs.flacoco.core.coverage.framework.TestRunnerOptions;
+import fr.spoonlabs.flacoco.core.coverage.selection.TestSelector;
 import fr.spoonlabs.flacoco.core.test.TestContext;
 import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import fr.spoonlabs.flacoco.utils.spoon.SpoonBlockInspector;
 
 /**
  * Class for running the coverage runner from test-runner and computing the
@@ -20,52 +43,540 @@ import fr.spoonlabs.flacoco.core.test.method.TestMethod;
  */
 public class CoverageRunner {
 
+	/**
+	 * Executions allowed per level of bisection of a failed shard, enough to isolate two offending test methods
+	 */
+	private static final int BISECTION_RETRIES_PER_LEVEL = 4;
+
 	private Logger logger = Logger.getLogger(CoverageRunner.class);
 
 	private FlacocoConfig config;
 
+	/**
+	 * Index of the classes of the project, shared by the matrices and the executions of this runner
+	 */
+	private ClassIndex classIndex;
+
+	/**
+	 * Inspector of the blocks where exceptions were thrown, shared by the matrices of this runner
+	 */
+	private SpoonBlockInspector blockInspector;
+
+	/**
+	 * Directory of the classes instrumented offline, updated once by the first execution of this runner
+	 */
+	private File instrumentedClassesDirectory;
+
 	public CoverageRunner(FlacocoConfig config) {
+		this(config, new ClassIndex(config), new SpoonBlockInspector(config));
+	}
+
+	/**
+	 * @param classIndex     Index of the classes of the project, which may be shared with other runners as long as
+	 *                       the class files are unchanged
+	 * @param blockInspector Inspector of the blocks where exceptions were thrown, which may be shared with other
+	 *                       runners
+	 */
+	public CoverageRunner(FlacocoConfig config, ClassIndex classIndex, SpoonBlockInspector blockInspector) {
 		this.config = config;
+		this.classIndex = classIndex;
+		this.blockInspector = blockInspector;
 	}
 
 	public CoverageMatrix getCoverageMatrix(List<TestContext> testContexts) {
 		// This matrix stores the results: the execution of tests and the coverage of
 		// that execution on each line
-		CoverageMatrix matrixExecutionResult = new CoverageMatrix(config);
+		CoverageMatrix matrixExecutionResult = new CoverageMatrix(config, classIndex, blockInspector);
 
 		Set<String> testClasses = testContexts.stream().map(TestContext::getTestMethods).flatMap(List::stream)
 				.map(TestMethod::getFullyQualifiedClassName).collect(Collectors.toSet());
 
-		// For each test context
-		int executedTests = 0;
-		int testsFound = 0;
-		for (TestContext testContext : testContexts) {
-			this.logger.debug("Running " + testContext);
+		// Lines not covered by failing tests only matter when zero scores are included
+		boolean failingTestsFirst = (config.isFailingTestsFirst() || config.isTestSelection()) && !config.isIncludeZeros();
+		// Cached coverage from a failing-tests-first execution would be partial
+		CoverageCache cache = config.isCoverageCache() && !failingTestsFirst ? new CoverageCache(config) : null;
 
-			try {
-				// We run the test cases according to the specific test framework strategy
-				CoveredTestResultPerTestMethod result = testContext.getTestFrameworkStrategy().execute(testContext);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.getParallelism()));
+		try {
+			Map<TestMethod, CoveredTestResultPerTestMethod> results;
+			if (failingTestsFirst) {
+				results = executeFailingTestsFirst(executor, testContexts, matrixExecutionResult);
+			} else {
+				// Tests with an up-to-date cached result are not executed
+				List<TestContext> testsToRun = cache == null ? testContexts
+						: testContexts.stream().map(cache::getTestsToRun).collect(Collectors.toList());
+				results = execute(executor, testsToRun, null, false);
+			}
 
+			// For each test context, the results are processed in the original order of the test methods
+			int executedTests = 0;
+			int cachedTests = 0;
+			int testsFound = 0;
+			for (TestContext testContext : testContexts) {
 				// Process each method individually
 				for (TestMethod testMethod : testContext.getTestMethods()) {
+					CoveredTestResultPerTestMethod result = results.get(testMethod);
+					if (result == null) {
+						CoverageFromSingleTestUnit cachedCoverage = cache == null ? null : cache.get(testMethod);
+						// Tests from timed out shards are not accounted for
+						if (cachedCoverage != null) {
+							testsFound++;
+							matrixExecutionResult.processSingleTest(cachedCoverage, testClasses);
+							cachedTests++;
+						}
+						continue;
+					}
 					testsFound++;
 
 					if (result.getCoverageResultsMap().containsKey(testMethod.getFullyQualifiedMethodName())) {
-						matrixExecutionResult.processSingleTest(new CoverageFromSingleTestUnit(testMethod, result),
-								testClasses);
+						CoverageFromSingleTestUnit coverage = new CoverageFromSingleTestUnit(testMethod, result);
+						matrixExecutionResult.processSingleTest(coverage, testClasses);
+						if (cache != null) {
+							cache.put(coverage);
+						}
 						executedTests++;
 					} else {
 						this.logger.warn("Test " + testMethod + " result was not reported by test-runner.");
 					}
 				}
-			} catch (TimeoutException e) {
-				this.logger.error(e);
 			}
+
+			matrixExecutionResult.compact();
+			blockInspector.save();
+			if (cache != null) {
+				cache.save();
+				this.logger.info("Tests loaded from cache: " + cachedTests);
+			}
+			this.logger.info("Tests found: " + testsFound);
+			this.logger.info("Tests executed: " + executedTests);
+			return matrixExecutionResult;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Computes the coverage matrix of the methods rather than of the lines: each location is the first line of a
+	 * covered method, which is much smaller than the coverage of its lines.
+	 * <p>
+	 * Neither the coverage cache nor the failing-tests-first execution are used.
+	 */
+	public CoverageMatrix getMethodCoverageMatrix(List<TestContext> testContexts) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.getParallelism()));
+		try {
+			CoverageMatrix matrixExecutionResult = new CoverageMatrix(config, classIndex, blockInspector);
+			process(matrixExecutionResult, testContexts, execute(executor, testContexts, null, true));
+			matrixExecutionResult.compact();
+			blockInspector.save();
+			this.logger.info("Tests executed for the method coverage: " + matrixExecutionResult.getTests().size());
+			return matrixExecutionResult;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Computes the coverage matrix restricted to the lines of the given classes.
+	 * <p>
+	 * Only the test methods covering one of these classes in the method coverage matrix are executed. The other test
+	 * methods of the method coverage matrix are added with their result, without covering any line.
+	 *
+	 * @param classes              Fully qualified names of the classes whose lines are covered
+	 * @param methodCoverageMatrix Coverage matrix computed by {@link #getMethodCoverageMatrix(List)}
+	 */
+	public CoverageMatrix getCoverageMatrix(List<TestContext> testContexts, Set<String> classes,
+											CoverageMatrix methodCoverageMatrix) {
+		Set<TestMethod> coveringTests = methodCoverageMatrix.getResultExecution().entrySet().stream()
+				.filter(x -> classes.contains(x.getKey().getClassName()))
+				.flatMap(x -> x.getValue().stream())
+				.collect(Collectors.toSet());
+
+		CoverageMatrix matrixExecutionResult = new CoverageMatrix(config, classIndex, blockInspector);
+		for (Map.Entry<TestMethod, Boolean> test : methodCoverageMatrix.getTests().entrySet()) {
+			if (!coveringTests.contains(test.getKey())) {
+				matrixExecutionResult.addTest(test.getKey(), test.getValue());
+			}
+		}
+		if (coveringTests.isEmpty()) {
+			return matrixExecutionResult;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.getParallelism()));
+		try {
+			List<TestContext> testsToRun = filterTestMethods(testContexts, coveringTests::contains);
+			process(matrixExecutionResult, testContexts,
+					execute(executor, testsToRun, String.join(":", classes), false));
+			matrixExecutionResult.compact();
+			blockInspector.save();
+			this.logger.info("Tests executed for the line coverage of " + classes.size() + " classes: "
+					+ coveringTests.size());
+			return matrixExecutionResult;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Executes the given test methods again, and replaces their coverage and their result in the matrix. The other
+	 * test methods keep their coverage and their result.
+	 * <p>
+	 * The given test methods are removed from the matrix first, so that those without a result this time, such as
+	 * the ones timing out or skipped, are no longer accounted for. The matrix then uses the class index and the block
+	 * inspector of this runner, which must have been built after the change of the classes.
+	 *
+	 * @param coverageMatrix Coverage matrix of the test contexts, computed by {@link #getCoverageMatrix(List)}
+	 * @param testMethods    Test methods to execute again
+	 */
+	public void updateCoverageMatrix(CoverageMatrix coverageMatrix, List<TestContext> testContexts,
+									 Set<TestMethod> testMethods) {
+		coverageMatrix.removeTests(testMethods);
+		coverageMatrix.setClasses(classIndex, blockInspector);
+		if (testMethods.isEmpty()) {
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.getParallelism()));
+		try {
+			List<TestContext> testsToRun = filterTestMethods(testContexts, testMethods::contains);
+			Map<TestMethod, CoveredTestResultPerTestMethod> results = execute(executor, testsToRun, null, false);
+			process(coverageMatrix, testContexts, results);
+			// Test methods executing none of the lines are added with their result too
+			for (Map.Entry<TestMethod, CoveredTestResultPerTestMethod> result : results.entrySet()) {
+				String testMethodName = result.getKey().getFullyQualifiedMethodName();
+				if (result.getValue() != null && result.getValue().getCoverageResultsMap().containsKey(testMethodName)
+						&& !result.getValue().getIgnoredTests().contains(testMethodName)) {
+					coverageMatrix.addTest(result.getKey(), result.getValue().getPassingTests().contains(testMethodName));
+				}
+			}
+			coverageMatrix.compact();
+			blockInspector.save();
+			this.logger.info("Tests executed again: " + testMethods.size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Adds the coverage of each test method to the matrix, in the original order of the test methods
+	 */
+	private void process(CoverageMatrix matrixExecutionResult, List<TestContext> testContexts,
+						 Map<TestMethod, CoveredTestResultPerTestMethod> results) {
+		Set<String> testClasses = testContexts.stream().map(TestContext::getTestMethods).flatMap(List::stream)
+				.map(TestMethod::getFullyQualifiedClassName).collect(Collectors.toSet());
+		for (TestContext testContext : testContexts) {
+			for (TestMethod testMethod : testContext.getTestMethods()) {
+				CoveredTestResultPerTestMethod result = results.get(testMethod);
+				// Tests which were not executed, or from timed out shards, are not accounted for
+				if (result == null) {
+					continue;
+				}
+				if (result.getCoverageResultsMap().containsKey(testMethod.getFullyQualifiedMethodName())) {
+					matrixExecutionResult.processSingleTest(new CoverageFromSingleTestUnit(testMethod, result), testClasses);
+				} else {
+					this.logger.warn("Test " + testMethod + " result was not reported by test-runner.");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Executes the test contexts, split into shards which run concurrently, and maps each test method to the result
+	 * of its shard.
+	 * <p>
+	 * Shards that time out or crash are bisected and their halves executed again, until the offending test methods
+	 * are isolated. Those test methods have no result. The retries of a shard are limited to
+	 * {@value #BISECTION_RETRIES_PER_LEVEL} per level of bisection, so that a failure which is not caused by the
+	 * tests, such as a broken classpath, costs a logarithmic number of executions instead of a linear one.
+	 *
+	 * @param jacocoIncludes Includes for the jacoco agent, or null to use the ones computed from the config
+	 * @param methodCoverage True to compute the coverage of the methods rather than of the lines
+	 */
+	private Map<TestMethod, CoveredTestResultPerTestMethod> execute(ExecutorService executor,
+																	List<TestContext> testContexts,
+																	String jacocoIncludes, boolean methodCoverage) {
+		// All shards are submitted upfront, the halves of failed shards are submitted as they fail
+		Deque<Shard> shards = new ArrayDeque<>();
+		for (TestContext testContext : testContexts) {
+			if (testContext.getTestMethods().isEmpty()) {
+				continue;
+			}
+			this.logger.debug("Running " + testContext);
+
+			for (TestContext shard : testContext.splitByTestClass(config.getParallelism())) {
+				// Number of levels of bisection needed to isolate a single test method
+				int levels = 32 - Integer.numberOfLeadingZeros(shard.getTestMethods().size() - 1);
+				shards.add(submit(executor, shard, false, new AtomicInteger(BISECTION_RETRIES_PER_LEVEL * levels),
+						jacocoIncludes, methodCoverage));
+			}
+		}
+
+		Map<TestMethod, CoveredTestResultPerTestMethod> results = new HashMap<>();
+		Throwable firstFailure = null;
+		while (!shards.isEmpty()) {
+			Shard shard = shards.poll();
+			try {
+				CoveredTestResultPerTestMethod result = shard.result.get();
+				for (TestMethod testMethod : shard.testContext.getTestMethods()) {
+					results.put(testMethod, result);
+				}
+			} catch (ExecutionException e) {
+				if (firstFailure == null) {
+					firstFailure = e.getCause();
+				}
+
+				List<TestContext> halves = shard.testContext.bisect();
+				if (halves.size() == 1) {
+					this.logger.error("Test " + shard.testContext.getTestMethods().get(0)
+							+ " is excluded, its execution failed: " + e.getCause().getMessage());
+					continue;
+				}
+				if (shard.remainingRetries.addAndGet(-halves.size()) < 0) {
+					this.logger.error(shard.testContext.getTestMethods().size() + " test methods are excluded, their"
+							+ " execution failed and no retry is left: " + e.getCause().getMessage());
+					continue;
+				}
+
+				this.logger.warn("Execution of " + shard.testContext.getTestMethods().size()
+						+ " test methods failed, retrying them in two halves: " + e.getCause().getMessage());
+				// Halves of a single test class only run their own test methods
+				boolean partialTestClass = shard.partialTestClass || shard.testContext.getTestMethods().stream()
+						.map(TestMethod::getFullyQualifiedClassName).distinct().count() == 1;
+				for (TestContext half : halves) {
+					shards.add(submit(executor, half, partialTestClass, shard.remainingRetries, jacocoIncludes,
+							methodCoverage));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+
+		// When every execution failed, the cause is most likely not in the tests
+		if (results.isEmpty() && firstFailure != null) {
+			throw firstFailure instanceof RuntimeException ? (RuntimeException) firstFailure
+					: new RuntimeException(firstFailure);
+		}
+		return results;
+	}
+
+	private Shard submit(ExecutorService executor, TestContext testContext, boolean partialTestClass,
+						 AtomicInteger remainingRetries, String jacocoIncludes, boolean methodCoverage) {
+		// We run the test cases according to the specific test framework strategy
+		return new Shard(testContext, partialTestClass, remainingRetries, executor.submit(() -> {
+			TestFrameworkStrategy strategy = testContext.getTestFrameworkStrategy();
+			TestRunnerOptions options = strategy.computeTestRunnerOptions(classIndex);
+			if (config.isOfflineInstrumentation() && !config.isTestRunnerInProcess()) {
+				options.setInstrumentedClassesDirectory(getInstrumentedClassesDirectory());
+			}
+			if (jacocoIncludes != null) {
+				options.setJacocoAgentIncludes(jacocoIncludes);
+				// Narrowed includes are not worth instrumenting offline
+				options.setInstrumentedClassesDirectory(null);
+			}
+			if (methodCoverage) {
+				options.setCoverageDetail(ParserOptions.CoverageTransformerDetail.METHOD_DETAIL);
+			}
+			if (config.getTestRunnerTimeoutPerTestInMs() > 0) {
+				options.setTimeoutInMs((int) Math.min(options.getTimeoutInMs(),
+						(long) config.getTestRunnerTimeoutPerTestInMs() * testContext.getTestMethods().size()));
+			}
+			if (partialTestClass) {
+				options.setTestMethodNames(testContext.getTestMethods().stream()
+						.map(x -> x.getFullyQualifiedMethodName().substring(x.getFullyQualifiedMethodName().indexOf('#') + 1))
+						.collect(Collectors.toList()));
+			}
+			return strategy.execute(testContext, options);
+		}));
+	}
+
+	private synchronized File getInstrumentedClassesDirectory() {
+		if (instrumentedClassesDirectory == null) {
+			instrumentedClassesDirectory = new InstrumentationCache(config).update(classIndex);
+		}
+		return instrumentedClassesDirectory;
+	}
+
+	/**
+	 * Executes the test contexts in three phases:
+	 * 1. the outcome of every test is computed, without instrumenting any class;
+	 * 2. the coverage of the test classes containing failing tests is computed;
+	 * 3. the coverage of the other test classes is computed, restricted to the classes covered by failing tests,
+	 * skipping the test methods that cannot cover them if test selection is enabled.
+	 * <p>
+	 * Lines not covered by any failing test are thus left out of the results. Every test method is added to the
+	 * matrix with its outcome from the first phase, so that the number of passing and failing tests is the same as
+	 * with a single execution.
+	 * <p>
+	 * If the coverage cache is enabled, the first two phases reuse the up-to-date cached outcomes and coverage, so
+	 * that the selection can be made before executing any test.
+	 */
+	private Map<TestMethod, CoveredTestResultPerTestMethod> executeFailingTestsFirst(ExecutorService executor,
+																					 List<TestContext> testContexts,
+																					 CoverageMatrix matrix) {
+		// Cached results are only read, as the cache would be partial if updated with this execution
+		CoverageCache cache = config.isCoverageCache() ? new CoverageCache(config) : null;
+
+		Map<TestMethod, Boolean> outcomes = computeOutcomes(executor, testContexts, cache);
+		outcomes.forEach(matrix::addTest);
+		Set<String> failingTestClasses = outcomes.entrySet().stream()
+				.filter(x -> !x.getValue())
+				.map(x -> x.getKey().getFullyQualifiedClassName())
+				.collect(Collectors.toSet());
+
+		List<TestContext> failingTestClassesTests = filterTestMethods(testContexts,
+				x -> failingTestClasses.contains(x.getFullyQualifiedClassName()));
+		List<TestContext> testsToRun = cache == null ? failingTestClassesTests
+				: failingTestClassesTests.stream().map(cache::getTestsToRun).collect(Collectors.toList());
+		Map<TestMethod, CoveredTestResultPerTestMethod> results = execute(executor, testsToRun, null, false);
+
+		Set<String> testClasses = testContexts.stream().map(TestContext::getTestMethods).flatMap(List::stream)
+				.map(TestMethod::getFullyQualifiedClassName).collect(Collectors.toSet());
+		Set<String> coveredClasses = new TreeSet<>();
+		for (TestContext testContext : failingTestClassesTests) {
+			for (TestMethod testMethod : testContext.getTestMethods()) {
+				String testName = testMethod.getFullyQualifiedMethodName();
+				CoveredTestResultPerTestMethod result = results.get(testMethod);
+				CoverageDetailed coverage = null;
+				if (result != null) {
+					if (result.getCoverageResultsMap().containsKey(testName)) {
+						coverage = (CoverageDetailed) result.getCoverageOf(testName);
+					}
+				} else {
+					// Executed results are added to the matrix by the caller, cached ones are added here
+					CoverageFromSingleTestUnit cachedCoverage = cache == null ? null : cache.get(testMethod);
+					if (cachedCoverage != null) {
+						matrix.processSingleTest(cachedCoverage, testClasses);
+						coverage = cachedCoverage.getCov();
+					}
+				}
+
+				if (Boolean.FALSE.equals(outcomes.get(testMethod)) && coverage != null) {
+					for (String className : coverage.getDetailedCoverage().keySet()) {
+						coveredClasses.add(className.replace("/", "."));
+					}
+				}
+			}
+		}
+		this.logger.info("Classes covered by failing tests: " + coveredClasses.size());
+
+		// Without any covered class, every line has a score of 0
+		if (!coveredClasses.isEmpty()) {
+			List<TestContext> otherTests = filterTestMethods(testContexts,
+					x -> !failingTestClasses.contains(x.getFullyQualifiedClassName()));
+			if (config.isTestSelection()) {
+				otherTests = selectTests(otherTests, coveredClasses, cache);
+			}
+			results.putAll(execute(executor, otherTests, String.join(":", coveredClasses), false));
+		}
+		return results;
+	}
+
+	/**
+	 * Computes the outcome of every test method without instrumenting any class. Test methods with an up-to-date
+	 * outcome in the cache are not executed.
+	 *
+	 * @param cache Cache to look for the outcome of the test methods, or null to execute all of them
+	 * @return The outcome of the test methods that were not skipped, true if passing, in the order of the test
+	 * contexts
+	 */
+	private Map<TestMethod, Boolean> computeOutcomes(ExecutorService executor, List<TestContext> testContexts,
+													 CoverageCache cache) {
+		List<TestContext> testsToRun = cache == null ? testContexts
+				: testContexts.stream().map(cache::getTestsToRun).collect(Collectors.toList());
+		Map<TestMethod, CoveredTestResultPerTestMethod> results = execute(executor, testsToRun, "", false);
+
+		Set<String> passingTests = new HashSet<>();
+		Set<String> failingTests = new HashSet<>();
+		for (CoveredTestResultPerTestMethod result : new HashSet<>(results.values())) {
+			passingTests.addAll(result.getPassingTests());
+			result.getFailingTests().forEach(x -> failingTests.add(x.testCaseName));
+		}
+
+		Map<TestMethod, Boolean> outcomes = new LinkedHashMap<>();
+		int cachedTests = 0;
+		for (TestContext testContext : testContexts) {
+			for (TestMethod testMethod : testContext.getTestMethods()) {
+				String testName = testMethod.getFullyQualifiedMethodName();
+				if (results.containsKey(testMethod)) {
+					if (passingTests.contains(testName) || failingTests.contains(testName)) {
+						outcomes.put(testMethod, passingTests.contains(testName));
+					}
+				} else {
+					CoverageFromSingleTestUnit cachedResult = cache == null ? null : cache.get(testMethod);
+					if (cachedResult != null && !cachedResult.isSkip()) {
+						outcomes.put(testMethod, cachedResult.isPassing());
+						cachedTests++;
+					}
+				}
+			}
+		}
+		if (cache != null) {
+			this.logger.info("Test outcomes loaded from cache: " + cachedTests);
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Drops the test methods that cannot cover any of the given classes, since they cannot change a non-zero score.
+	 * The dropped test methods are not executed, but keep their outcome in the matrix.
+	 *
+	 * @param cache Cache to look for the coverage of the test methods, or null to only use the class references
+	 */
+	private List<TestContext> selectTests(List<TestContext> testContexts, Set<String> coveredClasses,
+										  CoverageCache cache) {
+		TestSelector selector = new TestSelector(config, cache);
+		List<TestContext> selectedTests = filterTestMethods(testContexts, x -> selector.isSelected(x, coveredClasses));
+
+		int prunedTests = 0;
+		for (int i = 0; i < testContexts.size(); i++) {
+			prunedTests += testContexts.get(i).getTestMethods().size() - selectedTests.get(i).getTestMethods().size();
+		}
+		this.logger.info("Tests pruned by test selection: " + prunedTests);
+		return selectedTests;
+	}
+
+	/**
+	 * @return New test contexts, with the same strategies, keeping only the accepted test methods
+	 */
+	private List<TestContext> filterTestMethods(List<TestContext> testContexts, Predicate<TestMethod> acceptTestMethod) {
+		List<TestContext> filteredTestContexts = new ArrayList<>();
+		for (TestContext testContext : testContexts) {
+			TestContext filteredTestContext = new TestContext(testContext.getTestFrameworkStrategy());
+			filteredTestContext.addTestMethods(testContext.getTestMethods().stream()
+					.filter(acceptTestMethod)
+					.collect(Collectors.toList()));
+			filteredTestContexts.add(filteredTestContext);
+		}
+		return filteredTestContexts;
+	}
+
+	/**
+	 * Test context being executed
+	 */
+	private static class Shard {
+
+		private final TestContext testContext;
+
+		/**
+		 * True if the test context contains only part of the test methods of its test class
+		 */
+		private final boolean partialTestClass;
+
+		/**
+		 * Retries left to the shard and to the other halves of the same initial shard
+		 */
+		private final AtomicInteger remainingRetries;
+
+		private final Future<CoveredTestResultPerTestMethod> result;
+
+		private Shard(TestContext testContext, boolean partialTestClass, AtomicInteger remainingRetries,
+					  Future<CoveredTestResultPerTestMethod> result) {
+			this.testContext = testContext;
+			this.partialTestClass = partialTestClass;
+			this.remainingRetries = remainingRetries;
+			this.result = result;
 		}
 
-		this.logger.info("Tests found: " + testsFound);
-		this.logger.info("Tests executed: " + executedTests);
-		return matrixExecutionResult;
 	}
 
-}
\ No newline at end of file
+}
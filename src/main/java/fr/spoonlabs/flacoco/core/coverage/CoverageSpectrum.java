@@ -0,0 +1,91 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of the coverage of a set of test methods, from which the suspiciousness of the lines is computed.
+ * <p>
+ * Test methods and lines have dense ids: each line has a row, the set of ids of the test methods that execute it,
+ * and the results of the test methods are a bitset.
+ */
+public interface CoverageSpectrum {
+
+	/**
+	 * @return The covered lines, indexed by their id
+	 */
+	List<Location> getLocations();
+
+	/**
+	 * @return The executed test methods, indexed by their id
+	 */
+	List<TestMethod> getTestMethods();
+
+	/**
+	 * @return The results of the executed test methods, bit is set if the test method with that id is passing
+	 */
+	BitSet getPassing();
+
+	/**
+	 * @return The ids of the test methods that execute the line
+	 */
+	CompressedBitSet getRow(int locationId);
+
+	/**
+	 * @return The number of passing test methods
+	 */
+	int getNumberOfPassingTests();
+
+	/**
+	 * @return The number of failing test methods
+	 */
+	int getNumberOfFailingTests();
+
+	/**
+	 * Counts the passing and failing test methods that execute each line
+	 *
+	 * @param passingExecuting Filled with the number of passing test methods executing each line, indexed by line id
+	 * @param failingExecuting Filled with the number of failing test methods executing each line, indexed by line id
+	 */
+	default void countExecutions(int[] passingExecuting, int[] failingExecuting) {
+		BitSet locationIds = new BitSet();
+		locationIds.set(0, getLocations().size());
+		countExecutions(passingExecuting, failingExecuting, locationIds);
+	}
+
+	/**
+	 * Counts the passing and failing test methods that execute the given lines
+	 *
+	 * @param locationIds Ids of the lines to count, the counts of the other lines are left unchanged
+	 */
+	void countExecutions(int[] passingExecuting, int[] failingExecuting, BitSet locationIds);
+
+	/**
+	 * @param locationId Id of the line
+	 * @param isPassing  True for the passing test methods, false for the failing ones
+	 * @return The passing, or failing, test methods that execute the line
+	 */
+	List<TestMethod> getExecutingTests(int locationId, boolean isPassing);
+
+	/**
+	 * @return Unmodifiable map of the executed test methods and their result, in the order of their ids. True if
+	 * passing, false is failing.
+	 */
+	Map<TestMethod, Boolean> getTests();
+
+	/**
+	 * @return Unmodifiable map of the lines, in the order of their ids, to the set of test methods that execute them
+	 */
+	Map<Location, Set<TestMethod>> getResultExecution();
+
+	/**
+	 * @return The failing test methods
+	 */
+	Set<TestMethod> getFailingTestCases();
+
+}
@@ -0,0 +1,161 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Coverage spectrum whose rows are read from a memory-mapped file written by {@link CoverageMatrixWriter}.
+ * <p>
+ * The rows are mapped in chunks of at most 2GB, each row being in a single chunk. Only absolute reads are made on the
+ * chunks, so the matrix can be scored concurrently.
+ */
+class MappedCoverageMatrix implements CoverageSpectrum {
+
+	private List<TestMethod> testMethods;
+
+	private BitSet passing;
+
+	private List<Location> locations;
+
+	/**
+	 * Mapped chunks of the rows
+	 */
+	private ByteBuffer[] chunks;
+
+	/**
+	 * Offset of the first row of each chunk, from the start of the rows
+	 */
+	private long[] chunkOffsets;
+
+	/**
+	 * Offset of each row, from the start of the rows
+	 */
+	private long[] rowOffsets;
+
+	MappedCoverageMatrix(List<TestMethod> testMethods, BitSet passing, List<Location> locations, ByteBuffer[] chunks,
+						 long[] chunkOffsets, long[] rowOffsets) {
+		this.testMethods = testMethods;
+		this.passing = passing;
+		this.locations = locations;
+		this.chunks = chunks;
+		this.chunkOffsets = chunkOffsets;
+		this.rowOffsets = rowOffsets;
+	}
+
+	/**
+	 * Reads all the rows from the file
+	 */
+	@Override
+	public Map<Location, Set<TestMethod>> getResultExecution() {
+		Map<Location, Set<TestMethod>> resultExecution = new LinkedHashMap<>();
+		for (int locationId = 0; locationId < locations.size(); locationId++) {
+			Set<TestMethod> executingTests = new LinkedHashSet<>();
+			forEachTest(locationId, testId -> executingTests.add(testMethods.get(testId)));
+			resultExecution.put(locations.get(locationId), Collections.unmodifiableSet(executingTests));
+		}
+		return Collections.unmodifiableMap(resultExecution);
+	}
+
+	@Override
+	public Map<TestMethod, Boolean> getTests() {
+		Map<TestMethod, Boolean> tests = new LinkedHashMap<>();
+		for (int testId = 0; testId < testMethods.size(); testId++) {
+			tests.put(testMethods.get(testId), passing.get(testId));
+		}
+		return Collections.unmodifiableMap(tests);
+	}
+
+	@Override
+	public List<Location> getLocations() {
+		return Collections.unmodifiableList(locations);
+	}
+
+	@Override
+	public int getNumberOfPassingTests() {
+		return passing.cardinality();
+	}
+
+	@Override
+	public int getNumberOfFailingTests() {
+		return testMethods.size() - passing.cardinality();
+	}
+
+	@Override
+	public void countExecutions(int[] passingExecuting, int[] failingExecuting, BitSet locationIds) {
+		long[] passingWords = passing.toLongArray();
+		for (int locationId = locationIds.nextSetBit(0); locationId >= 0 && locationId < locations.size();
+			 locationId = locationIds.nextSetBit(locationId + 1)) {
+			int chunk = getChunk(locationId);
+			int position = getPosition(chunk, locationId);
+			passingExecuting[locationId] = CompressedBitSet.intersectionCardinality(chunks[chunk], position,
+					passingWords);
+			failingExecuting[locationId] = CompressedBitSet.cardinality(chunks[chunk], position)
+					- passingExecuting[locationId];
+		}
+	}
+
+	@Override
+	public List<TestMethod> getExecutingTests(int locationId, boolean isPassing) {
+		List<TestMethod> executingTests = new ArrayList<>();
+		forEachTest(locationId, testId -> {
+			if (passing.get(testId) == isPassing) {
+				executingTests.add(testMethods.get(testId));
+			}
+		});
+		return executingTests;
+	}
+
+	@Override
+	public Set<TestMethod> getFailingTestCases() {
+		Set<TestMethod> failing = new HashSet<>();
+		for (int testId = passing.nextClearBit(0); testId < testMethods.size(); testId = passing.nextClearBit(testId + 1)) {
+			failing.add(testMethods.get(testId));
+		}
+		return failing;
+	}
+
+	@Override
+	public List<TestMethod> getTestMethods() {
+		return Collections.unmodifiableList(testMethods);
+	}
+
+	@Override
+	public BitSet getPassing() {
+		return (BitSet) passing.clone();
+	}
+
+	@Override
+	public CompressedBitSet getRow(int locationId) {
+		CompressedBitSet row = new CompressedBitSet();
+		forEachTest(locationId, row::add);
+		return row;
+	}
+
+	/**
+	 * @return The index of the chunk of the row
+	 */
+	private int getChunk(int locationId) {
+		int chunk = Arrays.binarySearch(chunkOffsets, rowOffsets[locationId]);
+		return chunk >= 0 ? chunk : -chunk - 2;
+	}
+
+	/**
+	 * @return The position of the row in its chunk
+	 */
+	private int getPosition(int chunk, int locationId) {
+		return (int) (rowOffsets[locationId] - chunkOffsets[chunk]);
+	}
+
+	/**
+	 * Calls the consumer with the ids of the test methods executing the line, in increasing order
+	 */
+	private void forEachTest(int locationId, IntConsumer consumer) {
+		int chunk = getChunk(locationId);
+		CompressedBitSet.forEach(chunks[chunk], getPosition(chunk, locationId), consumer);
+	}
+
+}
@@ -0,0 +1,25 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table of the class names, and other strings, seen during a run, so that equal strings share a single instance
+ */
+public class SymbolTable {
+
+	private Map<String, String> symbols = new HashMap<>();
+
+	/**
+	 * @return The instance of the table equal to the given string, which is added to the table if there is none
+	 */
+	public String intern(String symbol) {
+		String interned = symbols.putIfAbsent(symbol, symbol);
+		return interned == null ? symbol : interned;
+	}
+
+	public int size() {
+		return symbols.size();
+	}
+
+}
@@ -0,0 +1,57 @@
+package fr.spoonlabs.flacoco.core.coverage.cache;
+
+import eu.stamp_project.testrunner.listener.impl.CoverageDetailed;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Coverage and outcome of a single test method, as stored in the CoverageCache.
+ */
+public class CachedTestResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private CoverageDetailed cov;
+
+	private boolean isPassing;
+
+	private boolean isSkip;
+
+	private String stackTrace;
+
+	/**
+	 * Fingerprint of the test class and of every class covered by the test, at the time it was run
+	 */
+	private Map<String, String> fingerprints;
+
+	public CachedTestResult(CoverageDetailed cov, boolean isPassing, boolean isSkip, String stackTrace,
+							Map<String, String> fingerprints) {
+		this.cov = cov;
+		this.isPassing = isPassing;
+		this.isSkip = isSkip;
+		this.stackTrace = stackTrace;
+		this.fingerprints = fingerprints;
+	}
+
+	public CoverageDetailed getCov() {
+		return cov;
+	}
+
+	public boolean isPassing() {
+		return isPassing;
+	}
+
+	public boolean isSkip() {
+		return isSkip;
+	}
+
+	public String getStackTrace() {
+		return stackTrace;
+	}
+
+	public Map<String, String> getFingerprints() {
+		return fingerprints;
+	}
+
+}
@@ -0,0 +1,217 @@
+package fr.spoonlabs.flacoco.core.coverage.cache;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.CoverageFromSingleTestUnit;
+import fr.spoonlabs.flacoco.core.coverage.selection.ClassReferences;
+import fr.spoonlabs.flacoco.core.test.TestContext;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import fr.spoonlabs.flacoco.utils.HashUtils;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * On-disk cache, stored in the workspace, of the coverage and outcome of each test method.
+ * <p>
+ * A cached result is reused as long as the class files of its test class, of every class it covered, and of every
+ * class of the test binary directories reachable from its test class, such as base classes and fixtures, are
+ * unchanged. The whole cache is discarded when the classpath or the coverage options change.
+ */
+public class CoverageCache {
+
+	private static final String CACHE_FILE_NAME = "flacoco-coverage.cache";
+
+	private Logger logger = Logger.getLogger(CoverageCache.class);
+
+	private FlacocoConfig config;
+
+	private File cacheFile;
+
+	/**
+	 * Key is the fully qualified method name of the test
+	 */
+	private Map<String, CachedTestResult> entries;
+
+	/**
+	 * Fingerprints of the class files computed during this run, key is the fully qualified class name
+	 */
+	private Map<String, String> fingerprints = new HashMap<>();
+
+	private ClassReferences classReferences;
+
+	public CoverageCache(FlacocoConfig config) {
+		this.config = config;
+		this.cacheFile = new File(config.getWorkspace(), CACHE_FILE_NAME);
+		this.classReferences = new ClassReferences(config);
+		this.entries = load();
+	}
+
+	/**
+	 * @return The cached result of the test method, or null if there is none or it is outdated
+	 */
+	public CoverageFromSingleTestUnit get(TestMethod testMethod) {
+		CachedTestResult entry = entries.get(testMethod.getFullyQualifiedMethodName());
+		if (entry == null) {
+			return null;
+		}
+
+		for (Map.Entry<String, String> fingerprint : entry.getFingerprints().entrySet()) {
+			if (!fingerprint.getValue().equals(getFingerprint(fingerprint.getKey()))) {
+				return null;
+			}
+		}
+
+		return new CoverageFromSingleTestUnit(testMethod, entry.getCov(), entry.isPassing(), entry.isSkip(),
+				entry.getStackTrace());
+	}
+
+	/**
+	 * Stores the result of a test method that was just executed. Results of test classes whose class references
+	 * cannot be read are not stored, since their changes could not be detected.
+	 */
+	public void put(CoverageFromSingleTestUnit coverage) {
+		Map<String, String> entryFingerprints = new HashMap<>();
+		String testClass = coverage.getTestMethod().getFullyQualifiedClassName();
+		Set<String> reachableClasses = classReferences.getReachableClasses(testClass);
+		if (reachableClasses == null) {
+			logger.debug("Not caching " + coverage.getTestMethod() + ", its class references could not be read");
+			return;
+		}
+		// Classes of the test binary directories are not covered unless coverTests is set
+		for (String className : reachableClasses) {
+			if (isTestBinaryClass(className)) {
+				entryFingerprints.put(className, getFingerprint(className));
+			}
+		}
+		entryFingerprints.put(testClass, getFingerprint(testClass));
+		if (coverage.getCov() != null) {
+			for (String coveredClass : coverage.getCov().getDetailedCoverage().keySet()) {
+				String className = coveredClass.replace("/", ".");
+				entryFingerprints.put(className, getFingerprint(className));
+			}
+		}
+
+		entries.put(coverage.getTestMethod().getFullyQualifiedMethodName(), new CachedTestResult(
+				coverage.getCov(), coverage.isPassing(), coverage.isSkip(), coverage.getStackTrace(), entryFingerprints));
+	}
+
+	/**
+	 * Computes the test methods that need to be executed. Test classes are executed as a whole, so all the methods
+	 * of a test class are kept as soon as one of them has no up-to-date cached result.
+	 *
+	 * @return A new TestContext, with the same TestFrameworkStrategy, containing the test methods to execute
+	 */
+	public TestContext getTestsToRun(TestContext testContext) {
+		Set<String> outdatedClasses = testContext.getTestMethods().stream()
+				.filter(x -> get(x) == null)
+				.map(TestMethod::getFullyQualifiedClassName)
+				.collect(Collectors.toSet());
+
+		TestContext testsToRun = new TestContext(testContext.getTestFrameworkStrategy());
+		testsToRun.addTestMethods(testContext.getTestMethods().stream()
+				.filter(x -> outdatedClasses.contains(x.getFullyQualifiedClassName()))
+				.collect(Collectors.toList()));
+		return testsToRun;
+	}
+
+	/**
+	 * Writes the cache to the workspace
+	 */
+	public void save() {
+		try (ObjectOutputStream outputStream = new ObjectOutputStream(
+				new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+			outputStream.writeObject(computeConfigurationKey());
+			outputStream.writeObject(entries);
+		} catch (IOException e) {
+			logger.warn("Could not save the coverage cache to " + cacheFile, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, CachedTestResult> load() {
+		if (!cacheFile.exists()) {
+			return new HashMap<>();
+		}
+
+		try (ObjectInputStream inputStream = new ObjectInputStream(
+				new BufferedInputStream(new FileInputStream(cacheFile)))) {
+			if (!computeConfigurationKey().equals(inputStream.readObject())) {
+				logger.info("Configuration changed, discarding the coverage cache.");
+				return new HashMap<>();
+			}
+			return (Map<String, CachedTestResult>) inputStream.readObject();
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			logger.warn("Could not load the coverage cache from " + cacheFile + ", discarding it.", e);
+			return new HashMap<>();
+		}
+	}
+
+	/**
+	 * Options which, when changed, invalidate every cached result
+	 */
+	private String computeConfigurationKey() {
+		return String.join("\n",
+				config.getClasspath(),
+				String.valueOf(config.getCustomJUnitClasspath()),
+				String.valueOf(config.getCustomJacocoClasspath()),
+				String.valueOf(config.getBinJavaDir()),
+				String.valueOf(config.getBinTestDir()),
+				String.valueOf(config.isCoverTests()),
+				String.valueOf(new TreeSet<>(config.getJacocoIncludes())),
+				String.valueOf(new TreeSet<>(config.getJacocoExcludes())),
+				String.valueOf(config.getTestRunnerJVMArgs())
+		);
+	}
+
+	private boolean isTestBinaryClass(String className) {
+		String path = className.replace('.', File.separatorChar) + ".class";
+		return config.getBinTestDir().stream().anyMatch(x -> new File(x, path).isFile());
+	}
+
+	/**
+	 * Computes the fingerprint of a class as the hash of its class file and of the class files of its nested classes.
+	 * Classes which are not found in the binary directories have an empty fingerprint.
+	 */
+	private String getFingerprint(String className) {
+		return fingerprints.computeIfAbsent(className, this::computeFingerprint);
+	}
+
+	private String computeFingerprint(String className) {
+		List<String> directories = new ArrayList<>(config.getBinJavaDir());
+		directories.addAll(config.getBinTestDir());
+
+		String path = className.replace('.', File.separatorChar);
+		for (String directory : directories) {
+			File classFile = new File(directory, path + ".class");
+			if (!classFile.exists()) {
+				continue;
+			}
+
+			String nestedPrefix = classFile.getName().replace(".class", "$");
+			File[] nestedClassFiles = classFile.getParentFile().listFiles((dir, name) -> name.startsWith(nestedPrefix));
+			List<File> classFiles = new ArrayList<>();
+			classFiles.add(classFile);
+			if (nestedClassFiles != null) {
+				Arrays.sort(nestedClassFiles);
+				classFiles.addAll(Arrays.asList(nestedClassFiles));
+			}
+
+			try {
+				MessageDigest digest = HashUtils.newSha256();
+				for (File file : classFiles) {
+					digest.update(file.getName().getBytes());
+					digest.update(Files.readAllBytes(file.toPath()));
+				}
+				return HashUtils.toHex(digest);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return "";
+	}
+
+}
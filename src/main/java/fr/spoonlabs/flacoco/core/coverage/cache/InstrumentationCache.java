@@ -0,0 +1,165 @@
+package fr.spoonlabs.flacoco.core.coverage.cache;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.ClassIndex;
+import fr.spoonlabs.flacoco.utils.HashUtils;
+import org.apache.log4j.Logger;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
+import org.jacoco.core.runtime.WildcardMatcher;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache, stored in the workspace, of the class files of the binary directories instrumented offline by jacoco.
+ * <p>
+ * Each class file is only instrumented again when its content changes. The whole cache is discarded when the
+ * binary directories, the includes or the excludes change.
+ */
+public class InstrumentationCache {
+
+	private static final String CACHE_DIRECTORY_NAME = "flacoco-instrumented";
+
+	private static final String INDEX_FILE_NAME = "flacoco-instrumented.index";
+
+	private static final String CONFIGURATION_KEY = "#configuration";
+
+	/**
+	 * Stamps of the binary directories when each cache was last updated in this JVM, key is the cache directory
+	 */
+	private static final Map<File, String> upToDateStamps = new HashMap<>();
+
+	private Logger logger = Logger.getLogger(InstrumentationCache.class);
+
+	private FlacocoConfig config;
+
+	private File cacheDirectory;
+
+	private File indexFile;
+
+	public InstrumentationCache(FlacocoConfig config) {
+		this.config = config;
+		this.cacheDirectory = new File(config.getWorkspace(), CACHE_DIRECTORY_NAME);
+		this.indexFile = new File(config.getWorkspace(), INDEX_FILE_NAME);
+	}
+
+	/**
+	 * Instruments the classes that jacoco covers, unless they already are: the classes of binJavaDir, and of
+	 * binTestDir when tests are covered, matching the jacoco includes and excludes of the config
+	 *
+	 * @param classIndex Index of the classes of the project, whose stamp tells if a class file changed since the
+	 *                   last update
+	 * @return The directory of the instrumented class files
+	 */
+	public File update(ClassIndex classIndex) {
+		List<String> directories = new ArrayList<>(config.getBinJavaDir());
+		if (config.isCoverTests()) {
+			directories.addAll(config.getBinTestDir());
+		}
+		String includes = config.getJacocoIncludes().isEmpty() ? "*" : String.join(":", config.getJacocoIncludes());
+		String excludes = String.join(":", config.getJacocoExcludes());
+		String configurationKey = String.join("\n", String.valueOf(directories), includes, excludes);
+
+		synchronized (upToDateStamps) {
+			// Skips hashing every class file when nothing changed since the last update
+			String stamp = configurationKey + "\n" + classIndex.getStamp();
+			if (stamp.equals(upToDateStamps.get(cacheDirectory)) && cacheDirectory.isDirectory()) {
+				return cacheDirectory;
+			}
+
+			Properties index = loadIndex(configurationKey);
+			Properties newIndex = new Properties();
+			newIndex.setProperty(CONFIGURATION_KEY, configurationKey);
+
+			WildcardMatcher includesMatcher = new WildcardMatcher(includes);
+			WildcardMatcher excludesMatcher = new WildcardMatcher(excludes);
+			Instrumenter instrumenter = new Instrumenter(new OfflineInstrumentationAccessGenerator());
+			int instrumented = 0;
+			try {
+				for (String directory : directories) {
+					for (Path classFile : listClassFiles(directory)) {
+						String path = classFile.toString().replace(File.separatorChar, '/');
+						String className = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+						// The first class file of the classpath is the one loaded
+						if (newIndex.containsKey(path)
+								|| !includesMatcher.matches(className) || excludesMatcher.matches(className)) {
+							continue;
+						}
+
+						byte[] bytes = Files.readAllBytes(new File(directory, classFile.toString()).toPath());
+						String hash = HashUtils.sha256(bytes);
+						File target = new File(cacheDirectory, classFile.toString());
+						if (!hash.equals(index.getProperty(path)) || !target.isFile()) {
+							target.getParentFile().mkdirs();
+							Files.write(target.toPath(), instrumenter.instrument(bytes, className));
+							instrumented++;
+						}
+						newIndex.setProperty(path, hash);
+					}
+				}
+
+				// Removes the class files which are no longer instrumented
+				for (String path : index.stringPropertyNames()) {
+					if (!newIndex.containsKey(path)) {
+						new File(cacheDirectory, path).delete();
+					}
+				}
+
+				try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(indexFile))) {
+					newIndex.store(outputStream, null);
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+
+			this.logger.debug("Classes instrumented offline: " + instrumented + " out of " + (newIndex.size() - 1));
+			upToDateStamps.put(cacheDirectory, stamp);
+			return cacheDirectory;
+		}
+	}
+
+	/**
+	 * @return The hashes of the instrumented class files, empty if the configuration changed
+	 */
+	private Properties loadIndex(String configurationKey) {
+		Properties index = new Properties();
+		if (!indexFile.exists()) {
+			return index;
+		}
+
+		try (InputStream inputStream = new BufferedInputStream(new FileInputStream(indexFile))) {
+			index.load(inputStream);
+		} catch (IOException e) {
+			this.logger.warn("Could not load the instrumentation cache index from " + indexFile + ", discarding it.", e);
+			index.clear();
+		}
+		if (!configurationKey.equals(index.getProperty(CONFIGURATION_KEY))) {
+			this.logger.info("Configuration changed, discarding the instrumentation cache.");
+			index.clear();
+		}
+		index.remove(CONFIGURATION_KEY);
+		return index;
+	}
+
+	/**
+	 * @return The paths of the class files, relative to the directory
+	 */
+	private static List<Path> listClassFiles(String directory) throws IOException {
+		File root = new File(directory);
+		if (!root.isDirectory()) {
+			return Collections.emptyList();
+		}
+		try (Stream<Path> paths = Files.walk(root.toPath())) {
+			return paths.filter(x -> x.toString().endsWith(".class") && Files.isRegularFile(x))
+					.map(x -> root.toPath().relativize(x))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import eu.stamp_project.testrunner.listener.Coverage;
+import eu.stamp_project.testrunner.listener.CoverageTransformer;
+import eu.stamp_project.testrunner.listener.impl.CoverageDetailed;
+import eu.stamp_project.testrunner.listener.impl.CoverageFromClass;
+import eu.stamp_project.testrunner.listener.impl.CoverageInformation;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same as test-runner's CoverageCollectorDetailedCompressed, but the original class files are read from the binary
+ * directories rather than from the classloader of test-runner. That classloader cannot see them when running in
+ * process, and finds the instrumented class files first when they are on the classpath.
+ * <p>
+ * At the method granularity, each covered method is reported as a single line, its first one, covered by the number
+ * of instructions covered in the whole method.
+ * <p>
+ * This class is copied without flacoco into the classpath of the forked JVM: it must only depend on test-runner,
+ * jacoco and the JDK.
+ */
+public class BinariesCoverageTransformer implements CoverageTransformer {
+
+	private List<String> binaries;
+
+	private boolean methodGranularity;
+
+	/**
+	 * Classloader to look for the class files which are not in the binary directories
+	 */
+	private transient ClassLoader classLoader;
+
+	/**
+	 * @param binaries    Directories of the original class files
+	 * @param classLoader Classloader to look for the other class files
+	 */
+	public BinariesCoverageTransformer(List<String> binaries, ClassLoader classLoader) {
+		this(binaries, classLoader, false);
+	}
+
+	/**
+	 * @param binaries          Directories of the original class files
+	 * @param classLoader       Classloader to look for the other class files
+	 * @param methodGranularity True to report the covered methods rather than the covered lines
+	 */
+	public BinariesCoverageTransformer(List<String> binaries, ClassLoader classLoader, boolean methodGranularity) {
+		this.binaries = binaries;
+		this.classLoader = classLoader;
+		this.methodGranularity = methodGranularity;
+	}
+
+	@Override
+	public Coverage transformJacocoObject(ExecutionDataStore executionData, List<String> classesDirectory) {
+		CoverageBuilder coverageBuilder = new CoverageBuilder();
+		Analyzer analyzer = new Analyzer(executionData, coverageBuilder);
+		try {
+			for (ExecutionData data : executionData.getContents()) {
+				File classFile = findClassFile(data.getName());
+				if (classFile != null) {
+					analyzer.analyzeClass(Files.readAllBytes(classFile.toPath()), data.getName());
+				} else {
+					try (InputStream inputStream = classLoader.getResourceAsStream(data.getName() + ".class")) {
+						if (inputStream != null) {
+							analyzer.analyzeClass(inputStream, data.getName());
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		CoverageInformation coverageInformation = new CoverageInformation();
+		for (IClassCoverage classCoverage : coverageBuilder.getClasses()) {
+			if (classCoverage.getInstructionCounter().getCoveredCount() <= 0) {
+				continue;
+			}
+			Map<Integer, Integer> covered = new HashMap<>();
+			for (IMethodCoverage methodCoverage : classCoverage.getMethods()) {
+				if ("<clinit>".equals(methodCoverage.getName())) {
+					continue;
+				}
+				if (methodGranularity) {
+					int coveredCount = methodCoverage.getInstructionCounter().getCoveredCount();
+					if (coveredCount > 0) {
+						covered.put(methodCoverage.getFirstLine(), coveredCount);
+					}
+					continue;
+				}
+				for (int line = methodCoverage.getFirstLine(); line <= methodCoverage.getLastLine() + 1; line++) {
+					int coveredCount = methodCoverage.getLine(line).getInstructionCounter().getCoveredCount();
+					if (coveredCount > 0) {
+						covered.put(line, coveredCount);
+					}
+				}
+			}
+			coverageInformation.put(classCoverage.getName(), new CoverageFromClass(classCoverage.getName(),
+					classCoverage.getPackageName(), classCoverage.getFirstLine(), classCoverage.getLastLine(), covered));
+		}
+		return new CoverageDetailed(coverageInformation);
+	}
+
+	private File findClassFile(String className) {
+		for (String directory : binaries) {
+			File classFile = new File(directory, className + ".class");
+			if (classFile.isFile()) {
+				return classFile;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,64 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.test.TestContext;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs JUnit4 or JUnit5 tests in the flacoco JVM with {@link TestRunnerInProcess}, instead of forking a JVM.
+ * <p>
+ * A test thread that times out cannot be stopped and keeps running. The execution that timed out, and every following
+ * execution of the strategy, such as the bisected halves of the execution, are thus run in forked JVMs, so that at
+ * most one test thread is leaked.
+ */
+public class InProcessStrategy extends TestFrameworkStrategy {
+
+	private static final Logger logger = Logger.getLogger(InProcessStrategy.class);
+
+	private boolean jUnit5;
+
+	/**
+	 * Strategy running the tests in forked JVMs once an execution timed out, null until then
+	 */
+	private volatile TestFrameworkStrategy forkStrategy;
+
+	public InProcessStrategy(FlacocoConfig config, boolean jUnit5) {
+		super(config);
+		this.jUnit5 = jUnit5;
+	}
+
+	@Override
+	public CoveredTestResultPerTestMethod execute(TestContext testContext, TestRunnerOptions options) throws TimeoutException {
+		if (forkStrategy != null) {
+			return forkStrategy.execute(testContext, options);
+		}
+
+		logger.debug("Running in process " + testContext);
+		options.setJUnit5Mode(jUnit5);
+
+		try {
+			return new TestRunnerInProcess(options).run(
+					this.computeInProcessClasspath(),
+					config.getBinJavaDir(),
+					config.getBinTestDir(),
+					testContext.getTestMethods().stream().map(TestMethod::getFullyQualifiedClassName).distinct().toArray(String[]::new)
+			);
+		} catch (TimeoutException e) {
+			logger.warn(e.getMessage() + " The test thread is left running, the tests are now run in forked JVMs.");
+			forkStrategy = jUnit5 ? new JUnit5Strategy(config) : new JUnit4Strategy(config);
+			return forkStrategy.execute(testContext, options);
+		}
+	}
+
+	/**
+	 * JUnit and jacoco are provided by flacoco itself, only the classpath of the project is needed
+	 */
+	private String computeInProcessClasspath() {
+		return config.getClasspath() == null ? "" : config.getClasspath();
+	}
+
+}
@@ -1,6 +1,5 @@
 package fr.spoonlabs.flacoco.core.coverage.framework;
 
-import eu.stamp_project.testrunner.EntryPoint;
 import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
 import fr.spoonlabs.flacoco.core.test.TestContext;
@@ -20,16 +19,14 @@ public class JUnit4Strategy extends TestFrameworkStrategy {
 	}
 
 	@Override
-	public CoveredTestResultPerTestMethod execute(TestContext testContext) throws TimeoutException {
+	public CoveredTestResultPerTestMethod execute(TestContext testContext, TestRunnerOptions options) throws TimeoutException {
 		logger.debug("Running " + testContext);
-		this.setupTestRunnerEntryPoint();
 
-		return EntryPoint.runOnlineCoveredTestResultPerTestMethods(
+		return new TestRunnerFork(options).run(
 				this.computeClasspath(),
 				config.getBinJavaDir(),
 				config.getBinTestDir(),
-				testContext.getTestMethods().stream().map(TestMethod::getFullyQualifiedClassName).distinct().toArray(String[]::new),
-				new String[0]
+				testContext.getTestMethods().stream().map(TestMethod::getFullyQualifiedClassName).distinct().toArray(String[]::new)
 		);
 	}
 
@@ -1,6 +1,5 @@
 package fr.spoonlabs.flacoco.core.coverage.framework;
 
-import eu.stamp_project.testrunner.EntryPoint;
 import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
 import fr.spoonlabs.flacoco.core.test.TestContext;
@@ -20,19 +19,16 @@ public class JUnit5Strategy extends TestFrameworkStrategy {
 	}
 
 	@Override
-	public CoveredTestResultPerTestMethod execute(TestContext testContext) throws TimeoutException {
+	public CoveredTestResultPerTestMethod execute(TestContext testContext, TestRunnerOptions options) throws TimeoutException {
 		logger.debug("Running " + testContext);
-		this.setupTestRunnerEntryPoint();
-
 		// test-runner needs a flag for JUnit5 tests
-		EntryPoint.jUnit5Mode = true;
+		options.setJUnit5Mode(true);
 
-		return EntryPoint.runOnlineCoveredTestResultPerTestMethods(
+		return new TestRunnerFork(options).run(
 				this.computeClasspath(),
 				config.getBinJavaDir(),
 				config.getBinTestDir(),
-				testContext.getTestMethods().stream().map(TestMethod::getFullyQualifiedClassName).distinct().toArray(String[]::new),
-				new String[0]
+				testContext.getTestMethods().stream().map(TestMethod::getFullyQualifiedClassName).distinct().toArray(String[]::new)
 		);
 	}
 
@@ -0,0 +1,365 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import fr.spoonlabs.flacoco.core.coverage.ClassIndex;
+import org.apache.log4j.Logger;
+import org.jacoco.core.runtime.WildcardMatcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Compiles the classes of the binary directories, from the {@link ClassIndex} of the run, into jacoco include and
+ * exclude patterns, made of package wildcards and class names, rather than the list of every class name.
+ * <p>
+ * The patterns are the fewest package wildcards, class names, and class name suffixes of a package, e.g. the
+ * pkg.*Test of test classes sharing the package of the classes they test, that match exactly the classes of the
+ * binary directories among all the classes of the classpath of the tests, which is checked before they are returned.
+ * Classes which are on none of these directories or jars, e.g. generated at runtime, may be matched by a package
+ * wildcard.
+ * <p>
+ * The patterns of the last compilation are cached, along with the fingerprint of the directories and jars they were
+ * compiled from.
+ */
+public class JacocoIncludesCompiler {
+
+	private static final Logger logger = Logger.getLogger(JacocoIncludesCompiler.class);
+
+	/**
+	 * Last compiled patterns, key is the fingerprint of the directories and classpath
+	 */
+	private static final Map<String, Patterns> cache = new HashMap<>();
+
+	private JacocoIncludesCompiler() {
+	}
+
+	/**
+	 * @param classIndex Index of the binary directories
+	 * @param coverTests True if the classes of the test binary directories are instrumented
+	 * @param classpath  Entries of the classpath of the tests, directories or jars
+	 * @return Patterns matching exactly the classes to instrument among the classes of the classpath
+	 */
+	public static Patterns compile(ClassIndex classIndex, boolean coverTests, List<String> classpath) {
+		// The binary directories are already indexed
+		Set<String> indexedDirectories = classIndex.getDirectories().stream()
+				.map(x -> new File(x).getAbsolutePath())
+				.collect(Collectors.toSet());
+		List<String> otherEntries = classpath.stream()
+				.filter(x -> !indexedDirectories.contains(new File(x).getAbsolutePath()))
+				.collect(Collectors.toList());
+
+		String fingerprint = String.join(File.pathSeparator, classIndex.getDirectories()) + "\n" + coverTests + "\n"
+				+ String.join(File.pathSeparator, classpath) + "\n" + classIndex.getStamp() + "\n"
+				+ computeStamp(otherEntries);
+		synchronized (cache) {
+			Patterns patterns = cache.get(fingerprint);
+			if (patterns == null) {
+				Set<String> classes = new HashSet<>(classIndex.getClasses());
+				Set<String> otherClasses = listClasses(otherEntries);
+				if (coverTests) {
+					classes.addAll(classIndex.getTestClasses());
+				} else {
+					otherClasses.addAll(classIndex.getTestClasses());
+				}
+				patterns = compile(classes, otherClasses);
+				cache.clear();
+				cache.put(fingerprint, patterns);
+			}
+			return patterns;
+		}
+	}
+
+	/**
+	 * @param classes      Fully qualified names of the classes to instrument
+	 * @param otherClasses Fully qualified names of the other classes, which must not be instrumented
+	 */
+	static Patterns compile(Set<String> classes, Set<String> otherClasses) {
+		Package root = new Package("");
+		for (String className : classes) {
+			root.add(className, true);
+		}
+		for (String className : otherClasses) {
+			if (!classes.contains(className)) {
+				root.add(className, false);
+			}
+		}
+
+		Patterns patterns = root.unmatched();
+		if (!patterns.isEquivalent(classes, otherClasses)) {
+			logger.warn("Compiled jacoco patterns do not match the scanned classes, using their names instead.");
+			patterns = new Patterns(new ArrayList<>(new TreeSet<>(classes)), new ArrayList<>());
+		}
+		logger.debug("Compiled " + classes.size() + " classes into " + patterns.getIncludes().size()
+				+ " jacoco include and " + patterns.getExcludes().size() + " exclude patterns");
+		return patterns;
+	}
+
+	/**
+	 * @return The fully qualified names of the classes of the directories and jars
+	 */
+	private static Set<String> listClasses(List<String> classpath) {
+		Set<String> classes = new HashSet<>();
+		for (String entry : classpath) {
+			File file = new File(entry);
+			try {
+				if (file.isDirectory()) {
+					try (Stream<Path> paths = Files.walk(file.toPath())) {
+						paths.filter(x -> x.toString().endsWith(".class"))
+								.map(x -> toClassName(file.toPath().relativize(x).toString().replace(File.separatorChar, '/')))
+								.forEach(classes::add);
+					}
+				} else if (file.isFile() && entry.endsWith(".jar")) {
+					try (ZipFile zipFile = new ZipFile(file)) {
+						Enumeration<? extends ZipEntry> entries = zipFile.entries();
+						while (entries.hasMoreElements()) {
+							String name = entries.nextElement().getName();
+							if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+								classes.add(toClassName(name));
+							}
+						}
+					}
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return classes;
+	}
+
+	private static String toClassName(String path) {
+		return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+	}
+
+	/**
+	 * @return A value that changes whenever a class file or a jar is added, removed or modified
+	 */
+	private static long computeStamp(List<String> classpath) {
+		long stamp = 1;
+		for (String entry : classpath) {
+			File file = new File(entry);
+			if (file.isDirectory()) {
+				stamp = 31 * stamp + TestRunnerWorkerPool.computeStamp(Collections.singletonList(entry));
+			} else {
+				stamp = 31 * stamp + file.lastModified();
+				stamp = 31 * stamp + file.length();
+			}
+		}
+		return stamp;
+	}
+
+	/**
+	 * Include and exclude patterns of the jacoco agent: a class is instrumented if it matches an include pattern and
+	 * no exclude pattern
+	 */
+	public static class Patterns {
+
+		private final List<String> includes;
+
+		private final List<String> excludes;
+
+		Patterns(List<String> includes, List<String> excludes) {
+			this.includes = includes;
+			this.excludes = excludes;
+		}
+
+		public List<String> getIncludes() {
+			return includes;
+		}
+
+		public List<String> getExcludes() {
+			return excludes;
+		}
+
+		private int size() {
+			return includes.size() + excludes.size();
+		}
+
+		private Patterns add(Patterns patterns) {
+			includes.addAll(patterns.includes);
+			excludes.addAll(patterns.excludes);
+			return this;
+		}
+
+		private boolean isEquivalent(Set<String> classes, Set<String> otherClasses) {
+			WildcardMatcher includesMatcher = new WildcardMatcher(String.join(":", includes));
+			WildcardMatcher excludesMatcher = new WildcardMatcher(String.join(":", excludes));
+			for (String className : classes) {
+				if (!includesMatcher.matches(className) || excludesMatcher.matches(className)) {
+					return false;
+				}
+			}
+			for (String className : otherClasses) {
+				if (!classes.contains(className)
+						&& includesMatcher.matches(className) && !excludesMatcher.matches(className)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	/**
+	 * Package of the class tree, with the classes to instrument and the other classes it contains
+	 */
+	private static class Package {
+
+		private final String name;
+
+		private final Map<String, Package> subpackages = new TreeMap<>();
+
+		private final List<String> classes = new ArrayList<>();
+
+		private final List<String> otherClasses = new ArrayList<>();
+
+		/**
+		 * True if the package or one of its subpackages contains a class to instrument
+		 */
+		private boolean hasClasses;
+
+		/**
+		 * True if the package or one of its subpackages contains a class which must not be instrumented
+		 */
+		private boolean hasOtherClasses;
+
+		/**
+		 * Patterns of {@link #matched()}, computed once
+		 */
+		private Patterns matched;
+
+		Package(String name) {
+			this.name = name;
+		}
+
+		void add(String className, boolean instrumented) {
+			Package current = this;
+			int start = 0;
+			int end;
+			while ((end = className.indexOf('.', start)) != -1) {
+				current.mark(instrumented);
+				String subpackageName = className.substring(0, end);
+				current = current.subpackages.computeIfAbsent(subpackageName, Package::new);
+				start = end + 1;
+			}
+			current.mark(instrumented);
+			(instrumented ? current.classes : current.otherClasses).add(className);
+		}
+
+		private void mark(boolean instrumented) {
+			if (instrumented) {
+				hasClasses = true;
+			} else {
+				hasOtherClasses = true;
+			}
+		}
+
+		/**
+		 * @return The fewest patterns instrumenting the classes of the package, none of which is included yet
+		 */
+		Patterns unmatched() {
+			Patterns patterns = new Patterns(new ArrayList<>(), new ArrayList<>());
+			if (!hasClasses) {
+				return patterns;
+			}
+
+			patterns.includes.addAll(classes);
+			for (Package subpackage : subpackages.values()) {
+				patterns.add(subpackage.unmatched());
+			}
+			// On a tie, the narrowest patterns are kept
+			if (!name.isEmpty()) {
+				Patterns wildcard = new Patterns(new ArrayList<>(Collections.singletonList(name + ".*")), new ArrayList<>())
+						.add(matched());
+				if (wildcard.size() < patterns.size()) {
+					return wildcard;
+				}
+			}
+			return patterns;
+		}
+
+		/**
+		 * @return The fewest patterns excluding the other classes of the package, all of which are included
+		 */
+		Patterns matched() {
+			if (matched == null) {
+				matched = matched(null);
+			}
+			return new Patterns(new ArrayList<>(matched.includes), new ArrayList<>(matched.excludes));
+		}
+
+		/**
+		 * @param suffix Suffix of the other classes which are already excluded, or null
+		 */
+		private Patterns matched(String suffix) {
+			Patterns patterns = new Patterns(new ArrayList<>(), new ArrayList<>());
+			if (!hasOtherClasses) {
+				return patterns;
+			}
+
+			otherClasses.stream().filter(x -> !hasSuffix(x, suffix)).forEach(patterns.excludes::add);
+			for (Package subpackage : subpackages.values()) {
+				patterns.add(suffix == null ? subpackage.matched() : subpackage.matched(suffix));
+			}
+			if (!hasClasses && patterns.size() > 1) {
+				return new Patterns(new ArrayList<>(), new ArrayList<>(Collections.singletonList(name + ".*")));
+			}
+
+			// Excludes the most common suffix of the other classes, unless a class to instrument has it
+			if (suffix == null && hasClasses && patterns.size() > 2) {
+				Map<String, Integer> suffixes = new HashMap<>();
+				collectSuffixes(suffixes);
+				String commonSuffix = suffixes.entrySet().stream()
+						.max(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+						.map(Map.Entry::getKey)
+						.orElse(null);
+				if (commonSuffix != null && !hasClassWithSuffix(commonSuffix)) {
+					Patterns suffixPatterns = new Patterns(new ArrayList<>(),
+							new ArrayList<>(Arrays.asList(name + ".*" + commonSuffix, name + ".*" + commonSuffix + "$*")))
+							.add(matched(commonSuffix));
+					if (suffixPatterns.size() < patterns.size()) {
+						return suffixPatterns;
+					}
+				}
+			}
+			return patterns;
+		}
+
+		/**
+		 * Counts the last word of the names of the other top level classes of the package
+		 */
+		private void collectSuffixes(Map<String, Integer> suffixes) {
+			for (String className : otherClasses) {
+				if (className.indexOf('$') == -1) {
+					int start = className.length() - 1;
+					while (start > className.lastIndexOf('.') + 1 && !Character.isUpperCase(className.charAt(start))) {
+						start--;
+					}
+					suffixes.merge(className.substring(start), 1, Integer::sum);
+				}
+			}
+			for (Package subpackage : subpackages.values()) {
+				subpackage.collectSuffixes(suffixes);
+			}
+		}
+
+		private boolean hasClassWithSuffix(String suffix) {
+			return classes.stream().anyMatch(x -> hasSuffix(x, suffix))
+					|| subpackages.values().stream().anyMatch(x -> x.hasClassWithSuffix(suffix));
+		}
+
+		/**
+		 * @return True if the class name is matched by *suffix or *suffix$*
+		 */
+		private static boolean hasSuffix(String className, String suffix) {
+			return suffix != null && (className.endsWith(suffix) || className.contains(suffix + "$"));
+		}
+
+	}
+
+}
@@ -1,17 +1,20 @@
 package fr.spoonlabs.flacoco.core.coverage.framework;
 
 
-import eu.stamp_project.testrunner.EntryPoint;
 import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
 import eu.stamp_project.testrunner.runner.ParserOptions;
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.ClassIndex;
+import fr.spoonlabs.flacoco.core.coverage.cache.InstrumentationCache;
 import fr.spoonlabs.flacoco.core.test.TestContext;
 import org.apache.log4j.Logger;
-import org.apache.maven.plugin.surefire.util.DirectoryScanner;
-import org.apache.maven.surefire.api.testset.TestListResolver;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 public abstract class TestFrameworkStrategy {
 
@@ -23,28 +26,72 @@ public abstract class TestFrameworkStrategy {
 		this.config = flacocoConfig;
 	}
 
-	public abstract CoveredTestResultPerTestMethod execute(TestContext testContext) throws TimeoutException;
+	/**
+	 * @return The strategy running JUnit3 and JUnit4 tests, in a forked JVM or in process according to the config
+	 */
+	public static TestFrameworkStrategy forJUnit4(FlacocoConfig config) {
+		return config.isTestRunnerInProcess() ? new InProcessStrategy(config, false) : new JUnit4Strategy(config);
+	}
 
 	/**
-	 * Auxiliary method to setup test-runners default options
+	 * @return The strategy running JUnit5 tests, in a forked JVM or in process according to the config
+	 */
+	public static TestFrameworkStrategy forJUnit5(FlacocoConfig config) {
+		return config.isTestRunnerInProcess() ? new InProcessStrategy(config, true) : new JUnit5Strategy(config);
+	}
+
+	public CoveredTestResultPerTestMethod execute(TestContext testContext) throws TimeoutException {
+		return this.execute(testContext, this.computeTestRunnerOptions());
+	}
+
+	/**
+	 * Executes the test context with the given options, which may differ from the ones computed from the config
+	 */
+	public abstract CoveredTestResultPerTestMethod execute(TestContext testContext, TestRunnerOptions options) throws TimeoutException;
+
+	/**
+	 * Auxiliary method to compute test-runner's options for an execution
+	 *
+	 * @return Options for test-runner execution
 	 */
-	protected void setupTestRunnerEntryPoint() {
-		EntryPoint.coverageDetail = ParserOptions.CoverageTransformerDetail.DETAIL_COMPRESSED;
-		EntryPoint.workingDirectory = new File(config.getWorkspace());
-		EntryPoint.verbose = config.isTestRunnerVerbose();
-		EntryPoint.timeoutInMs = config.getTestRunnerTimeoutInMs();
-		EntryPoint.JVMArgs = config.getTestRunnerJVMArgs();
-		EntryPoint.jUnit5Mode = false;
+	public TestRunnerOptions computeTestRunnerOptions() {
+		ClassIndex classIndex = new ClassIndex(config);
+		TestRunnerOptions options = this.computeTestRunnerOptions(classIndex);
+		if (config.isOfflineInstrumentation() && !config.isTestRunnerInProcess()) {
+			options.setInstrumentedClassesDirectory(new InstrumentationCache(config).update(classIndex));
+		}
+		return options;
+	}
+
+	/**
+	 * Auxiliary method to compute test-runner's options for an execution, without the directory of the classes
+	 * instrumented offline, which is computed once per run by the caller
+	 *
+	 * @param classIndex Index of the classes of the project, shared with the other users of the run
+	 * @return Options for test-runner execution
+	 */
+	public TestRunnerOptions computeTestRunnerOptions(ClassIndex classIndex) {
+		TestRunnerOptions options = new TestRunnerOptions();
+		options.setCoverageDetail(ParserOptions.CoverageTransformerDetail.DETAIL_COMPRESSED);
+		options.setWorkingDirectory(new File(config.getWorkspace()));
+		options.setVerbose(config.isTestRunnerVerbose());
+		options.setTimeoutInMs(config.getTestRunnerTimeoutInMs());
+		options.setJVMArgs(config.getTestRunnerJVMArgs());
+		options.setReuseJVM(config.isTestRunnerReuseJVM());
+		options.setMaxExecutionsPerJVM(config.getTestRunnerMaxExecutionsPerJVM());
+		List<String> excludes = new ArrayList<>(config.getJacocoExcludes());
 		if (!config.getJacocoIncludes().isEmpty()) {
-			EntryPoint.jacocoAgentIncludes =
-					config.getJacocoIncludes().stream().reduce((x, y) -> x + ":" + y).orElse("");
+			options.setJacocoAgentIncludes(
+					config.getJacocoIncludes().stream().reduce((x, y) -> x + ":" + y).orElse(""));
 		} else {
-			EntryPoint.jacocoAgentIncludes = this.computeJacocoIncludes();
+			JacocoIncludesCompiler.Patterns patterns = this.computeJacocoPatterns(classIndex);
+			options.setJacocoAgentIncludes(String.join(":", patterns.getIncludes()));
+			excludes.addAll(patterns.getExcludes());
 		}
-		if (!config.getJacocoIncludes().isEmpty()) {
-			EntryPoint.jacocoAgentExcludes =
-					config.getJacocoExcludes().stream().reduce((x, y) -> x + ":" + y).orElse("");
+		if (!excludes.isEmpty()) {
+			options.setJacocoAgentExcludes(String.join(":", excludes));
 		}
+		return options;
 	}
 
 	/**
@@ -85,19 +132,17 @@ public abstract class TestFrameworkStrategy {
 				+ classpath + File.pathSeparatorChar;
 	}
 
-	protected String computeJacocoIncludes() {
-		StringBuilder includes = new StringBuilder();
-		for (String directory : config.getBinJavaDir()) {
-			DirectoryScanner directoryScanner = new DirectoryScanner(new File(directory), TestListResolver.getWildcard());
-			includes.append(":").append(directoryScanner.scan().getClasses().stream().reduce((x, y) -> x + ":" + y).orElse(""));
-		}
-		if (config.isCoverTests()) {
-			for (String directory : config.getBinTestDir()) {
-				DirectoryScanner directoryScanner = new DirectoryScanner(new File(directory), TestListResolver.getWildcard());
-				includes.append(":").append(directoryScanner.scan().getClasses().stream().reduce((x, y) -> x + ":" + y).orElse(""));
-			}
-		}
-		return includes.toString();
+	/**
+	 * Auxiliary method to compute the jacoco patterns of the classes of the binary directories, and of the test
+	 * binary directories if tests are covered
+	 *
+	 * @return Patterns for the jacoco agent
+	 */
+	protected JacocoIncludesCompiler.Patterns computeJacocoPatterns(ClassIndex classIndex) {
+		List<String> classpath = Arrays.stream(this.computeClasspath().split(File.pathSeparator))
+				.filter(x -> !x.trim().isEmpty())
+				.collect(Collectors.toList());
+		return JacocoIncludesCompiler.compile(classIndex, config.isCoverTests(), classpath);
 	}
 
 }
@@ -0,0 +1,322 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import eu.stamp_project.testrunner.EntryPoint;
+import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
+import eu.stamp_project.testrunner.listener.utils.ListenerUtils;
+import eu.stamp_project.testrunner.runner.ParserOptions;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Launches test-runner's online coverage computation in a forked JVM.
+ * <p>
+ * Unlike EntryPoint.runOnlineCoveredTestResultPerTestMethods, every fork writes its result and jacoco data to
+ * its own files, which allows several forks to run concurrently in the same working directory.
+ * The fork is configured from the given TestRunnerOptions, not from EntryPoint's static options.
+ */
+public class TestRunnerFork {
+
+	private static final Logger logger = Logger.getLogger(TestRunnerFork.class);
+
+	private static final String FORK_MAIN_CLASS = TestRunnerForkMain.class.getName();
+
+	private static final String WORKER_MAIN_CLASS = TestRunnerWorkerMain.class.getName();
+
+	private static final String COVERAGE_TRANSFORMER_CLASS = BinariesCoverageTransformer.class.getName();
+
+	private static String forkMainClasspath;
+
+	private static String jacocoAgentPath;
+
+	private TestRunnerOptions options;
+
+	public TestRunnerFork(TestRunnerOptions options) {
+		this.options = options;
+	}
+
+	/**
+	 * Runs the given test classes in a new JVM and returns the coverage per test method
+	 *
+	 * @param classpath      Classpath of the tests
+	 * @param sourceBinaries Directories of the compiled sources
+	 * @param testBinaries   Directories of the compiled tests
+	 * @param testClasses    Fully qualified names of the test classes to run
+	 */
+	public CoveredTestResultPerTestMethod run(String classpath, List<String> sourceBinaries,
+											  List<String> testBinaries, String[] testClasses) throws TimeoutException {
+		if (options.isReuseJVM()) {
+			return runInWorker(classpath, sourceBinaries, testBinaries, testClasses);
+		}
+
+		File output = null;
+		File execFile = null;
+		File log = null;
+		Process process = null;
+		try {
+			output = File.createTempFile("flacoco-coverage", ".dat");
+			execFile = File.createTempFile("flacoco-coverage", ".exec");
+			log = File.createTempFile("flacoco-test-runner", ".log");
+
+			ProcessBuilder processBuilder = new ProcessBuilder(
+					computeCommand(classpath, sourceBinaries, testBinaries, testClasses, output, execFile));
+			if (options.getWorkingDirectory() != null && options.getWorkingDirectory().exists()) {
+				processBuilder.directory(options.getWorkingDirectory());
+			}
+			if (options.isVerbose()) {
+				processBuilder.inheritIO();
+			} else {
+				processBuilder.redirectErrorStream(true);
+				processBuilder.redirectOutput(log);
+			}
+
+			long start = System.currentTimeMillis();
+			process = processBuilder.start();
+			if (!process.waitFor(options.getTimeoutInMs(), TimeUnit.MILLISECONDS)) {
+				throw new TimeoutException("Forked process did not finish correctly. Timeout set was "
+						+ options.getTimeoutInMs() + " ms, process took " + (System.currentTimeMillis() - start)
+						+ " ms before ending.");
+			}
+
+			if (output.length() == 0) {
+				throw new RuntimeException("Forked process exited with code " + process.exitValue()
+						+ " without reporting results for " + Arrays.toString(testClasses) + ". Output: "
+						+ new String(Files.readAllBytes(log.toPath())));
+			}
+			return ListenerUtils.loadFromMemoryMappedFile(output);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			if (process != null) {
+				process.destroyForcibly();
+			}
+			for (File file : new File[]{output, execFile, log}) {
+				if (file != null) {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the given test classes in a JVM of the worker pool, starting a new one if none can be reused
+	 */
+	private CoveredTestResultPerTestMethod runInWorker(String classpath, List<String> sourceBinaries,
+													   List<String> testBinaries, String[] testClasses)
+			throws TimeoutException {
+		String key = String.join("\n", classpath, String.valueOf(options.getJVMArgs()),
+				String.valueOf(options.getJacocoAgentIncludes()), String.valueOf(options.getJacocoAgentExcludes()),
+				String.valueOf(options.getWorkingDirectory()), String.valueOf(options.isVerbose()),
+				String.valueOf(options.getInstrumentedClassesDirectory()));
+		List<String> binaries = new ArrayList<>(sourceBinaries);
+		binaries.addAll(testBinaries);
+		long stamp = TestRunnerWorkerPool.computeStamp(binaries);
+
+		TestRunnerWorkerPool.Worker worker = null;
+		File output = null;
+		boolean reusable = false;
+		try {
+			worker = TestRunnerWorkerPool.acquire(key, stamp);
+			if (worker == null) {
+				worker = startWorker(classpath, key, stamp);
+			}
+
+			output = File.createTempFile("flacoco-coverage", ".dat");
+			List<String> request = new ArrayList<>();
+			request.add(output.getAbsolutePath());
+			request.addAll(computeArguments(sourceBinaries, testBinaries, testClasses));
+			logger.debug("Run in worker: " + String.join(" ", request));
+
+			long start = System.currentTimeMillis();
+			worker.send(request);
+			String response = worker.awaitResponse(options.getTimeoutInMs());
+			if (response == null) {
+				throw new TimeoutException("Worker process did not finish correctly. Timeout set was "
+						+ options.getTimeoutInMs() + " ms, process took " + (System.currentTimeMillis() - start)
+						+ " ms before ending.");
+			}
+			if (!response.equals(TestRunnerWorkerMain.DONE + "\t" + output.getAbsolutePath())) {
+				worker.getProcess().waitFor(options.getTimeoutInMs(), TimeUnit.MILLISECONDS);
+				throw new RuntimeException("Worker process exited" + (worker.getProcess().isAlive() ? ""
+						: " with code " + worker.getProcess().exitValue()) + " without reporting results for "
+						+ Arrays.toString(testClasses) + ". Output: "
+						+ (worker.getLog() == null ? "" : new String(Files.readAllBytes(worker.getLog().toPath()))));
+			}
+
+			CoveredTestResultPerTestMethod result = ListenerUtils.loadFromMemoryMappedFile(output);
+			reusable = true;
+			return result;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			if (worker != null) {
+				if (reusable) {
+					TestRunnerWorkerPool.release(worker, options.getMaxExecutionsPerJVM());
+				} else {
+					worker.destroy();
+				}
+			}
+			if (output != null) {
+				output.delete();
+				new File(output.getAbsolutePath() + ".part").delete();
+			}
+		}
+	}
+
+	private TestRunnerWorkerPool.Worker startWorker(String classpath, String key, long stamp) throws IOException {
+		File execFile = File.createTempFile("flacoco-coverage", ".exec");
+		File log = options.isVerbose() ? null : File.createTempFile("flacoco-test-runner", ".log");
+
+		List<String> command = computeJVMCommand(classpath, execFile);
+		command.add(WORKER_MAIN_CLASS);
+		logger.debug("Start worker: " + String.join(" ", command));
+
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		if (options.getWorkingDirectory() != null && options.getWorkingDirectory().exists()) {
+			processBuilder.directory(options.getWorkingDirectory());
+		}
+		// The standard input and output are kept to send the requests and receive their end
+		if (log == null) {
+			processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		} else {
+			processBuilder.redirectError(log);
+		}
+		return new TestRunnerWorkerPool.Worker(processBuilder.start(), key, stamp, execFile, log);
+	}
+
+	private List<String> computeCommand(String classpath, List<String> sourceBinaries, List<String> testBinaries,
+										String[] testClasses, File output, File execFile) throws IOException {
+		List<String> command = computeJVMCommand(classpath, execFile);
+		command.add(FORK_MAIN_CLASS);
+		command.add(output.getAbsolutePath());
+		command.addAll(computeArguments(sourceBinaries, testBinaries, testClasses));
+
+		logger.debug("Run: " + String.join(" ", command));
+		return command;
+	}
+
+	/**
+	 * @return The command starting a JVM with the jacoco agent, without the main class
+	 */
+	private List<String> computeJVMCommand(String classpath, File execFile) throws IOException {
+		List<String> command = new ArrayList<>();
+		// Forks run on the JDK running flacoco, as the tests run in-process do
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+		if (options.getJVMArgs() != null && !options.getJVMArgs().trim().isEmpty()) {
+			command.addAll(Arrays.asList(options.getJVMArgs().trim().split("\\s+")));
+		}
+		command.add("-classpath");
+		if (options.getInstrumentedClassesDirectory() != null) {
+			classpath = options.getInstrumentedClassesDirectory().getAbsolutePath() + File.pathSeparator + classpath;
+		}
+		command.add(classpath + File.pathSeparator + getForkClasspath());
+
+		String agent = "-javaagent:" + getJacocoAgentPath() + "=destfile=" + execFile.getAbsolutePath()
+				+ ",dumponexit=false";
+		// An empty includes option instruments no class at all, the agent is then only the runtime of the classes
+		// instrumented offline
+		if (options.getInstrumentedClassesDirectory() != null) {
+			agent += ",includes=";
+		} else if (options.getJacocoAgentIncludes() != null) {
+			agent += ",includes=" + options.getJacocoAgentIncludes();
+		}
+		if (options.getJacocoAgentExcludes() != null && !options.getJacocoAgentExcludes().isEmpty()) {
+			agent += ",excludes=" + options.getJacocoAgentExcludes();
+		}
+		command.add(agent);
+		return command;
+	}
+
+	/**
+	 * @return The arguments of the fork main class following the output file
+	 */
+	private List<String> computeArguments(List<String> sourceBinaries, List<String> testBinaries,
+										  String[] testClasses) {
+		List<String> arguments = new ArrayList<>();
+		arguments.add(String.valueOf(options.isJUnit5Mode()));
+		arguments.add(ParserOptions.FLAG_pathToCompiledClassesOfTheProject);
+		arguments.add(String.join(File.pathSeparator, sourceBinaries));
+		arguments.add(ParserOptions.FLAG_pathToCompiledTestClassesOfTheProject);
+		arguments.add(String.join(File.pathSeparator, testBinaries));
+		arguments.add(ParserOptions.FLAG_fullQualifiedNameOfTestClassToRun);
+		arguments.add(String.join(File.pathSeparator, testClasses));
+		if (options.getTestMethodNames() != null) {
+			arguments.add(ParserOptions.FLAG_testMethodNamesToRun);
+			arguments.add(String.join(File.pathSeparator, options.getTestMethodNames()));
+		}
+		arguments.add(ParserOptions.FLAG_coverage_detail);
+		arguments.add(options.getCoverageDetail().name());
+		return arguments;
+	}
+
+	/**
+	 * The classpath needed by the fork on top of the tests' classpath: test-runner, jacoco and the fork main class
+	 */
+	private static String getForkClasspath() throws IOException {
+		return String.join(File.pathSeparator,
+				getCodeSource(EntryPoint.class),
+				getCodeSource(org.jacoco.core.runtime.IRuntime.class),
+				getCodeSource(org.jacoco.agent.rt.RT.class),
+				getCodeSource(org.apache.commons.io.FileUtils.class),
+				getCodeSource(org.objectweb.asm.ClassReader.class),
+				getForkMainClasspath()
+		);
+	}
+
+	private static String getCodeSource(Class<?> clazz) {
+		try {
+			return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+		} catch (URISyntaxException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Copies the fork and worker main classes, and the classes they use, alone into a temporary directory, so that
+	 * flacoco's own dependencies do not leak into the classpath of the tests
+	 */
+	private static synchronized String getForkMainClasspath() throws IOException {
+		if (forkMainClasspath == null) {
+			File directory = Files.createTempDirectory("flacoco-fork").toFile();
+			for (String forkClass : new String[]{FORK_MAIN_CLASS, WORKER_MAIN_CLASS, COVERAGE_TRANSFORMER_CLASS}) {
+				String resource = forkClass.replace('.', '/') + ".class";
+				File target = new File(directory, resource);
+				target.getParentFile().mkdirs();
+				try (InputStream inputStream = TestRunnerFork.class.getClassLoader().getResourceAsStream(resource)) {
+					Files.copy(inputStream, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			forkMainClasspath = directory.getAbsolutePath();
+		}
+		return forkMainClasspath;
+	}
+
+	private static synchronized String getJacocoAgentPath() throws IOException {
+		if (jacocoAgentPath == null) {
+			File agent = File.createTempFile("jacoco-agent", ".jar");
+			agent.deleteOnExit();
+			try (InputStream inputStream = EntryPoint.class.getClassLoader().getResourceAsStream("jacocoagent.jar")) {
+				Files.copy(inputStream, agent.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			jacocoAgentPath = agent.getAbsolutePath();
+		}
+		return jacocoAgentPath;
+	}
+
+}
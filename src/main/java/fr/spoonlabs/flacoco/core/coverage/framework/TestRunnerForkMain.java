@@ -0,0 +1,93 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import eu.stamp_project.testrunner.listener.CoverageTransformer;
+import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
+import eu.stamp_project.testrunner.listener.impl.CoverageCollectorDetailedCompressed;
+import eu.stamp_project.testrunner.listener.impl.CoverageCollectorMethodDetailed;
+import eu.stamp_project.testrunner.listener.impl.OnlineCoveredTestResultPerTestMethodImpl;
+import eu.stamp_project.testrunner.listener.utils.ListenerUtils;
+import eu.stamp_project.testrunner.runner.ParserOptions;
+import eu.stamp_project.testrunner.runner.coverage.JUnit4OnlineJacocoRunner;
+import eu.stamp_project.testrunner.runner.coverage.JUnit5OnlineJacocoRunner;
+import eu.stamp_project.testrunner.runner.coverage.JacocoOnlineRunner;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the JVMs forked by {@link TestRunnerFork}.
+ * <p>
+ * Same as test-runner's online jacoco runners, but the result is saved to the file given as first argument
+ * instead of the fixed target/CoveredTestResultPerTest.dat, so that several forks can share a working directory.
+ * <p>
+ * This class is copied without flacoco into the classpath of the forked JVM: it must only depend on test-runner,
+ * {@link BinariesCoverageTransformer} and the JDK.
+ */
+public class TestRunnerForkMain {
+
+	/**
+	 * @param args output file, "true" to run JUnit5 tests (false otherwise), followed by test-runner's arguments
+	 */
+	public static void main(String[] args) {
+		run(new File(args[0]), Arrays.copyOfRange(args, 1, args.length));
+		System.exit(0);
+	}
+
+	/**
+	 * Runs the tests and saves the result to the output file
+	 *
+	 * @param args "true" to run JUnit5 tests (false otherwise), followed by test-runner's arguments
+	 */
+	static void run(File output, String[] args) {
+		boolean jUnit5 = Boolean.parseBoolean(args[0]);
+		ParserOptions options = ParserOptions.parse(Arrays.copyOfRange(args, 1, args.length));
+
+		CoverageTransformer coverageTransformer = options.getCoverageTransformer();
+		// Offline instrumented class files may come first in the classpath, the original ones are needed
+		if (coverageTransformer instanceof CoverageCollectorDetailedCompressed
+				|| coverageTransformer instanceof CoverageCollectorMethodDetailed) {
+			List<String> binaries = new ArrayList<>(options.getPathToCompiledClassesOfTheProject());
+			binaries.addAll(options.getPathToCompiledTestClassesOfTheProject());
+			coverageTransformer = new BinariesCoverageTransformer(binaries, TestRunnerForkMain.class.getClassLoader(),
+					coverageTransformer instanceof CoverageCollectorMethodDetailed);
+		}
+
+		JacocoOnlineRunner runner;
+		if (jUnit5) {
+			runner = new JUnit5OnlineJacocoRunner(options.getPathToCompiledClassesOfTheProject(),
+					options.getPathToCompiledTestClassesOfTheProject(), options.getBlackList(), coverageTransformer);
+		} else {
+			runner = new JUnit4OnlineJacocoRunner(options.getPathToCompiledClassesOfTheProject(),
+					options.getPathToCompiledTestClassesOfTheProject(), options.getBlackList(), coverageTransformer);
+		}
+
+		CoveredTestResultPerTestMethod result = runner.runCoveredTestResultPerTestMethod(
+				options.getPathToCompiledClassesOfTheProject(),
+				options.getPathToCompiledTestClassesOfTheProject(),
+				options.getFullQualifiedNameOfTestClassesToRun(),
+				options.getTestMethodNamesToRun()
+		);
+		ListenerUtils.saveToMemoryMappedFile(output, getSavedResult(result));
+	}
+
+	/**
+	 * The JUnit listeners save their internal result rather than themselves, see CoveredTestResultPerTestMethod#save
+	 */
+	private static Object getSavedResult(CoveredTestResultPerTestMethod result) {
+		try {
+			for (Field field : result.getClass().getDeclaredFields()) {
+				if (OnlineCoveredTestResultPerTestMethodImpl.class.isAssignableFrom(field.getType())) {
+					field.setAccessible(true);
+					return field.get(result);
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,268 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
+import eu.stamp_project.testrunner.listener.CoverageTransformer;
+import eu.stamp_project.testrunner.listener.impl.CoveredTestResultPerTestMethodImpl;
+import eu.stamp_project.testrunner.listener.junit4.CoveredTestResultsPerJUnit4TestMethod;
+import eu.stamp_project.testrunner.listener.junit5.CoveredTestResultsPerJUnit5TestMethod;
+import eu.stamp_project.testrunner.runner.JUnit4Runner;
+import eu.stamp_project.testrunner.runner.JUnit5Runner;
+import eu.stamp_project.testrunner.runner.ParserOptions;
+import fr.spoonlabs.flacoco.core.test.strategies.classloader.finder.CustomClassLoaderThreadFactory;
+import org.apache.log4j.Logger;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.runtime.WildcardMatcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs test-runner's coverage computation in the current JVM, as an alternative to {@link TestRunnerFork}.
+ * <p>
+ * The classes of the project are instrumented by jacoco before being loaded by a throwaway classloader, and the
+ * coverage of each test method is read from the in-memory jacoco runtime of the execution. The classes of the
+ * project and of its libraries are loaded before the ones of flacoco, except the JDK, JUnit, jacoco and test-runner
+ * classes, which are the ones of flacoco and are shared with the tests through the parent classloader. The coverage
+ * is always computed with the compressed detail used by flacoco, per line or per method.
+ * <p>
+ * The tests cannot be isolated from flacoco: a test exiting the JVM exits flacoco, and a test that does not
+ * finish before the timeout keeps running in a daemon thread, which is why {@link InProcessStrategy} forks the
+ * following executions.
+ */
+public class TestRunnerInProcess {
+
+	private static final Logger logger = Logger.getLogger(TestRunnerInProcess.class);
+
+	private TestRunnerOptions options;
+
+	public TestRunnerInProcess(TestRunnerOptions options) {
+		this.options = options;
+	}
+
+	/**
+	 * Runs the given test classes in the current JVM and returns the coverage per test method
+	 *
+	 * @param classpath      Classpath of the tests, without the JUnit and jacoco libraries
+	 * @param sourceBinaries Directories of the compiled sources
+	 * @param testBinaries   Directories of the compiled tests
+	 * @param testClasses    Fully qualified names of the test classes to run
+	 */
+	public CoveredTestResultPerTestMethod run(String classpath, List<String> sourceBinaries,
+											  List<String> testBinaries, String[] testClasses) throws TimeoutException {
+		String[] testMethodNames = options.getTestMethodNames() == null ? new String[0]
+				: options.getTestMethodNames().toArray(new String[0]);
+		logger.debug("Run in process: " + String.join(File.pathSeparator, testClasses)
+				+ (testMethodNames.length == 0 ? "" : " " + String.join(File.pathSeparator, testMethodNames)));
+
+		RuntimeData data = new RuntimeData();
+		IRuntime runtime = new LoggerRuntime();
+		try {
+			runtime.startup(data);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+
+		ExecutorService executor = null;
+		try {
+			InstrumentingClassLoader classLoader = new InstrumentingClassLoader(
+					computeUrls(classpath, sourceBinaries, testBinaries), new Instrumenter(runtime),
+					options.getJacocoAgentIncludes(), options.getJacocoAgentExcludes());
+			List<String> binaries = new ArrayList<>(sourceBinaries);
+			binaries.addAll(testBinaries);
+			CoverageTransformer coverageTransformer = new BinariesCoverageTransformer(binaries, classLoader,
+					options.getCoverageDetail() == ParserOptions.CoverageTransformerDetail.METHOD_DETAIL);
+
+			executor = Executors.newSingleThreadExecutor(new CustomClassLoaderThreadFactory(classLoader));
+			Future<CoveredTestResultPerTestMethod> future = executor.submit(() -> {
+				if (options.isJUnit5Mode()) {
+					CoveredTestResultsPerJUnit5TestMethod result =
+							new CoveredTestResultsPerJUnit5TestMethod(data, sourceBinaries, coverageTransformer);
+					JUnit5Runner.run(testClasses, testMethodNames, Collections.emptyList(), result, classLoader);
+					result.computeCoverages();
+					return result;
+				} else {
+					CoveredTestResultsPerJUnit4TestMethod result =
+							new CoveredTestResultsPerJUnit4TestMethod(data, sourceBinaries, coverageTransformer);
+					JUnit4Runner.run(testClasses, testMethodNames, Collections.emptyList(), result, classLoader);
+					result.computeCoverages();
+					return result;
+				}
+			});
+
+			long start = System.currentTimeMillis();
+			try {
+				return getInternalResult(future.get(options.getTimeoutInMs(), TimeUnit.MILLISECONDS));
+			} catch (TimeoutException e) {
+				future.cancel(true);
+				throw new TimeoutException("In-process execution did not finish correctly. Timeout set was "
+						+ options.getTimeoutInMs() + " ms, execution took " + (System.currentTimeMillis() - start)
+						+ " ms before ending.");
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException("In-process execution failed for " + Arrays.toString(testClasses), e.getCause());
+		} catch (MalformedURLException e) {
+			throw new RuntimeException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			runtime.shutdown();
+		}
+	}
+
+	/**
+	 * The JUnit5 listener does not expose the tests it recorded, they are only kept by its internal result
+	 */
+	private static CoveredTestResultPerTestMethod getInternalResult(CoveredTestResultPerTestMethod result) {
+		try {
+			for (Field field : result.getClass().getDeclaredFields()) {
+				if (CoveredTestResultPerTestMethodImpl.class.isAssignableFrom(field.getType())) {
+					field.setAccessible(true);
+					return (CoveredTestResultPerTestMethod) field.get(result);
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+		return result;
+	}
+
+	private static URL[] computeUrls(String classpath, List<String> sourceBinaries, List<String> testBinaries)
+			throws MalformedURLException {
+		List<String> entries = new ArrayList<>(sourceBinaries);
+		entries.addAll(testBinaries);
+		for (String entry : classpath.split(File.pathSeparator)) {
+			if (!entry.trim().isEmpty()) {
+				entries.add(entry);
+			}
+		}
+
+		URL[] urls = new URL[entries.size()];
+		for (int i = 0; i < urls.length; i++) {
+			urls[i] = new File(entries.get(i)).toURI().toURL();
+		}
+		return urls;
+	}
+
+	/**
+	 * Loads the classes of its own classpath, directories and jars, before delegating to its parent, instrumenting
+	 * the ones matching the jacoco includes and excludes when they are loaded. The classes of the shared packages are
+	 * loaded by the parent first. Resources other than classes are found in the parent first.
+	 */
+	static class InstrumentingClassLoader extends URLClassLoader {
+
+		/**
+		 * Packages of the JDK, and of the libraries through which the tests are run and their coverage is read
+		 */
+		private static final String[] SHARED_PACKAGES = {"java.", "javax.", "jdk.", "sun.", "com.sun.", "org.w3c.",
+				"org.xml.", "org.junit.", "junit.", "org.hamcrest.", "org.opentest4j.", "org.apiguardian.",
+				"eu.stamp_project.testrunner.", "org.jacoco."};
+
+		static {
+			ClassLoader.registerAsParallelCapable();
+		}
+
+		private final Instrumenter instrumenter;
+
+		private final WildcardMatcher includes;
+
+		private final WildcardMatcher excludes;
+
+		InstrumentingClassLoader(URL[] urls, Instrumenter instrumenter, String includes, String excludes) {
+			super(urls, InstrumentingClassLoader.class.getClassLoader());
+			this.instrumenter = instrumenter;
+			// Same defaults as the jacoco agent, an empty includes option matches no class at all
+			this.includes = new WildcardMatcher(includes == null ? "*" : includes);
+			this.excludes = new WildcardMatcher(excludes == null ? "" : excludes);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> clazz = findLoadedClass(name);
+				if (clazz == null) {
+					URL resource = isShared(name) ? null : findResource(name.replace('.', '/') + ".class");
+					if (resource == null) {
+						return super.loadClass(name, resolve);
+					}
+					clazz = defineClass(name, resource);
+				}
+				if (resolve) {
+					resolveClass(clazz);
+				}
+				return clazz;
+			}
+		}
+
+		private static boolean isShared(String name) {
+			for (String sharedPackage : SHARED_PACKAGES) {
+				if (name.startsWith(sharedPackage)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private Class<?> defineClass(String name, URL resource) throws ClassNotFoundException {
+			try {
+				byte[] bytes = readAllBytes(resource);
+				if (includes.matches(name) && !excludes.matches(name)) {
+					bytes = instrumenter.instrument(bytes, name);
+				}
+				definePackage(name);
+				return defineClass(name, bytes, 0, bytes.length);
+			} catch (IOException e) {
+				throw new ClassNotFoundException(name, e);
+			}
+		}
+
+		/**
+		 * Defines the package of the class, if not yet defined, since some libraries read the package of their classes
+		 */
+		private void definePackage(String className) {
+			int index = className.lastIndexOf('.');
+			if (index < 0) {
+				return;
+			}
+			String packageName = className.substring(0, index);
+			if (getPackage(packageName) == null) {
+				try {
+					definePackage(packageName, null, null, null, null, null, null, null);
+				} catch (IllegalArgumentException e) {
+					// Defined concurrently by another class of the package
+				}
+			}
+		}
+
+		private static byte[] readAllBytes(URL resource) throws IOException {
+			try (InputStream inputStream = resource.openStream()) {
+				ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = inputStream.read(buffer)) != -1) {
+					outputStream.write(buffer, 0, read);
+				}
+				return outputStream.toByteArray();
+			}
+		}
+
+	}
+
+}
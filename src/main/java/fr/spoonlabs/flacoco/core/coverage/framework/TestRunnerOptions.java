@@ -0,0 +1,171 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import eu.stamp_project.testrunner.runner.ParserOptions;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Settings of a single test-runner execution, passed explicitly to the forked JVM.
+ * <p>
+ * Replaces test-runner's static EntryPoint options, so that concurrent runs do not interfere with each other.
+ */
+public class TestRunnerOptions {
+
+	private File workingDirectory;
+
+	private boolean verbose;
+
+	private int timeoutInMs;
+
+	private String JVMArgs;
+
+	private String jacocoAgentIncludes;
+
+	private String jacocoAgentExcludes;
+
+	private boolean jUnit5Mode;
+
+	private ParserOptions.CoverageTransformerDetail coverageDetail;
+
+	/**
+	 * Simple names of the test methods to run, or null to run every test method of the test classes
+	 */
+	private List<String> testMethodNames;
+
+	/**
+	 * Whether to run the tests in a JVM of the worker pool, instead of a new one
+	 */
+	private boolean reuseJVM;
+
+	private int maxExecutionsPerJVM;
+
+	/**
+	 * Directory of the class files instrumented offline, put first in the classpath, or null to instrument the
+	 * classes matching the includes with the jacoco agent
+	 */
+	private File instrumentedClassesDirectory;
+
+	public TestRunnerOptions() {
+		this.verbose = false;
+		this.timeoutInMs = 10000;
+		this.jUnit5Mode = false;
+		this.coverageDetail = ParserOptions.CoverageTransformerDetail.DETAIL_COMPRESSED;
+		this.reuseJVM = false;
+		this.maxExecutionsPerJVM = 100;
+	}
+
+	public File getWorkingDirectory() {
+		return workingDirectory;
+	}
+
+	public void setWorkingDirectory(File workingDirectory) {
+		this.workingDirectory = workingDirectory;
+	}
+
+	public boolean isVerbose() {
+		return verbose;
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	public int getTimeoutInMs() {
+		return timeoutInMs;
+	}
+
+	public void setTimeoutInMs(int timeoutInMs) {
+		this.timeoutInMs = timeoutInMs;
+	}
+
+	public String getJVMArgs() {
+		return JVMArgs;
+	}
+
+	public void setJVMArgs(String JVMArgs) {
+		this.JVMArgs = JVMArgs;
+	}
+
+	public String getJacocoAgentIncludes() {
+		return jacocoAgentIncludes;
+	}
+
+	public void setJacocoAgentIncludes(String jacocoAgentIncludes) {
+		this.jacocoAgentIncludes = jacocoAgentIncludes;
+	}
+
+	public String getJacocoAgentExcludes() {
+		return jacocoAgentExcludes;
+	}
+
+	public void setJacocoAgentExcludes(String jacocoAgentExcludes) {
+		this.jacocoAgentExcludes = jacocoAgentExcludes;
+	}
+
+	public boolean isJUnit5Mode() {
+		return jUnit5Mode;
+	}
+
+	public void setJUnit5Mode(boolean jUnit5Mode) {
+		this.jUnit5Mode = jUnit5Mode;
+	}
+
+	public ParserOptions.CoverageTransformerDetail getCoverageDetail() {
+		return coverageDetail;
+	}
+
+	public void setCoverageDetail(ParserOptions.CoverageTransformerDetail coverageDetail) {
+		this.coverageDetail = coverageDetail;
+	}
+
+	public List<String> getTestMethodNames() {
+		return testMethodNames;
+	}
+
+	public void setTestMethodNames(List<String> testMethodNames) {
+		this.testMethodNames = testMethodNames;
+	}
+
+	public boolean isReuseJVM() {
+		return reuseJVM;
+	}
+
+	public void setReuseJVM(boolean reuseJVM) {
+		this.reuseJVM = reuseJVM;
+	}
+
+	public int getMaxExecutionsPerJVM() {
+		return maxExecutionsPerJVM;
+	}
+
+	public void setMaxExecutionsPerJVM(int maxExecutionsPerJVM) {
+		this.maxExecutionsPerJVM = maxExecutionsPerJVM;
+	}
+
+	public File getInstrumentedClassesDirectory() {
+		return instrumentedClassesDirectory;
+	}
+
+	public void setInstrumentedClassesDirectory(File instrumentedClassesDirectory) {
+		this.instrumentedClassesDirectory = instrumentedClassesDirectory;
+	}
+
+	@Override
+	public String toString() {
+		return "TestRunnerOptions{" +
+				"workingDirectory=" + workingDirectory +
+				", verbose=" + verbose +
+				", timeoutInMs=" + timeoutInMs +
+				", JVMArgs='" + JVMArgs + '\'' +
+				", jacocoAgentIncludes='" + jacocoAgentIncludes + '\'' +
+				", jacocoAgentExcludes='" + jacocoAgentExcludes + '\'' +
+				", jUnit5Mode=" + jUnit5Mode +
+				", coverageDetail=" + coverageDetail +
+				", testMethodNames=" + testMethodNames +
+				", reuseJVM=" + reuseJVM +
+				", maxExecutionsPerJVM=" + maxExecutionsPerJVM +
+				", instrumentedClassesDirectory=" + instrumentedClassesDirectory +
+				'}';
+	}
+}
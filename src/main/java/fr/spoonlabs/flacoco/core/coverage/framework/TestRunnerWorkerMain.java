@@ -0,0 +1,51 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Entry point of the long-lived JVMs started by {@link TestRunnerWorkerPool}.
+ * <p>
+ * Reads one execution request per line from the standard input, with the same tab-separated arguments as
+ * {@link TestRunnerForkMain}, and runs them one after the other. The result of each request is written next to its
+ * output file and then moved to it. The end of each request is then reported on the standard output, the output of
+ * the tests being redirected to the standard error.
+ * <p>
+ * This class is copied without flacoco into the classpath of the forked JVM: it must only depend on test-runner,
+ * {@link TestRunnerForkMain} and the JDK.
+ */
+public class TestRunnerWorkerMain {
+
+	/**
+	 * Prefix of the line reporting the end of a request, followed by a tab and its output file
+	 */
+	static final String DONE = "flacoco-worker-done";
+
+	public static void main(String[] args) throws IOException {
+		PrintStream responses = System.out;
+		System.setOut(System.err);
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] request = line.split("\t");
+			File output = new File(request[0]);
+			File partialOutput = new File(request[0] + ".part");
+
+			TestRunnerForkMain.run(partialOutput, Arrays.copyOfRange(request, 1, request.length));
+			Files.move(partialOutput.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			responses.println(DONE + "\t" + output.getAbsolutePath());
+			responses.flush();
+		}
+		System.exit(0);
+	}
+
+}
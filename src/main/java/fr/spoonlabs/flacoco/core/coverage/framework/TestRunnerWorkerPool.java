@@ -0,0 +1,238 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Pool of long-lived JVMs running {@link TestRunnerWorkerMain}, shared by every test-runner execution of this JVM.
+ * <p>
+ * A worker is only reused for executions with the same key, i.e. the same classpath and JVM options, and as long as
+ * the class files of the project are unchanged, since the classes it already loaded cannot be reloaded.
+ * Workers are recycled after a maximum number of executions, and discarded when an execution fails.
+ */
+public class TestRunnerWorkerPool {
+
+	private static final Logger logger = Logger.getLogger(TestRunnerWorkerPool.class);
+
+	private static final int MAX_IDLE_WORKERS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Idle workers, from the least to the most recently used
+	 */
+	private static final List<Worker> idleWorkers = new ArrayList<>();
+
+	/**
+	 * Number of workers started since the start of this JVM
+	 */
+	private static int startedWorkers = 0;
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(TestRunnerWorkerPool::shutdown));
+	}
+
+	private TestRunnerWorkerPool() {
+	}
+
+	/**
+	 * @return An idle worker with the given key and stamp, or null if there is none
+	 */
+	static synchronized Worker acquire(String key, long stamp) {
+		Worker acquired = null;
+		Iterator<Worker> iterator = idleWorkers.iterator();
+		while (iterator.hasNext()) {
+			Worker worker = iterator.next();
+			if (!worker.process.isAlive()) {
+				iterator.remove();
+				worker.destroy();
+			} else if (worker.key.equals(key)) {
+				// Workers that loaded outdated classes are useless from now on
+				if (worker.stamp != stamp) {
+					iterator.remove();
+					worker.destroy();
+				} else if (acquired == null) {
+					iterator.remove();
+					acquired = worker;
+				}
+			}
+		}
+		return acquired;
+	}
+
+	/**
+	 * Makes the worker available again, unless it reached the maximum number of executions
+	 */
+	static synchronized void release(Worker worker, int maxExecutions) {
+		if (!worker.process.isAlive() || worker.executions >= maxExecutions) {
+			worker.destroy();
+			return;
+		}
+
+		idleWorkers.add(worker);
+		while (idleWorkers.size() > MAX_IDLE_WORKERS) {
+			idleWorkers.remove(0).destroy();
+		}
+	}
+
+	/**
+	 * Stops every idle worker
+	 */
+	public static synchronized void shutdown() {
+		for (Worker worker : idleWorkers) {
+			worker.destroy();
+		}
+		idleWorkers.clear();
+	}
+
+	/**
+	 * @return The number of workers started since the start of this JVM
+	 */
+	public static synchronized int getStartedWorkers() {
+		return startedWorkers;
+	}
+
+	private static synchronized void onStarted() {
+		startedWorkers++;
+	}
+
+	/**
+	 * @return A value that changes whenever a file is added, removed or modified in the given directories
+	 */
+	static long computeStamp(List<String> directories) {
+		long stamp = 1;
+		for (String directory : directories) {
+			if (!new File(directory).isDirectory()) {
+				continue;
+			}
+			try (Stream<Path> paths = Files.walk(new File(directory).toPath())) {
+				for (Path path : (Iterable<Path>) paths.sorted()::iterator) {
+					File file = path.toFile();
+					stamp = 31 * stamp + path.hashCode();
+					stamp = 31 * stamp + file.lastModified();
+					stamp = 31 * stamp + file.length();
+				}
+			} catch (IOException | UncheckedIOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return stamp;
+	}
+
+	/**
+	 * A running JVM, executing one request at a time
+	 */
+	static class Worker {
+
+		private final Process process;
+
+		private final BufferedWriter requests;
+
+		/**
+		 * Lines reporting the end of the requests, followed by an empty line once the worker exited
+		 */
+		private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+
+		private final String key;
+
+		private final long stamp;
+
+		private final File execFile;
+
+		/**
+		 * Output of the worker, null if it is inherited
+		 */
+		private final File log;
+
+		private int executions;
+
+		Worker(Process process, String key, long stamp, File execFile, File log) {
+			this.process = process;
+			this.requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+			this.key = key;
+			this.stamp = stamp;
+			this.execFile = execFile;
+			this.log = log;
+			this.executions = 0;
+
+			// The standard output of the worker is read by a daemon thread, which ends with the worker
+			Thread reader = new Thread(this::readResponses, "flacoco-worker-responses");
+			reader.setDaemon(true);
+			reader.start();
+			onStarted();
+		}
+
+		/**
+		 * Sends a request, made of the arguments of {@link TestRunnerWorkerMain}
+		 */
+		void send(List<String> request) throws IOException {
+			requests.write(String.join("\t", request));
+			requests.newLine();
+			requests.flush();
+			executions++;
+		}
+
+		/**
+		 * Waits for the end of the last request sent
+		 *
+		 * @return The line reporting the end of the request, an empty line if the worker exited, or null if the
+		 * timeout elapsed
+		 */
+		String awaitResponse(long timeoutInMs) throws InterruptedException {
+			return responses.poll(timeoutInMs, TimeUnit.MILLISECONDS);
+		}
+
+		private void readResponses() {
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith(TestRunnerWorkerMain.DONE)) {
+						responses.add(line);
+					} else if (!line.isEmpty()) {
+						// Written to the standard output by the JVM itself, such as the report of a crash
+						logger.warn("Test-runner worker: " + line);
+					}
+				}
+			} catch (IOException e) {
+				logger.debug("Stopped reading the test-runner worker: " + e);
+			} finally {
+				responses.add("");
+			}
+		}
+
+		Process getProcess() {
+			return process;
+		}
+
+		File getLog() {
+			return log;
+		}
+
+		void destroy() {
+			logger.debug("Stopping test-runner worker after " + executions + " executions");
+			process.destroyForcibly();
+			execFile.delete();
+			if (log != null) {
+				log.delete();
+			}
+		}
+
+	}
+
+}
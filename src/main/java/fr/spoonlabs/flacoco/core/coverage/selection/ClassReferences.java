@@ -0,0 +1,122 @@
+package fr.spoonlabs.flacoco.core.coverage.selection;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import org.apache.log4j.Logger;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * References between the classes of the binary directories, read from the constant pools of their class files.
+ * Classes only loaded through reflection are not seen.
+ */
+public class ClassReferences {
+
+	private static final int CONSTANT_CLASS_TAG = 7;
+
+	private Logger logger = Logger.getLogger(ClassReferences.class);
+
+	private FlacocoConfig config;
+
+	/**
+	 * Key is the internal name of a class, value is the internal names of the classes it references
+	 */
+	private Map<String, Set<String>> references = new HashMap<>();
+
+	/**
+	 * Key is the fully qualified name of a class, value is the fully qualified names of the reachable classes
+	 */
+	private Map<String, Set<String>> reachableClasses = new HashMap<>();
+
+	public ClassReferences(FlacocoConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * @param className Fully qualified name of the class
+	 * @return The fully qualified names of the classes reachable from the class, itself included, or null if its
+	 * class file is not in the binary directories or a class file could not be read
+	 */
+	public Set<String> getReachableClasses(String className) {
+		return reachableClasses.computeIfAbsent(className, x -> {
+			if (findClassFile(x.replace(".", "/")) == null) {
+				return null;
+			}
+
+			Set<String> visited = new HashSet<>();
+			Deque<String> toVisit = new ArrayDeque<>();
+			toVisit.add(x.replace(".", "/"));
+			while (!toVisit.isEmpty()) {
+				String internalName = toVisit.poll();
+				if (visited.add(internalName)) {
+					Set<String> classReferences = getReferences(internalName);
+					if (classReferences == null) {
+						return null;
+					}
+					toVisit.addAll(classReferences);
+				}
+			}
+
+			Set<String> result = new HashSet<>();
+			for (String internalName : visited) {
+				result.add(internalName.replace("/", "."));
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * @return The internal names of the classes referenced in the constant pool of the class file, an empty set
+	 * if the class file is not in the binary directories, or null if it could not be read
+	 */
+	private Set<String> getReferences(String className) {
+		return references.computeIfAbsent(className, x -> {
+			File classFile = findClassFile(x);
+			if (classFile == null) {
+				return Collections.emptySet();
+			}
+
+			try {
+				ClassReader reader = new ClassReader(Files.readAllBytes(classFile.toPath()));
+				char[] buffer = new char[reader.getMaxStringLength()];
+				Set<String> result = new HashSet<>();
+				for (int i = 1; i < reader.getItemCount(); i++) {
+					int offset = reader.getItem(i);
+					// The second slot of long and double constants has no offset
+					if (offset > 0 && reader.readByte(offset - 1) == CONSTANT_CLASS_TAG) {
+						String name = reader.readUTF8(offset, buffer);
+						// Array classes reference their element type
+						if (name.startsWith("[")) {
+							int start = name.indexOf('L');
+							if (start < 0) {
+								continue;
+							}
+							name = name.substring(start + 1, name.length() - 1);
+						}
+						result.add(name);
+					}
+				}
+				return result;
+			} catch (IOException | RuntimeException e) {
+				this.logger.warn("Could not read the class file " + classFile + ": " + e);
+				return null;
+			}
+		});
+	}
+
+	private File findClassFile(String className) {
+		List<String> dirs = new ArrayList<>(config.getBinJavaDir());
+		dirs.addAll(config.getBinTestDir());
+		for (String dir : dirs) {
+			File classFile = new File(dir, className + ".class");
+			if (classFile.isFile()) {
+				return classFile;
+			}
+		}
+		return null;
+	}
+
+}
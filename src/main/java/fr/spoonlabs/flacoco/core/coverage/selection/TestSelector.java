@@ -0,0 +1,46 @@
+package fr.spoonlabs.flacoco.core.coverage.selection;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.CoverageFromSingleTestUnit;
+import fr.spoonlabs.flacoco.core.coverage.cache.CoverageCache;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+
+import java.util.Set;
+
+/**
+ * Selects the test methods that may cover a given set of classes, so that the other ones need not be executed.
+ * <p>
+ * A test method is selected if its cached coverage, when up-to-date, includes one of the classes. Otherwise, it is
+ * selected if one of the classes is reachable from its test class, see {@link ClassReferences}.
+ */
+public class TestSelector {
+
+	private CoverageCache cache;
+
+	private ClassReferences classReferences;
+
+	/**
+	 * @param cache Cache to look for the coverage of test methods, or null to only use the class references
+	 */
+	public TestSelector(FlacocoConfig config, CoverageCache cache) {
+		this.cache = cache;
+		this.classReferences = new ClassReferences(config);
+	}
+
+	/**
+	 * @param classes Fully qualified names of the classes
+	 * @return true if the test method may cover one of the classes
+	 */
+	public boolean isSelected(TestMethod testMethod, Set<String> classes) {
+		CoverageFromSingleTestUnit cachedCoverage = cache == null ? null : cache.get(testMethod);
+		if (cachedCoverage != null && cachedCoverage.getCov() != null) {
+			return cachedCoverage.getCov().getDetailedCoverage().keySet().stream()
+					.anyMatch(x -> classes.contains(x.replace("/", ".")));
+		}
+
+		// Test classes whose class file cannot be analyzed are always selected
+		Set<String> reachable = classReferences.getReachableClasses(testMethod.getFullyQualifiedClassName());
+		return reachable == null || classes.stream().anyMatch(reachable::contains);
+	}
+
+}
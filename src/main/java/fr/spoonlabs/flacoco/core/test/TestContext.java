@@ -5,7 +5,13 @@ import fr.spoonlabs.flacoco.core.test.method.TestMethod;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Contains a list of TestMethod's to be ran using the specified TestFrameworkStrategy
@@ -35,6 +41,94 @@ public class TestContext {
 		return testFrameworkStrategy;
 	}
 
+	/**
+	 * Splits this context into at most numberOfShards contexts with the same TestFrameworkStrategy.
+	 * Test classes are never split, and are balanced over the shards by number of test methods.
+	 *
+	 * @param numberOfShards Maximum number of shards
+	 * @return The non-empty shards, each keeping the original order of its test methods
+	 */
+	public List<TestContext> splitByTestClass(int numberOfShards) {
+		Map<String, List<TestMethod>> methodsPerClass = testMethods.stream()
+				.collect(Collectors.groupingBy(TestMethod::getFullyQualifiedClassName, LinkedHashMap::new, Collectors.toList()));
+		if (numberOfShards <= 1 || methodsPerClass.size() <= 1) {
+			List<TestContext> shards = new ArrayList<>();
+			shards.add(this);
+			return shards;
+		}
+
+		// Greedily assign the biggest classes first to the least loaded shard
+		int[] loads = new int[Math.min(numberOfShards, methodsPerClass.size())];
+		Map<String, Integer> shardOfClass = new LinkedHashMap<>();
+		methodsPerClass.entrySet().stream()
+				.sorted(Comparator.comparingInt((Map.Entry<String, List<TestMethod>> x) -> x.getValue().size()).reversed())
+				.forEachOrdered(entry -> {
+					int shard = 0;
+					for (int i = 1; i < loads.length; i++) {
+						if (loads[i] < loads[shard]) {
+							shard = i;
+						}
+					}
+					loads[shard] += entry.getValue().size();
+					shardOfClass.put(entry.getKey(), shard);
+				});
+
+		List<TestContext> shards = new ArrayList<>();
+		for (int i = 0; i < loads.length; i++) {
+			shards.add(new TestContext(testFrameworkStrategy));
+		}
+		for (TestMethod testMethod : testMethods) {
+			shards.get(shardOfClass.get(testMethod.getFullyQualifiedClassName())).testMethods.add(testMethod);
+		}
+		return shards;
+	}
+
+	/**
+	 * Splits this context into two halves with the same TestFrameworkStrategy.
+	 * Test classes are only split if this context contains a single test class.
+	 *
+	 * @return The two non-empty halves, each keeping the original order of its test methods, or this context alone if
+	 * it contains a single test method
+	 */
+	public List<TestContext> bisect() {
+		List<TestContext> halves = new ArrayList<>();
+		if (testMethods.size() <= 1) {
+			halves.add(this);
+			return halves;
+		}
+
+		Map<String, List<TestMethod>> methodsPerClass = testMethods.stream()
+				.collect(Collectors.groupingBy(TestMethod::getFullyQualifiedClassName, LinkedHashMap::new, Collectors.toList()));
+		TestContext firstHalf = new TestContext(testFrameworkStrategy);
+		TestContext secondHalf = new TestContext(testFrameworkStrategy);
+		if (methodsPerClass.size() == 1) {
+			int middle = testMethods.size() / 2;
+			firstHalf.testMethods.addAll(testMethods.subList(0, middle));
+			secondHalf.testMethods.addAll(testMethods.subList(middle, testMethods.size()));
+		} else {
+			// The first classes go to the first half, as long as it does not exceed half of the test methods
+			Set<String> firstHalfClasses = new HashSet<>();
+			int firstHalfSize = 0;
+			for (Map.Entry<String, List<TestMethod>> entry : methodsPerClass.entrySet()) {
+				if (!firstHalfClasses.isEmpty() && firstHalfSize + entry.getValue().size() > testMethods.size() / 2) {
+					break;
+				}
+				firstHalfClasses.add(entry.getKey());
+				firstHalfSize += entry.getValue().size();
+			}
+			for (TestMethod testMethod : testMethods) {
+				if (firstHalfClasses.contains(testMethod.getFullyQualifiedClassName())) {
+					firstHalf.testMethods.add(testMethod);
+				} else {
+					secondHalf.testMethods.add(testMethod);
+				}
+			}
+		}
+		halves.add(firstHalf);
+		halves.add(secondHalf);
+		return halves;
+	}
+
 	@Override
 	public String toString() {
 		return "TestContext{" +
@@ -1,8 +1,8 @@
 package fr.spoonlabs.flacoco.core.test;
 
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
-import fr.spoonlabs.flacoco.core.coverage.framework.JUnit4Strategy;
-import fr.spoonlabs.flacoco.core.coverage.framework.JUnit5Strategy;
+import fr.spoonlabs.flacoco.core.coverage.SymbolTable;
+import fr.spoonlabs.flacoco.core.coverage.framework.TestFrameworkStrategy;
 import fr.spoonlabs.flacoco.core.test.method.StringTestMethod;
 import fr.spoonlabs.flacoco.core.test.method.TestMethod;
 import fr.spoonlabs.flacoco.core.test.strategies.classloader.ClassloaderStrategy;
@@ -22,6 +22,11 @@ public class TestDetector {
 	private Logger logger = Logger.getLogger(TestDetector.class);
 	private FlacocoConfig config;
 
+	/**
+	 * Class names of the tests given in the config, shared by their test methods
+	 */
+	private SymbolTable symbols = new SymbolTable();
+
 	public TestDetector(FlacocoConfig config) {
 		this.config = config;
 	}
@@ -50,20 +55,20 @@ public class TestDetector {
 		List<TestContext> result = new ArrayList<>();
 
 		if (!this.config.getjUnit4Tests().isEmpty()) {
-			TestContext jUnit4Context = new TestContext(new JUnit4Strategy(config));
+			TestContext jUnit4Context = new TestContext(TestFrameworkStrategy.forJUnit4(config));
 			jUnit4Context.addTestMethods(
 					config.getjUnit4Tests().stream()
-							.map(x -> new StringTestMethod(x.split("#")[0], x.split("#")[1]))
+							.map(x -> new StringTestMethod(symbols.intern(x.split("#")[0]), x.split("#")[1]))
 							.filter(x -> !isIgnored(x, config.getIgnoredTests()))
 							.collect(Collectors.toList())
 			);
 			result.add(jUnit4Context);
 		}
 		if (!this.config.getjUnit5Tests().isEmpty()) {
-			TestContext jUnit5Context = new TestContext(new JUnit5Strategy(config));
+			TestContext jUnit5Context = new TestContext(TestFrameworkStrategy.forJUnit5(config));
 			jUnit5Context.addTestMethods(
 					config.getjUnit5Tests().stream()
-							.map(x -> new StringTestMethod(x.split("#")[0], x.split("#")[1]))
+							.map(x -> new StringTestMethod(symbols.intern(x.split("#")[0]), x.split("#")[1]))
 							.filter(x -> !isIgnored(x, config.getIgnoredTests()))
 							.collect(Collectors.toList())
 			);
@@ -21,11 +21,14 @@ public class SpoonTestMethod implements TestMethod {
 
     private String fullyQualifiedMethodName;
 
+    private int hashCode;
+
     public SpoonTestMethod(CtType<?> testClassModel, CtMethod<?> testMethodModel) {
         this.testClassModel = testClassModel;
         this.testMethodModel = testMethodModel;
         this.fullyQualifiedClassName = testClassModel.getQualifiedName();
         this.fullyQualifiedMethodName = fullyQualifiedClassName + "#" + testMethodModel.getSimpleName();
+        this.hashCode = Objects.hash(fullyQualifiedMethodName);
     }
 
     public CtType<?> getTestClassModel() {
@@ -54,11 +57,11 @@ public class SpoonTestMethod implements TestMethod {
         if (this == o) return true;
         if (o == null || getClass().getSuperclass() != o.getClass().getSuperclass()) return false;
         TestMethod that = (TestMethod) o;
-        return Objects.equals(getFullyQualifiedMethodName(), that.getFullyQualifiedMethodName());
+        return hashCode == that.hashCode() && Objects.equals(getFullyQualifiedMethodName(), that.getFullyQualifiedMethodName());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getFullyQualifiedMethodName());
+        return hashCode;
     }
 }
\ No newline at end of file
@@ -11,11 +11,18 @@ public class StringTestMethod implements TestMethod {
 
     private String fullyQualifiedClassName;
 
+    /**
+     * Not interned, unlike the class name: it is unique to each test method, so a symbol table would only add an
+     * entry per test method without sharing any string
+     */
     private String fullyQualifiedMethodName;
 
+    private int hashCode;
+
     public StringTestMethod(String fullyQualifiedClassName, String simpleMethodName) {
         this.fullyQualifiedClassName = fullyQualifiedClassName;
         this.fullyQualifiedMethodName = fullyQualifiedClassName + "#" + simpleMethodName;
+        this.hashCode = Objects.hash(fullyQualifiedMethodName);
     }
 
     public String getFullyQualifiedClassName() {
@@ -36,11 +43,11 @@ public class StringTestMethod implements TestMethod {
         if (this == o) return true;
         if (o == null || getClass().getSuperclass() != o.getClass().getSuperclass()) return false;
         TestMethod that = (TestMethod) o;
-        return Objects.equals(getFullyQualifiedMethodName(), that.getFullyQualifiedMethodName());
+        return hashCode == that.hashCode() && Objects.equals(getFullyQualifiedMethodName(), that.getFullyQualifiedMethodName());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getFullyQualifiedMethodName());
+        return hashCode;
     }
 }
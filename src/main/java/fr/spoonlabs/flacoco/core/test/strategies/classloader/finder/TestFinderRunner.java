@@ -1,8 +1,7 @@
 package fr.spoonlabs.flacoco.core.test.strategies.classloader.finder;
 
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
-import fr.spoonlabs.flacoco.core.coverage.framework.JUnit4Strategy;
-import fr.spoonlabs.flacoco.core.coverage.framework.JUnit5Strategy;
+import fr.spoonlabs.flacoco.core.coverage.framework.TestFrameworkStrategy;
 import fr.spoonlabs.flacoco.core.test.TestContext;
 import fr.spoonlabs.flacoco.core.test.strategies.classloader.finder.classes.impl.ClassloaderFinder;
 import fr.spoonlabs.flacoco.core.test.strategies.classloader.finder.filters.TestMethodFilter;
@@ -33,7 +32,7 @@ public class TestFinderRunner implements Callable<List<TestContext>> {
                 classloaderFinder,
                 new TestMethodFilter(EnumSet.of(TestType.JUNIT3_TEST, TestType.JUNIT4_TEST), config.getIgnoredTests())
         );
-        TestContext jUnit4Context = new TestContext(new JUnit4Strategy(config));
+        TestContext jUnit4Context = new TestContext(TestFrameworkStrategy.forJUnit4(config));
         jUnit4Context.addTestMethods(processor.process());
 
         // collect JUnit5 compatible tests
@@ -41,7 +40,7 @@ public class TestFinderRunner implements Callable<List<TestContext>> {
                 classloaderFinder,
                 new TestMethodFilter(EnumSet.of(TestType.JUNIT5_TEST), config.getIgnoredTests())
         );
-        TestContext jUnit5Context = new TestContext(new JUnit5Strategy(config));
+        TestContext jUnit5Context = new TestContext(TestFrameworkStrategy.forJUnit5(config));
         jUnit5Context.addTestMethods(processor.process());
 
         // We only want to return those that have test units
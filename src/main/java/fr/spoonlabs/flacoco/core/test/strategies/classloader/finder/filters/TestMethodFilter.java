@@ -32,21 +32,24 @@ public class TestMethodFilter {
             return testMethods;
         }
 
+        // Shared by all the test methods of the class
+        String className = clazz.getCanonicalName();
+
         // check all available filters
         if (isInSuiteTypes(TestType.JUNIT5_TEST)) {
-            testMethods.addAll(acceptJUnit5Test(clazz));
+            testMethods.addAll(acceptJUnit5Test(clazz, className));
         }
         if (isInSuiteTypes(TestType.JUNIT4_TEST)) {
-            testMethods.addAll(acceptJUnit4Test(clazz));
+            testMethods.addAll(acceptJUnit4Test(clazz, className));
         }
         if (isInSuiteTypes(TestType.JUNIT3_TEST)) {
-            testMethods.addAll(acceptJUnit3Test(clazz));
+            testMethods.addAll(acceptJUnit3Test(clazz, className));
         }
 
         return testMethods;
     }
 
-    private List<TestMethod> acceptJUnit3Test(Class<?> clazz) {
+    private List<TestMethod> acceptJUnit3Test(Class<?> clazz, String className) {
         List<TestMethod> testMethods = new ArrayList<>();
 
         try {
@@ -59,7 +62,7 @@ public class TestMethodFilter {
                             && method.getName().startsWith("test")
                             && !isIgnoredMethod(clazz, method)
                     ) {
-                        testMethods.add(new StringTestMethod(clazz.getCanonicalName(), method.getName()));
+                        testMethods.add(new StringTestMethod(className, method.getName()));
                     }
                 }
             }
@@ -70,13 +73,13 @@ public class TestMethodFilter {
         return testMethods;
     }
 
-    private List<TestMethod> acceptJUnit4Test(Class<?> clazz) {
+    private List<TestMethod> acceptJUnit4Test(Class<?> clazz, String className) {
         List<TestMethod> testMethods = new ArrayList<>();
 
         try {
             for (Method method : clazz.getMethods()) {
                 if (method.getAnnotation(org.junit.Test.class) != null && !isIgnoredMethod(clazz, method)) {
-                    testMethods.add(new StringTestMethod(clazz.getCanonicalName(), method.getName()));
+                    testMethods.add(new StringTestMethod(className, method.getName()));
                 }
             }
         } catch (NoClassDefFoundError ignore) {
@@ -86,7 +89,7 @@ public class TestMethodFilter {
         return testMethods;
     }
 
-    private List<TestMethod> acceptJUnit5Test(Class<?> clazz) {
+    private List<TestMethod> acceptJUnit5Test(Class<?> clazz, String className) {
         List<TestMethod> testMethods = new ArrayList<>();
 
         try {
@@ -97,7 +100,7 @@ public class TestMethodFilter {
                         && !isPrivateMethod(method)
                         && !isIgnoredMethod(clazz, method)
                 ) {
-                    testMethods.add(new StringTestMethod(clazz.getCanonicalName(), method.getName()));
+                    testMethods.add(new StringTestMethod(className, method.getName()));
                 }
             }
         } catch (NoClassDefFoundError ignore) {
@@ -2,8 +2,7 @@ package fr.spoonlabs.flacoco.core.test.strategies.testrunner;
 
 import eu.stamp_project.testrunner.test_framework.TestFramework;
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
-import fr.spoonlabs.flacoco.core.coverage.framework.JUnit4Strategy;
-import fr.spoonlabs.flacoco.core.coverage.framework.JUnit5Strategy;
+import fr.spoonlabs.flacoco.core.coverage.framework.TestFrameworkStrategy;
 import fr.spoonlabs.flacoco.core.test.TestContext;
 import fr.spoonlabs.flacoco.core.test.TestDetector;
 import fr.spoonlabs.flacoco.core.test.method.SpoonTestMethod;
@@ -45,8 +44,8 @@ public class TestRunnerStrategy implements TestDetectionStrategy {
         // Init test framework
         TestFramework.init(launcher.getFactory());
 
-        TestContext jUnit4Context = new TestContext(new JUnit4Strategy(config));
-        TestContext jUnit5Context = new TestContext(new JUnit5Strategy(config));
+        TestContext jUnit4Context = new TestContext(TestFrameworkStrategy.forJUnit4(config));
+        TestContext jUnit5Context = new TestContext(TestFrameworkStrategy.forJUnit5(config));
 
         for (CtType<?> ctType : TestFramework.getAllTestClasses()) {
 
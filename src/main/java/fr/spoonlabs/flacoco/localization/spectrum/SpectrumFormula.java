@@ -1,11 +1,17 @@
 package fr.spoonlabs.flacoco.localization.spectrum;
 
-import fr.spoonlabs.flacoco.localization.spectrum.formulas.Formula;
-import fr.spoonlabs.flacoco.localization.spectrum.formulas.OchiaiFormula;
+import fr.spoonlabs.flacoco.localization.spectrum.formulas.*;
 
 public enum SpectrumFormula {
 
-	OCHIAI(new OchiaiFormula());
+	OCHIAI(new OchiaiFormula()),
+	TARANTULA(new TarantulaFormula()),
+	DSTAR(new DStarFormula()),
+	OP2(new Op2Formula()),
+	BARINEL(new BarinelFormula()),
+	JACCARD(new JaccardFormula()),
+	KULCZYNSKI2(new Kulczynski2Formula()),
+	ZOLTAR(new ZoltarFormula());
 
 	private final Formula formula;
 
@@ -5,15 +5,30 @@ import fr.spoonlabs.flacoco.api.result.Location;
 import fr.spoonlabs.flacoco.api.result.Suspiciousness;
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
 import fr.spoonlabs.flacoco.core.coverage.CoverageMatrix;
+import fr.spoonlabs.flacoco.core.coverage.CoverageMatrixReader;
+import fr.spoonlabs.flacoco.core.coverage.CoverageMatrixWriter;
 import fr.spoonlabs.flacoco.core.coverage.CoverageRunner;
+import fr.spoonlabs.flacoco.core.coverage.CoverageSpectrum;
 import fr.spoonlabs.flacoco.core.test.TestContext;
 import fr.spoonlabs.flacoco.core.test.TestDetector;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
 import fr.spoonlabs.flacoco.localization.FaultLocalizationRunner;
+import fr.spoonlabs.flacoco.localization.spectrum.formulas.Formula;
 import fr.spoonlabs.flacoco.utils.spoon.SpoonConverter;
 import org.apache.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 public class SpectrumRunner implements FaultLocalizationRunner {
 
@@ -21,38 +36,201 @@ public class SpectrumRunner implements FaultLocalizationRunner {
 
     private FlacocoConfig config;
 
+    private List<TestContext> tests;
+
+    private CoverageRunner coverageRunner;
+
+    /**
+     * Coverage matrix of the last run, kept to run again only the tests affected by a change. Null if the spectrum
+     * was read from a file.
+     */
+    private CoverageMatrix coverageMatrix;
+
+    /**
+     * Spectrum scored by the last run, the coverage matrix or the one read from a file
+     */
+    private CoverageSpectrum spectrum;
+
+    /**
+     * Suspiciousness of the lines computed by the last run, for each formula
+     */
+    private List<Map<Location, Suspiciousness>> mappings;
+
+    /**
+     * Result of the last run, detached from the coverage matrix before the matrix is updated
+     */
+    private FlacocoResult result;
+
     public SpectrumRunner(FlacocoConfig config) {
+        this(config, null, null);
+    }
+
+    /**
+     * @param tests          The tests to run, or null to detect them
+     * @param coverageRunner The runner computing the coverage of the tests, or null to create one
+     */
+    public SpectrumRunner(FlacocoConfig config, List<TestContext> tests, CoverageRunner coverageRunner) {
         this.config = config;
+        this.tests = tests;
+        this.coverageRunner = coverageRunner;
     }
 
     @Override
     public FlacocoResult run() {
-        FlacocoResult result = new FlacocoResult();
+        this.logger.debug("Running spectrum-based fault localization...");
+        this.logger.debug(this.config);
+        if (config.getFromMatrix() != null) {
+            this.coverageMatrix = null;
+            this.spectrum = readCoverageMatrix();
+        } else {
+            this.coverageMatrix = computeCoverageMatrix();
+            this.spectrum = coverageMatrix;
+        }
+
+        List<SpectrumFormula> formulas = getFormulas();
+        SpectrumSuspiciousComputation ssc = new SpectrumSuspiciousComputation(config);
+        this.mappings = ssc.calculateSuspicious(spectrum,
+                formulas.stream().map(SpectrumFormula::getFormula).collect(Collectors.toList()));
+
+        return computeResult(formulas);
+    }
+
+    /**
+     * Updates the results of the last run after a change of the given lines, executing again only the tests that
+     * executed a line of the changed classes, or that belong to a changed class. Only the suspiciousness of the
+     * lines executed by these tests, before or after the change, is computed again, unless the numbers of passing
+     * and failing tests changed.
+     * <p>
+     * The results of the last run are detached from the coverage matrix before it is updated, so that they keep
+     * their test cases. Everything is computed again if the coverage matrix of the last run is partial or was read
+     * from a file.
+     *
+     * @param changedLocations Lines changed since the last run
+     * @param coverageRunner   The runner computing the coverage of the affected tests, created for the changed class
+     *                         files
+     */
+    public FlacocoResult relocalize(Collection<Location> changedLocations, CoverageRunner coverageRunner) {
+        this.coverageRunner = coverageRunner;
+        // Lines not covered by failing tests, or out of the most suspicious classes, are missing from partial matrices
+        boolean partialMatrix = config.getHierarchicalTopMethods() > 0
+                || ((config.isFailingTestsFirst() || config.isTestSelection()) && !config.isIncludeZeros());
+        if (coverageMatrix == null || partialMatrix) {
+            return run();
+        }
 
-        CoverageMatrix coverageMatrix = computeCoverageMatrix();
-        result.setFailingTests(coverageMatrix.getFailingTestCases());
+        // Line numbers after the changed lines may have moved, so the whole classes are executed again
+        Set<String> changedClasses = changedLocations.stream()
+                .map(Location::getClassName)
+                .collect(Collectors.toSet());
+        Set<TestMethod> affectedTests = coverageMatrix.getTestsExecutingClasses(changedClasses);
+        coverageMatrix.getTests().keySet().stream()
+                .filter(x -> changedClasses.contains(x.getFullyQualifiedClassName()))
+                .forEach(affectedTests::add);
+        this.logger.info("Tests affected by the change of " + changedClasses.size() + " classes: "
+                + affectedTests.size());
 
+        int nrTestPassing = coverageMatrix.getNumberOfPassingTests();
+        int nrTestFailing = coverageMatrix.getNumberOfFailingTests();
+        BitSet affectedLocations = coverageMatrix.getExecutedLocations(affectedTests);
+        result.detach();
+        coverageRunner.updateCoverageMatrix(coverageMatrix, tests, affectedTests);
+        affectedLocations.or(coverageMatrix.getExecutedLocations(affectedTests));
+
+        List<SpectrumFormula> formulas = getFormulas();
+        List<Formula> formulaList = formulas.stream().map(SpectrumFormula::getFormula).collect(Collectors.toList());
         SpectrumSuspiciousComputation ssc = new SpectrumSuspiciousComputation(config);
-        Map<Location, Suspiciousness> defaultMapping = ssc.calculateSuspicious(coverageMatrix, this.config.getSpectrumFormula().getFormula());
-        result.setDefaultSuspiciousnessMap(defaultMapping);
+        // Every score depends on the numbers of passing and failing tests, and truncated results cannot be updated
+        if (nrTestPassing != coverageMatrix.getNumberOfPassingTests()
+                || nrTestFailing != coverageMatrix.getNumberOfFailingTests() || config.getTopK() > 0) {
+            this.mappings = ssc.calculateSuspicious(coverageMatrix, formulaList);
+        } else {
+            this.logger.debug("Lines whose suspiciousness is computed again: " + affectedLocations.cardinality());
+            this.mappings = ssc.recalculateSuspicious(coverageMatrix, formulaList, mappings, affectedLocations);
+        }
+
+        return computeResult(formulas);
+    }
+
+    /**
+     * @return The spectrum formula, followed by the additional ones
+     */
+    private List<SpectrumFormula> getFormulas() {
+        List<SpectrumFormula> formulas = new ArrayList<>();
+        formulas.add(this.config.getSpectrumFormula());
+        this.config.getAdditionalSpectrumFormulas().stream()
+                .filter(x -> x != this.config.getSpectrumFormula())
+                .sorted()
+                .forEach(formulas::add);
+        return formulas;
+    }
+
+    private FlacocoResult computeResult(List<SpectrumFormula> formulas) {
+        FlacocoResult result = new FlacocoResult();
+        result.setFailingTests(spectrum.getFailingTestCases());
+
+        Map<SpectrumFormula, Map<Location, Suspiciousness>> formulaMappings = new LinkedHashMap<>();
+        for (int i = 0; i < formulas.size(); i++) {
+            formulaMappings.put(formulas.get(i), mappings.get(i));
+        }
+        result.setDefaultSuspiciousnessMap(mappings.get(0));
+        result.setFormulaSuspiciousnessMaps(formulaMappings);
 
         if (config.isComputeSpoonResults()) {
             result = new SpoonConverter(config).convertResult(result);
         }
 
+        this.result = result;
         return result;
     }
 
+    private CoverageSpectrum readCoverageMatrix() {
+        this.logger.info("Reading the coverage matrix from " + config.getFromMatrix());
+        try {
+            return new CoverageMatrixReader().read(new File(config.getFromMatrix()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private CoverageMatrix computeCoverageMatrix() {
-        this.logger.debug("Running spectrum-based fault localization...");
-        this.logger.debug(this.config);
+        try {
+            // Get the tests
+            if (this.tests == null) {
+                this.tests = new TestDetector(config).getTests();
+            }
 
-        // Get the tests
-        TestDetector testDetector = new TestDetector(config);
-        List<TestContext> tests = testDetector.getTests();
+            CoverageRunner detector = this.coverageRunner != null ? this.coverageRunner : new CoverageRunner(config);
 
-        CoverageRunner detector = new CoverageRunner(config);
+            CoverageMatrix coverageMatrix = config.getHierarchicalTopMethods() > 0
+                    ? computeHierarchicalCoverageMatrix(detector, tests)
+                    : detector.getCoverageMatrix(tests);
+
+            if (config.getSaveMatrix() != null) {
+                this.logger.info("Saving the coverage matrix to " + config.getSaveMatrix());
+                new CoverageMatrixWriter().write(coverageMatrix, new File(config.getSaveMatrix()));
+            }
+            return coverageMatrix;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Ranks the methods with the spectrum formula, and computes the line coverage of the classes containing the
+     * most suspicious methods only
+     */
+    private CoverageMatrix computeHierarchicalCoverageMatrix(CoverageRunner detector, List<TestContext> tests) {
+        CoverageMatrix methodCoverageMatrix = detector.getMethodCoverageMatrix(tests);
+
+        SpectrumSuspiciousComputation ssc = new SpectrumSuspiciousComputation(config);
+        Map<Location, Suspiciousness> methods = ssc.calculateSuspicious(methodCoverageMatrix,
+                Collections.singletonList(this.config.getSpectrumFormula().getFormula()),
+                config.getHierarchicalTopMethods()).get(0);
+        Set<String> classes = methods.keySet().stream()
+                .map(Location::getClassName)
+                .collect(Collectors.toCollection(TreeSet::new));
+        this.logger.info("Classes containing the top " + config.getHierarchicalTopMethods() + " methods: " + classes);
 
-        return detector.getCoverageMatrix(tests);
+        return detector.getCoverageMatrix(tests, classes, methodCoverageMatrix);
     }
 }
\ No newline at end of file
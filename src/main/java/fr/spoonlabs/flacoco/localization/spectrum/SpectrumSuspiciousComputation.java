@@ -3,8 +3,7 @@ package fr.spoonlabs.flacoco.localization.spectrum;
 import fr.spoonlabs.flacoco.api.result.Location;
 import fr.spoonlabs.flacoco.api.result.Suspiciousness;
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
-import fr.spoonlabs.flacoco.core.coverage.CoverageMatrix;
-import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import fr.spoonlabs.flacoco.core.coverage.CoverageSpectrum;
 import fr.spoonlabs.flacoco.localization.spectrum.formulas.Formula;
 import org.apache.log4j.Logger;
 
@@ -20,6 +19,14 @@ public class SpectrumSuspiciousComputation {
 
 	private Logger logger = Logger.getLogger(SpectrumSuspiciousComputation.class);
 
+	/**
+	 * Orders the lines from the most to the least suspicious, ties are broken by line number and then by class name
+	 */
+	private static final Comparator<Map.Entry<Location, Suspiciousness>> RANKING =
+			Map.Entry.<Location, Suspiciousness>comparingByValue().reversed()
+					.thenComparing(x -> x.getKey().getLineNumber())
+					.thenComparing(x -> x.getKey().getClassName());
+
 	private FlacocoConfig config;
 
 	public SpectrumSuspiciousComputation(FlacocoConfig config) {
@@ -33,49 +40,133 @@ public class SpectrumSuspiciousComputation {
 	 * @return a map where the keys are the lines and the values are the suspicious
 	 * values
 	 */
-	public Map<Location, Suspiciousness> calculateSuspicious(CoverageMatrix matrix, Formula formula) {
+	public Map<Location, Suspiciousness> calculateSuspicious(CoverageSpectrum matrix, Formula formula) {
+		return calculateSuspicious(matrix, Collections.singletonList(formula)).get(0);
+	}
+
+	/**
+	 * Computes the suspiciousness of the lines for several formulas, counting the executions of each line once
+	 *
+	 * @param matrix   matrix with the coverage
+	 * @param formulas the formulas to compute the suspiciousness
+	 * @return for each formula, in the same order, a map where the keys are the lines and the values are the
+	 * suspicious values
+	 */
+	public List<Map<Location, Suspiciousness>> calculateSuspicious(CoverageSpectrum matrix, List<Formula> formulas) {
+		return calculateSuspicious(matrix, formulas, config.getTopK());
+	}
+
+	/**
+	 * @param topK Number of most suspicious lines to keep for each formula, all of them if 0
+	 */
+	public List<Map<Location, Suspiciousness>> calculateSuspicious(CoverageSpectrum matrix, List<Formula> formulas,
+																	int topK) {
+		List<Map<Location, Suspiciousness>> results = new ArrayList<>();
+		for (int i = 0; i < formulas.size(); i++) {
+			results.add(new HashMap<>());
+		}
+
+		BitSet locationIds = new BitSet();
+		locationIds.set(0, matrix.getLocations().size());
+		score(matrix, formulas, results, locationIds);
+
+		// Sort by suspicious and return
+		return results.stream().map(x -> rank(x, topK)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Computes the suspiciousness of the given lines only, the other lines keep their previous suspiciousness. This
+	 * is only valid if the numbers of passing and failing test methods did not change since the previous
+	 * computation.
+	 *
+	 * @param previous    for each formula, the previous suspiciousness of all the lines, as computed with a topK of 0
+	 * @param locationIds ids of the lines whose executing test methods changed since the previous computation
+	 * @return for each formula, in the same order, a map where the keys are the lines and the values are the
+	 * suspicious values
+	 */
+	public List<Map<Location, Suspiciousness>> recalculateSuspicious(CoverageSpectrum matrix, List<Formula> formulas,
+																	  List<Map<Location, Suspiciousness>> previous,
+																	  BitSet locationIds) {
+		List<Location> locations = matrix.getLocations();
+		List<Map<Location, Suspiciousness>> results = new ArrayList<>();
+		for (Map<Location, Suspiciousness> previousResult : previous) {
+			Map<Location, Suspiciousness> result = new HashMap<>(previousResult);
+			for (int locationId = locationIds.nextSetBit(0); locationId >= 0; locationId = locationIds.nextSetBit(locationId + 1)) {
+				result.remove(locations.get(locationId));
+			}
+			results.add(result);
+		}
+
+		score(matrix, formulas, results, locationIds);
+
+		// Sort by suspicious and return
+		return results.stream().map(x -> rank(x, config.getTopK())).collect(Collectors.toList());
+	}
+
+	/**
+	 * Adds the suspiciousness of the given lines to the results of each formula
+	 */
+	private void score(CoverageSpectrum matrix, List<Formula> formulas, List<Map<Location, Suspiciousness>> results,
+					   BitSet locationIds) {
+		List<Location> locations = matrix.getLocations();
+
+		// Count the passing and failing tests executing each line, the others are derived from the totals
+		int[] nrTestPassingExecuting = new int[locations.size()];
+		int[] nrTestFailingExecuting = new int[locations.size()];
+		matrix.countExecutions(nrTestPassingExecuting, nrTestFailingExecuting, locationIds);
+		int nrTestPassing = matrix.getNumberOfPassingTests();
+		int nrTestFailing = matrix.getNumberOfFailingTests();
 
-		Map<Location, Suspiciousness> result = new HashMap<>();
 		// For each line of code to analyze
-		for (Location location : matrix.getResultExecution().keySet()) {
-			List<TestMethod> testsPassingExecuting = new ArrayList<>();
-			List<TestMethod> testsFailingExecuting = new ArrayList<>();
-
-			int nrTestPassingNotExecuting = 0;
-			int nrTestFailingNotExecuting = 0;
-
-			Set<TestMethod> currentExecution = matrix.getResultExecution().get(location);
-
-			// For each test
-			for (TestMethod testMethod : matrix.getTests().keySet()) {
-				Boolean iTestPassing = matrix.getTests().get(testMethod);
-				Boolean nrExecuted = currentExecution.contains(testMethod);
-
-				if (iTestPassing && nrExecuted) {
-					testsPassingExecuting.add(testMethod);
-				} else if (!iTestPassing && nrExecuted) {
-					testsFailingExecuting.add(testMethod);
-				} else if (iTestPassing && !nrExecuted) {
-					nrTestPassingNotExecuting++;
-				} else if (!iTestPassing && !nrExecuted) {
-					nrTestFailingNotExecuting++;
-				}
+		for (int locationId = locationIds.nextSetBit(0); locationId >= 0 && locationId < locations.size();
+			 locationId = locationIds.nextSetBit(locationId + 1)) {
+			// Lines are kept in the matrix once they are no longer executed
+			if (nrTestPassingExecuting[locationId] + nrTestFailingExecuting[locationId] == 0) {
+				continue;
 			}
 
-			Double score = formula.compute(nrTestPassingNotExecuting, nrTestFailingNotExecuting,
-					testsPassingExecuting.size(), testsFailingExecuting.size());
+			for (int i = 0; i < formulas.size(); i++) {
+				double score = formulas.get(i).compute(nrTestPassing - nrTestPassingExecuting[locationId],
+						nrTestFailing - nrTestFailingExecuting[locationId],
+						nrTestPassingExecuting[locationId], nrTestFailingExecuting[locationId]);
 
-			result.put(location, new Suspiciousness(score, testsPassingExecuting, testsFailingExecuting));
+				// The executing tests are read from the matrix when requested
+				if (score >= config.getThreshold() && (score > 0.0 || config.isIncludeZeros())) {
+					results.get(i).put(locations.get(locationId), new Suspiciousness(score,
+							nrTestPassingExecuting[locationId], nrTestFailingExecuting[locationId], matrix, locationId));
+				}
+			}
 		}
+	}
 
-		// Filter according to threshold, sort by suspicious and return
-		return result.entrySet().stream()
-				.filter(x -> x.getValue().getScore() >= config.getThreshold() && (x.getValue().getScore() > 0.0 || config.isIncludeZeros()))
-				.sorted(Comparator.comparing(x -> x.getKey().getClassName()))
-				.sorted(Comparator.comparingInt(x -> x.getKey().getLineNumber()))
-				.sorted(Map.Entry.<Location, Suspiciousness>comparingByValue().reversed())
-				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
+	/**
+	 * Sorts the lines by suspiciousness. If only the top K lines are kept, they are selected with a heap of K lines
+	 * rather than sorting all of them.
+	 */
+	private Map<Location, Suspiciousness> rank(Map<Location, Suspiciousness> result, int topK) {
+		List<Map.Entry<Location, Suspiciousness>> entries;
+		if (topK > 0 && topK < result.size()) {
+			// The head of the heap is the least suspicious of the kept lines
+			PriorityQueue<Map.Entry<Location, Suspiciousness>> heap = new PriorityQueue<>(topK + 1, RANKING.reversed());
+			for (Map.Entry<Location, Suspiciousness> entry : result.entrySet()) {
+				if (heap.size() < topK) {
+					heap.add(entry);
+				} else if (RANKING.compare(entry, heap.peek()) < 0) {
+					heap.poll();
+					heap.add(entry);
+				}
+			}
+			entries = new ArrayList<>(heap);
+		} else {
+			entries = new ArrayList<>(result.entrySet());
+		}
+		entries.sort(RANKING);
 
+		Map<Location, Suspiciousness> ranking = new LinkedHashMap<>();
+		for (Map.Entry<Location, Suspiciousness> entry : entries) {
+			ranking.put(entry.getKey(), entry.getValue());
+		}
+		return ranking;
 	}
 
 }
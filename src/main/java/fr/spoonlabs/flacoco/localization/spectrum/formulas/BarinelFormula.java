@@ -0,0 +1,17 @@
+package fr.spoonlabs.flacoco.localization.spectrum.formulas;
+
+public class BarinelFormula implements Formula {
+
+	public BarinelFormula() {
+	}
+
+	public double compute(int nPassingNotExecuting, int nFailingNotExecuting, int nPassingExecuting,
+			int nFailingExecuting) {
+
+		if (nFailingExecuting + nPassingExecuting == 0) {
+			return 0;
+		}
+		return 1.0 - (double) nPassingExecuting / (nPassingExecuting + nFailingExecuting);
+	}
+
+}
@@ -0,0 +1,31 @@
+package fr.spoonlabs.flacoco.localization.spectrum.formulas;
+
+/**
+ * DStar formula, with the exponent 2 unless another one is given
+ */
+public class DStarFormula implements Formula {
+
+	private int exponent;
+
+	public DStarFormula() {
+		this(2);
+	}
+
+	public DStarFormula(int exponent) {
+		this.exponent = exponent;
+	}
+
+	public double compute(int nPassingNotExecuting, int nFailingNotExecuting, int nPassingExecuting,
+			int nFailingExecuting) {
+
+		if (nFailingExecuting == 0) {
+			return 0;
+		}
+		// Lines executed by all the failing tests and no passing test are the most suspicious ones
+		if (nPassingExecuting + nFailingNotExecuting == 0) {
+			return Double.MAX_VALUE;
+		}
+		return Math.pow(nFailingExecuting, exponent) / (nPassingExecuting + nFailingNotExecuting);
+	}
+
+}
@@ -0,0 +1,18 @@
+package fr.spoonlabs.flacoco.localization.spectrum.formulas;
+
+public class Kulczynski2Formula implements Formula {
+
+	public Kulczynski2Formula() {
+	}
+
+	public double compute(int nPassingNotExecuting, int nFailingNotExecuting, int nPassingExecuting,
+			int nFailingExecuting) {
+
+		if ((nFailingExecuting + nPassingExecuting == 0) || (nFailingExecuting + nFailingNotExecuting == 0)) {
+			return 0;
+		}
+		return 0.5 * ((double) nFailingExecuting / (nFailingExecuting + nFailingNotExecuting)
+				+ (double) nFailingExecuting / (nFailingExecuting + nPassingExecuting));
+	}
+
+}
@@ -0,0 +1,14 @@
+package fr.spoonlabs.flacoco.localization.spectrum.formulas;
+
+public class Op2Formula implements Formula {
+
+	public Op2Formula() {
+	}
+
+	public double compute(int nPassingNotExecuting, int nFailingNotExecuting, int nPassingExecuting,
+			int nFailingExecuting) {
+
+		return nFailingExecuting - nPassingExecuting / (nPassingExecuting + nPassingNotExecuting + 1.0);
+	}
+
+}
@@ -0,0 +1,20 @@
+package fr.spoonlabs.flacoco.localization.spectrum.formulas;
+
+public class TarantulaFormula implements Formula {
+
+	public TarantulaFormula() {
+	}
+
+	public double compute(int nPassingNotExecuting, int nFailingNotExecuting, int nPassingExecuting,
+			int nFailingExecuting) {
+
+		if ((nFailingExecuting + nPassingExecuting == 0) || (nFailingExecuting + nFailingNotExecuting == 0)) {
+			return 0;
+		}
+		double failingRatio = (double) nFailingExecuting / (nFailingExecuting + nFailingNotExecuting);
+		double passingRatio = nPassingExecuting + nPassingNotExecuting == 0 ? 0
+				: (double) nPassingExecuting / (nPassingExecuting + nPassingNotExecuting);
+		return failingRatio / (failingRatio + passingRatio);
+	}
+
+}
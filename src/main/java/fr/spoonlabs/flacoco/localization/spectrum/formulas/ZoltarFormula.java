@@ -0,0 +1,18 @@
+package fr.spoonlabs.flacoco.localization.spectrum.formulas;
+
+public class ZoltarFormula implements Formula {
+
+	public ZoltarFormula() {
+	}
+
+	public double compute(int nPassingNotExecuting, int nFailingNotExecuting, int nPassingExecuting,
+			int nFailingExecuting) {
+
+		if (nFailingExecuting == 0) {
+			return 0;
+		}
+		return nFailingExecuting / (nFailingExecuting + nFailingNotExecuting + nPassingExecuting
+				+ 10000.0 * nFailingNotExecuting * nPassingExecuting / nFailingExecuting);
+	}
+
+}
@@ -0,0 +1,50 @@
+package fr.spoonlabs.flacoco.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 hashes, as lowercase hexadecimal strings, used by the caches to tell if a file changed.
+ */
+public class HashUtils {
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private HashUtils() {
+	}
+
+	/**
+	 * @return A new SHA-256 digest, for hashing several parts
+	 */
+	public static MessageDigest newSha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return The SHA-256 hash of the bytes
+	 */
+	public static String sha256(byte[] bytes) {
+		return toHex(newSha256().digest(bytes));
+	}
+
+	/**
+	 * @return The hash computed by the digest, which is reset
+	 */
+	public static String toHex(MessageDigest digest) {
+		return toHex(digest.digest());
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] hex = new char[2 * bytes.length];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+}
@@ -2,37 +2,103 @@ package fr.spoonlabs.flacoco.utils.spoon;
 
 import fr.spoonlabs.flacoco.api.result.Location;
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.utils.HashUtils;
 import org.apache.log4j.Logger;
 import spoon.Launcher;
+import spoon.reflect.CtModel;
 import spoon.reflect.code.CtStatement;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.filter.TypeFilter;
 
-import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * Inspects the analyzed project to find the locations corresponding to the lines
  * executed before the line corresponding to the given stack-trace element.
+ * <p>
+ * Each source file is parsed at most once per inspector, and the locations of each stack-trace line are reused
+ * once computed. Inspectors are thread-safe, so that the locations of several stack-trace elements can be computed
+ * concurrently. When the coverage cache is enabled, the locations are also stored in the workspace, and reused as
+ * long as their source file is unchanged.
  */
 public class SpoonBlockInspector {
 
     private static final Logger logger = Logger.getLogger(SpoonBlockInspector.class);
 
+    private static final String CACHE_FILE_NAME = "flacoco-blocks.cache";
+
+    /**
+     * Smallest number of stack-trace elements whose locations are computed concurrently, below which the cost of
+     * the fork-join tasks outweighs the parsing saved
+     */
+    static final int PARALLEL_THRESHOLD = 8;
+
     private FlacocoConfig config;
 
+    /**
+     * Parsed source files, key is the absolute path of the file
+     */
+    private Map<String, CtModel> models = new ConcurrentHashMap<>();
+
+    /**
+     * Hashes of the source files, key is the absolute path of the file
+     */
+    private Map<String, String> hashes = new ConcurrentHashMap<>();
+
+    /**
+     * Locations of the blocks, key is the class name and line number of the stack-trace element, value is the hash
+     * of the source file followed by the line numbers of the locations
+     */
+    private Properties blockLocations;
+
+    private volatile boolean modified = false;
+
+    /**
+     * Pool computing the locations of large batches of stack-trace elements, created on first use. Its idle threads
+     * are daemons, and are released after a while by the pool itself.
+     */
+    private ForkJoinPool pool;
+
     public SpoonBlockInspector(FlacocoConfig config) {
         this.config = config;
+        this.blockLocations = config.isCoverageCache() ? load() : new Properties();
+    }
+
+    /**
+     * Computes the locations of the blocks of the given stack-trace elements, concurrently on the fork-join pool of
+     * the inspector when there are at least {@link #PARALLEL_THRESHOLD} elements
+     *
+     * @return The locations of the block of each stack-trace element, in the same order as the elements
+     */
+    public List<List<Location>> getBlockLocations(List<StackTraceElement> elements) {
+        if (elements.size() < PARALLEL_THRESHOLD || config.getParallelism() <= 1) {
+            return elements.stream().map(this::getBlockLocations).collect(Collectors.toList());
+        }
+
+        try {
+            return getPool().submit(() -> elements.parallelStream().map(this::getBlockLocations)
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(config.getParallelism());
+        }
+        return pool;
     }
 
     public List<Location> getBlockLocations(StackTraceElement element) {
         // Find the corresponding source code file
-        String path = element.getClassName().replace(".", "/") + ".java";
-        for (String dir : config.getSrcJavaDir()) {
-            if (new File(new File(dir), path).exists()) {
-                path = new File(new File(dir), path).getAbsolutePath();
-                break;
-            }
-        }
+        String path = getSourcePath(element.getClassName());
 
         // If we cannot find the source code file, we return an empty location list
         if (!new File(path).exists()) {
@@ -40,36 +106,132 @@ public class SpoonBlockInspector {
             return new ArrayList<>();
         }
 
+        String key = element.getClassName() + ":" + element.getLineNumber();
+        String hash = hashes.computeIfAbsent(path, SpoonBlockInspector::computeHash);
+        String cached = blockLocations.getProperty(key);
+        if (cached != null && cached.startsWith(hash + ":")) {
+            return fromLineNumbers(element.getClassName(), cached.substring(hash.length() + 1));
+        }
+
+        List<Location> locations = computeBlockLocations(path, element);
+        blockLocations.setProperty(key, hash + ":" + locations.stream()
+                .map(x -> String.valueOf(x.getLineNumber()))
+                .collect(Collectors.joining(",")));
+        modified = true;
+        return locations;
+    }
+
+    /**
+     * Discards the parsed source files of the given classes, once they changed. The locations computed from them are
+     * discarded as well, since they no longer match the hash of the source files.
+     *
+     * @param classNames Fully qualified names of the changed classes, nested classes included
+     */
+    public void invalidate(Collection<String> classNames) {
+        for (String className : classNames) {
+            // Nested classes are in the source file of their top-level class
+            int nested = className.indexOf('$');
+            String path = getSourcePath(nested < 0 ? className : className.substring(0, nested));
+            models.remove(path);
+            hashes.remove(path);
+        }
+    }
+
+    /**
+     * @return The absolute path of the source file of the class, or its relative path if it is in none of the source
+     * directories
+     */
+    private String getSourcePath(String className) {
+        String path = className.replace(".", "/") + ".java";
+        for (String dir : config.getSrcJavaDir()) {
+            if (new File(new File(dir), path).exists()) {
+                return new File(new File(dir), path).getAbsolutePath();
+            }
+        }
+        return path;
+    }
 
-        // Init spoon Launcher
-        Launcher launcher = new Launcher();
-        launcher.addInputResource(path);
-        launcher.buildModel();
-        launcher.addProcessor(new SpoonBlockLocationsFinder());
+    /**
+     * Writes the locations to the workspace, if the coverage cache is enabled
+     */
+    public synchronized void save() {
+        if (!config.isCoverageCache() || !modified) {
+            return;
+        }
+
+        File cacheFile = new File(config.getWorkspace(), CACHE_FILE_NAME);
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(cacheFile))) {
+            blockLocations.store(outputStream, null);
+            modified = false;
+        } catch (IOException e) {
+            logger.warn("Could not save the block locations to " + cacheFile, e);
+        }
+    }
+
+    private List<Location> computeBlockLocations(String path, StackTraceElement element) {
+        // Parse the source code file once
+        CtModel model = models.computeIfAbsent(path, x -> {
+            Launcher launcher = new Launcher();
+            launcher.addInputResource(x);
+            return launcher.buildModel();
+        });
 
         // Process the source code to find the block of the given stack-trace element
-        SpoonBlockLocationsFinder.fullyQualifiedClassName = element.getClassName();
-        SpoonBlockLocationsFinder.lineNumber = element.getLineNumber();
-        SpoonBlockLocationsFinder.found = null;
-        launcher.process();
+        SpoonBlockLocationsFinder finder = new SpoonBlockLocationsFinder(element.getClassName(), element.getLineNumber());
+        for (CtType<?> ctType : model.getElements(new TypeFilter<CtType<?>>(CtType.class))) {
+            if (finder.isToBeProcessed(ctType)) {
+                finder.process(ctType);
+            }
+        }
 
-        if (SpoonBlockLocationsFinder.found == null) {
+        if (finder.getFound() == null) {
             logger.debug("No block was found for stack-trace element: " + element);
             return new ArrayList<>();
         }
 
         // Process the block
         List<Location> locations = new ArrayList<>();
-        for (CtStatement ctStatement : SpoonBlockLocationsFinder.found.getStatements()) {
+        for (CtStatement ctStatement : finder.getFound().getStatements()) {
             if (ctStatement.getPosition().getLine() <= element.getLineNumber()) {
                 locations.add(new Location(element.getClassName(), ctStatement.getPosition().getLine()));
             }
         }
 
-        // Clean results
-        SpoonBlockLocationsFinder.found = null;
+        return locations;
+    }
 
+    private static List<Location> fromLineNumbers(String className, String lineNumbers) {
+        List<Location> locations = new ArrayList<>();
+        if (!lineNumbers.isEmpty()) {
+            for (String lineNumber : lineNumbers.split(",")) {
+                locations.add(new Location(className, Integer.parseInt(lineNumber)));
+            }
+        }
         return locations;
     }
 
-}
\ No newline at end of file
+    private Properties load() {
+        Properties properties = new Properties();
+        File cacheFile = new File(config.getWorkspace(), CACHE_FILE_NAME);
+        if (!cacheFile.exists()) {
+            return properties;
+        }
+
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(cacheFile))) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            logger.warn("Could not load the block locations from " + cacheFile + ", discarding them.", e);
+            properties.clear();
+        }
+        return properties;
+    }
+
+    private static String computeHash(String path) {
+        try {
+            return HashUtils.sha256(Files.readAllBytes(new File(path).toPath()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
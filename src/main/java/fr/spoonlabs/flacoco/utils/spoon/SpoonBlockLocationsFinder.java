@@ -16,10 +16,22 @@ public class SpoonBlockLocationsFinder extends AbstractProcessor<CtType<?>> {
 
     private static final Logger logger = Logger.getLogger(SpoonBlockLocationsFinder.class);
 
-    public static String fullyQualifiedClassName;
-    public static int lineNumber;
+    private String fullyQualifiedClassName;
+    private int lineNumber;
 
-    public static CtBlock<?> found;
+    private CtBlock<?> found;
+
+    public SpoonBlockLocationsFinder(String fullyQualifiedClassName, int lineNumber) {
+        this.fullyQualifiedClassName = fullyQualifiedClassName;
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * @return The block found for the given class name and line number, or null if there is none
+     */
+    public CtBlock<?> getFound() {
+        return found;
+    }
 
     @Override
     public boolean isToBeProcessed(CtType<?> candidate) {
@@ -8,8 +8,13 @@ import org.apache.log4j.Logger;
 import spoon.Launcher;
 import spoon.reflect.code.CtStatement;
 
+import java.util.AbstractMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * Converts a mapping between line numbers and suspiciousness scores into a mapping betwen
@@ -36,40 +41,29 @@ public class SpoonConverter {
 			launcher.addInputResource(dir);
 		for (String dir : config.getSrcTestDir())
 			launcher.addInputResource(dir);
-		launcher.buildModel();
-		launcher.addProcessor(new SpoonLocalizedFaultFinder());
+		SpoonStatementIndex index = new SpoonStatementIndex(launcher.buildModel());
 
 		// Convert keys
 		Map<CtStatement, Suspiciousness> result = new HashMap<>();
 		Map<Location, CtStatement> mapping = new HashMap<>();
 		Map<Location, Suspiciousness> original = flacocoResult.getDefaultSuspiciousnessMap();
+		Map<Location, CtStatement> found = find(index, original.keySet());
 		for (Location location : original.keySet()) {
-			// Compute location information
-			SpoonLocalizedFaultFinder.fullyQualifiedClassName = location.getClassName();
-			SpoonLocalizedFaultFinder.lineNumber = location.getLineNumber();
-			SpoonLocalizedFaultFinder.found = null;
-
-			// Launch processor to find the top-most CtStatement of the given line
-			launcher.process();
-
-			if (SpoonLocalizedFaultFinder.found == null) {
+			if (!found.containsKey(location)) {
 				logger.debug("Spoon found no CtStatement for the location " +
-						SpoonLocalizedFaultFinder.fullyQualifiedClassName + ":" + SpoonLocalizedFaultFinder.lineNumber);
+						location.getClassName() + ":" + location.getLineNumber());
 				continue;
 			}
+			CtStatement statement = found.get(location);
 
 			// Warning message that should never occur.
-			if (result.containsKey(SpoonLocalizedFaultFinder.found) &&
-					!result.get(SpoonLocalizedFaultFinder.found).equals(original.get(location))) {
-				logger.debug("Converting [" + location + "] to [" + SpoonLocalizedFaultFinder.found + "] resulted in a " +
+			if (result.containsKey(statement) && !result.get(statement).equals(original.get(location))) {
+				logger.debug("Converting [" + location + "] to [" + statement + "] resulted in a " +
 						"duplicate key with different suspiciouness values. Please report this to the developers of " +
 						"Flacoco on https://github.com/SpoonLabs/flacoco");
 			}
-			result.put(SpoonLocalizedFaultFinder.found, original.get(location));
-			mapping.put(location, SpoonLocalizedFaultFinder.found);
-
-			// Prepare for next key
-			SpoonLocalizedFaultFinder.found = null;
+			result.put(statement, original.get(location));
+			mapping.put(location, statement);
 		}
 
 		flacocoResult.setSpoonSuspiciousnessMap(result);
@@ -77,4 +71,23 @@ public class SpoonConverter {
 		return flacocoResult;
 	}
 
+	/**
+	 * Finds the top-most CtStatement of each location, concurrently on a fork-join pool
+	 *
+	 * @return Mapping between the locations and their CtStatement, without the locations that have none
+	 */
+	private Map<Location, CtStatement> find(SpoonStatementIndex index, Set<Location> locations) {
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, config.getParallelism()));
+		try {
+			return pool.submit(() -> locations.parallelStream()
+					.map(x -> new AbstractMap.SimpleEntry<>(x, index.find(x.getClassName(), x.getLineNumber())))
+					.filter(x -> x.getValue() != null)
+					.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))).get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 }
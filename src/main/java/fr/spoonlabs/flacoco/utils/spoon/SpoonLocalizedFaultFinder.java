@@ -17,10 +17,22 @@ public class SpoonLocalizedFaultFinder extends AbstractProcessor<CtType<?>> {
 
 	private static final Logger logger = Logger.getLogger(SpoonLocalizedFaultFinder.class);
 
-	public static String fullyQualifiedClassName;
-	public static int lineNumber;
+	private String fullyQualifiedClassName;
+	private int lineNumber;
 
-	public static CtStatement found;
+	private CtStatement found;
+
+	public SpoonLocalizedFaultFinder(String fullyQualifiedClassName, int lineNumber) {
+		this.fullyQualifiedClassName = fullyQualifiedClassName;
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * @return The statement found for the given class name and line number, or null if there is none
+	 */
+	public CtStatement getFound() {
+		return found;
+	}
 
 	@Override
 	public boolean isToBeProcessed(CtType<?> candidate) {
@@ -30,7 +42,7 @@ public class SpoonLocalizedFaultFinder extends AbstractProcessor<CtType<?>> {
 	@Override
 	public void process(CtType<?> ctType) {
 		List<CtStatement> result = ctType.filterChildren(new SpoonLineFilter(lineNumber)).list();
-		found = filterResult(result);
+		found = filterResult(result, lineNumber);
 	}
 
 	/**
@@ -38,10 +50,11 @@ public class SpoonLocalizedFaultFinder extends AbstractProcessor<CtType<?>> {
 	 * - If possible, the top-most CtStatement whose position is just the given lineNumber
 	 * - If not, the CtStatement whose position includes the given lineNumber and amplitude is smallest
 	 *
-	 * @param list List of CtStatement to filter
+	 * @param list       List of CtStatement to filter
+	 * @param lineNumber Line number the CtStatements were found for
 	 * @return The best-fit CtStatement
 	 */
-	private CtStatement filterResult(List<CtStatement> list) {
+	static CtStatement filterResult(List<CtStatement> list, int lineNumber) {
 		CtStatement bestFit = null;
 		SourcePosition curPos = null;
 
@@ -0,0 +1,164 @@
+package fr.spoonlabs.flacoco.utils.spoon;
+
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.CtScanner;
+
+import java.util.*;
+
+/**
+ * Index of the statements of a Spoon model, built in a single traversal of the model.
+ * <p>
+ * For each type, the statements it contains are stored in an interval tree of their line ranges, so that the
+ * statements of a given line are found in logarithmic time. The best-fit statement is then selected with the same
+ * rules as {@link SpoonLocalizedFaultFinder}. The index is not modified once built, so it can be queried
+ * concurrently.
+ */
+public class SpoonStatementIndex {
+
+	/**
+	 * Key is the fully qualified name of the type
+	 */
+	private Map<String, StatementTree> trees = new HashMap<>();
+
+	public SpoonStatementIndex(CtModel model) {
+		Map<String, List<CtStatement>> statements = new HashMap<>();
+		Deque<List<CtStatement>> enclosingTypes = new ArrayDeque<>();
+
+		// Each statement belongs to all of its enclosing types, in the order in which they are scanned
+		CtScanner scanner = new CtScanner() {
+			@Override
+			public void scan(CtElement element) {
+				if (element == null) {
+					return;
+				}
+				boolean isType = element instanceof CtType;
+				if (isType) {
+					enclosingTypes.push(statements.computeIfAbsent(((CtType<?>) element).getQualifiedName(),
+							x -> new ArrayList<>()));
+				}
+				if (element instanceof CtStatement && hasValidPosition(element)) {
+					for (List<CtStatement> typeStatements : enclosingTypes) {
+						typeStatements.add((CtStatement) element);
+					}
+				}
+				super.scan(element);
+				if (isType) {
+					enclosingTypes.pop();
+				}
+			}
+		};
+		for (CtType<?> ctType : model.getAllTypes()) {
+			scanner.scan(ctType);
+		}
+
+		for (Map.Entry<String, List<CtStatement>> entry : statements.entrySet()) {
+			trees.put(entry.getKey(), new StatementTree(entry.getValue()));
+		}
+	}
+
+	/**
+	 * @return The best-fit statement of the given line of the given type, or null if there is none
+	 */
+	public CtStatement find(String fullyQualifiedClassName, int lineNumber) {
+		StatementTree tree = trees.get(fullyQualifiedClassName);
+		if (tree == null) {
+			return null;
+		}
+		return SpoonLocalizedFaultFinder.filterResult(tree.find(lineNumber), lineNumber);
+	}
+
+	private static boolean hasValidPosition(CtElement element) {
+		SourcePosition pos = element.getPosition();
+		return pos != null && pos.isValidPosition();
+	}
+
+	/**
+	 * Interval tree of the line ranges of statements, stored as a balanced binary tree over the statements sorted by
+	 * their first line. Each node keeps the greatest last line of its subtree, to prune the subtrees that end before
+	 * the searched line.
+	 */
+	private static class StatementTree {
+
+		private CtStatement[] statements;
+
+		/**
+		 * Position of each statement in the scan order
+		 */
+		private int[] order;
+
+		private int[] starts;
+
+		private int[] ends;
+
+		private int[] maxEnds;
+
+		StatementTree(List<CtStatement> list) {
+			Integer[] sorted = new Integer[list.size()];
+			for (int i = 0; i < sorted.length; i++) {
+				sorted[i] = i;
+			}
+			Arrays.sort(sorted, Comparator.comparingInt(i -> list.get(i).getPosition().getLine()));
+
+			statements = new CtStatement[sorted.length];
+			order = new int[sorted.length];
+			starts = new int[sorted.length];
+			ends = new int[sorted.length];
+			maxEnds = new int[sorted.length];
+			for (int i = 0; i < sorted.length; i++) {
+				statements[i] = list.get(sorted[i]);
+				order[i] = sorted[i];
+				starts[i] = statements[i].getPosition().getLine();
+				ends[i] = statements[i].getPosition().getEndLine();
+			}
+			computeMaxEnds(0, sorted.length - 1);
+		}
+
+		/**
+		 * @return The statements whose line range includes the given line, in the scan order
+		 */
+		List<CtStatement> find(int lineNumber) {
+			List<Integer> found = new ArrayList<>();
+			find(0, statements.length - 1, lineNumber, found);
+			found.sort(Comparator.comparingInt(i -> order[i]));
+
+			List<CtStatement> result = new ArrayList<>(found.size());
+			for (int i : found) {
+				result.add(statements[i]);
+			}
+			return result;
+		}
+
+		private int computeMaxEnds(int low, int high) {
+			if (low > high) {
+				return Integer.MIN_VALUE;
+			}
+			int mid = (low + high) >>> 1;
+			maxEnds[mid] = Math.max(ends[mid], Math.max(computeMaxEnds(low, mid - 1), computeMaxEnds(mid + 1, high)));
+			return maxEnds[mid];
+		}
+
+		private void find(int low, int high, int lineNumber, List<Integer> found) {
+			if (low > high) {
+				return;
+			}
+			int mid = (low + high) >>> 1;
+			if (maxEnds[mid] < lineNumber) {
+				return;
+			}
+			find(low, mid - 1, lineNumber, found);
+			if (starts[mid] > lineNumber) {
+				return;
+			}
+			if (lineNumber <= ends[mid]) {
+				found.add(mid);
+			}
+			find(mid + 1, high, lineNumber, found);
+		}
+
+	}
+
+}
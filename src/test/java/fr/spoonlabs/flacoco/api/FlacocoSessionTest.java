@@ -0,0 +1,157 @@
+package fr.spoonlabs.flacoco.api;
+
+import fr.spoonlabs.flacoco.api.result.FlacocoResult;
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.api.result.Suspiciousness;
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import fr.spoonlabs.flacoco.localization.spectrum.SpectrumFormula;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static fr.spoonlabs.flacoco.TestUtils.getCompilerVersion;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlacocoSessionTest {
+
+	@Rule
+	public TemporaryFolder workspaceDir = new TemporaryFolder();
+
+	@Test
+	public void testExampleFL1Reuse() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OCHIAI);
+
+		FlacocoSession session = new FlacocoSession(config);
+		FlacocoResult first = session.run();
+		// The second run reuses the tests and classes of the first one
+		FlacocoResult second = session.run();
+
+		Map<Location, Suspiciousness> susp = second.getDefaultSuspiciousnessMap();
+		assertEquals(new ArrayList<>(first.getDefaultSuspiciousnessMap().keySet()), new ArrayList<>(susp.keySet()));
+		assertEquals(6, susp.size());
+		assertEquals(1.0, susp.get(new Location("fr.spoonlabs.FLtest1.Calculator", 15)).getScore(), 0);
+		assertEquals(0.70, susp.get(new Location("fr.spoonlabs.FLtest1.Calculator", 14)).getScore(), 0.01);
+		assertEquals(first.getFailingTests(), second.getFailingTests());
+	}
+
+	@Test
+	public void testExampleFL1Relocalize() throws IOException {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Copy the project, since we patch it
+		File projectDir = workspaceDir.newFolder("FLtest1");
+		FileUtils.copyDirectory(new File("./examples/exampleFL1/FLtest1"), projectDir);
+		File sourceFile = new File(projectDir, "src/main/java/fr/spoonlabs/FLtest1/Calculator.java");
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setProjectPath(projectDir.getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OCHIAI);
+
+		FlacocoSession session = new FlacocoSession(config);
+		FlacocoResult result = session.run();
+		assertEquals(1, result.getFailingTests().size());
+
+		// A patch which does not change the result of any test gives the same ranking
+		patch(sourceFile, "return op1 % op2;", "return (op1 % op2);");
+		FlacocoResult patched = session.relocalize(
+				Collections.singletonList(new Location("fr.spoonlabs.FLtest1.Calculator", 19)));
+		assertEquals(new ArrayList<>(result.getDefaultSuspiciousnessMap().keySet()),
+				new ArrayList<>(patched.getDefaultSuspiciousnessMap().keySet()));
+		assertEquals(1, patched.getFailingTests().size());
+		assertEquals(1.0, patched.getDefaultSuspiciousnessMap()
+				.get(new Location("fr.spoonlabs.FLtest1.Calculator", 15)).getScore(), 0);
+
+		// Once the bug is fixed, every test passes
+		patch(sourceFile, "return op1 / op2;//buggy", "return op1 * op2;");
+		FlacocoResult fixed = session.relocalize(
+				Collections.singletonList(new Location("fr.spoonlabs.FLtest1.Calculator", 15)));
+		assertTrue(fixed.getFailingTests().isEmpty());
+		assertTrue(fixed.getDefaultSuspiciousnessMap().isEmpty());
+	}
+
+	@Test
+	public void testExampleFL1RelocalizeException() throws IOException {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Copy the project, since we patch it
+		File projectDir = workspaceDir.newFolder("FLtest1");
+		FileUtils.copyDirectory(new File("./examples/exampleFL1/FLtest1"), projectDir);
+		File sourceFile = new File(projectDir, "src/main/java/fr/spoonlabs/FLtest1/Calculator.java");
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setProjectPath(projectDir.getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OCHIAI);
+
+		// testSum throws at line 11, so the source file is parsed by the first run
+		patch(sourceFile, "return op1 + op2;", "return op1 + op2 / (op2 - 1);");
+		FlacocoSession session = new FlacocoSession(config);
+		FlacocoResult result = session.run();
+		assertEquals(2, result.getFailingTests().size());
+		Suspiciousness line12 = result.getDefaultSuspiciousnessMap().get(new Location("fr.spoonlabs.FLtest1.Calculator", 12));
+		assertEquals(Collections.singletonList("fr.spoonlabs.FLtest1.CalculatorTest#testMul"),
+				line12.getFailingTestCases().stream().map(TestMethod::getFullyQualifiedMethodName)
+						.collect(Collectors.toList()));
+
+		// testSum now throws at line 12, after line 11 which is only found in the block of the changed source file
+		patch(sourceFile, "return op1 + op2 / (op2 - 1);", "int sum = op1 + op2;\n\t\t\treturn sum / (op2 - 1);");
+		FlacocoResult patched = session.relocalize(Arrays.asList(
+				new Location("fr.spoonlabs.FLtest1.Calculator", 11),
+				new Location("fr.spoonlabs.FLtest1.Calculator", 12)));
+		assertEquals(2, patched.getFailingTests().size());
+		Map<Location, Suspiciousness> susp = patched.getDefaultSuspiciousnessMap();
+		for (int lineNumber : new int[]{11, 12}) {
+			Suspiciousness suspiciousness = susp.get(new Location("fr.spoonlabs.FLtest1.Calculator", lineNumber));
+			assertEquals(Collections.singletonList("fr.spoonlabs.FLtest1.CalculatorTest#testSum"),
+					suspiciousness.getFailingTestCases().stream().map(TestMethod::getFullyQualifiedMethodName)
+							.collect(Collectors.toList()));
+			assertEquals(0.70, suspiciousness.getScore(), 0.01);
+		}
+
+		// The result of the first run is unchanged
+		assertEquals(Collections.singletonList("fr.spoonlabs.FLtest1.CalculatorTest#testMul"),
+				line12.getFailingTestCases().stream().map(TestMethod::getFullyQualifiedMethodName)
+						.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Changes the source file and compiles it to the class files of the project
+	 */
+	private void patch(File sourceFile, String original, String replacement) throws IOException {
+		String source = FileUtils.readFileToString(sourceFile, StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(sourceFile, source.replace(original, replacement), StandardCharsets.UTF_8);
+
+		File classesDir = new File(sourceFile.getAbsolutePath().replaceFirst("src/main/java/.*$", "target/classes"));
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertEquals(0, compiler.run(null, null, null, "-source", "1.8", "-target", "1.8",
+				"-d", classesDir.getAbsolutePath(), sourceFile.getAbsolutePath()));
+	}
+
+}
@@ -0,0 +1,64 @@
+package fr.spoonlabs.flacoco.api.result;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.CoverageMatrix;
+import fr.spoonlabs.flacoco.core.test.method.StringTestMethod;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SuspiciousnessTest {
+
+	@Rule
+	public TemporaryFolder workspaceDir = new TemporaryFolder();
+
+	@Test
+	public void testDetach() {
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		CoverageMatrix matrix = new CoverageMatrix(config);
+
+		Location location = new Location("fr.spoonlabs.Calculator", 10);
+		TestMethod passing = new StringTestMethod("fr.spoonlabs.CalculatorTest", "testPassing");
+		TestMethod failing = new StringTestMethod("fr.spoonlabs.CalculatorTest", "testFailing");
+		matrix.add(location, passing, 1, true);
+		matrix.add(location, failing, 1, false);
+
+		Suspiciousness lazy = new Suspiciousness(0.7, 1, 1, matrix, 0);
+		Suspiciousness detached = new Suspiciousness(0.7, 1, 1, matrix, 0);
+		assertFalse(detached.isDetached());
+		detached.detach();
+		assertTrue(detached.isDetached());
+		assertEquals(Collections.singletonList(passing), detached.getPassingTestCases());
+		assertEquals(Collections.singletonList(failing), detached.getFailingTestCases());
+
+		// Only the suspiciousness still reading from the matrix sees its updates
+		matrix.removeTests(Arrays.asList(passing, failing));
+		assertEquals(Collections.emptyList(), lazy.getPassingTestCases());
+		assertEquals(Collections.singletonList(passing), detached.getPassingTestCases());
+		assertEquals(Collections.singletonList(failing), detached.getFailingTestCases());
+	}
+
+	@Test
+	public void testDetachResult() {
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		CoverageMatrix matrix = new CoverageMatrix(config);
+		matrix.add(new Location("fr.spoonlabs.Calculator", 10),
+				new StringTestMethod("fr.spoonlabs.CalculatorTest", "testFailing"), 1, false);
+
+		FlacocoResult result = new FlacocoResult();
+		result.setDefaultSuspiciousnessMap(Collections.singletonMap(new Location("fr.spoonlabs.Calculator", 10),
+				new Suspiciousness(1.0, 0, 1, matrix, 0)));
+
+		assertSame(result, result.detach());
+		assertTrue(result.getDefaultSuspiciousnessMap().values().iterator().next().isDetached());
+	}
+
+}
@@ -10,6 +10,7 @@ import org.apache.log4j.LogManager;
 import org.junit.*;
 import org.junit.contrib.java.lang.system.ExpectedSystemExit;
 import org.junit.rules.RuleChain;
+import org.junit.rules.TemporaryFolder;
 import org.junit.rules.TestRule;
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
@@ -17,8 +18,14 @@ import picocli.CommandLine;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static fr.spoonlabs.flacoco.TestUtils.getCompilerVersion;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class FlacocoMainTest {
@@ -29,6 +36,9 @@ public class FlacocoMainTest {
 	@Rule
 	public TestRule allRules = RuleChain.outerRule(output).around(exit);
 
+	@Rule
+	public TemporaryFolder workspaceDir = new TemporaryFolder();
+
 	@Before
 	public void setUp() {
 		LogManager.getRootLogger().setLevel(Level.DEBUG);
@@ -188,6 +198,54 @@ public class FlacocoMainTest {
 		});
 	}
 
+	@Test
+	public void testMainAdditionalFormulasExport() throws IOException {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		File output = new File(workspaceDir.getRoot(), "results.csv");
+		exit.expectSystemExitWithStatus(0);
+		exit.checkAssertionAfterwards(() -> {
+			// The ranking of the main formula is the usual one
+			assertTrue(FileUtils.contentEquals(new File("src/test/resources/expected.csv"), output));
+
+			// Each additional formula ranks the same lines, executed by the failing test, in its own file
+			List<String> expectedLines = getLines(output);
+			for (String formula : Arrays.asList("op2", "tarantula")) {
+				File formulaOutput = new File(workspaceDir.getRoot(), "results." + formula + ".csv");
+				assertTrue(formulaOutput.isFile());
+				List<String> lines = getLines(formulaOutput);
+				assertEquals(new HashSet<>(expectedLines), new HashSet<>(lines));
+				assertEquals("fr.spoonlabs.FLtest1.Calculator,15", lines.get(0));
+			}
+		});
+		FlacocoMain.main(new String[]{
+				"--projectpath", "examples/exampleFL1/FLtest1",
+				"--format", "CSV",
+				"--additionalFormulas", "OP2", "TARANTULA",
+				"-o", output.getAbsolutePath()
+		});
+	}
+
+	@Test
+	public void testMainAdditionalFormulasWithoutOutput() {
+		// The rankings of the additional formulas cannot be written to the standard output
+		exit.expectSystemExitWithStatus(CommandLine.ExitCode.USAGE);
+		FlacocoMain.main(new String[]{
+				"--projectpath", "examples/exampleFL1/FLtest1",
+				"--additionalFormulas", "OP2"
+		});
+	}
+
+	/**
+	 * @return The class and line number of each line of a CSV output, without the score
+	 */
+	private static List<String> getLines(File csv) throws IOException {
+		return FileUtils.readLines(csv, StandardCharsets.UTF_8).stream()
+				.map(x -> x.substring(0, x.lastIndexOf(',')))
+				.collect(Collectors.toList());
+	}
+
 	private static final class CheckOutput extends TestWatcher {
 		String extension;
 
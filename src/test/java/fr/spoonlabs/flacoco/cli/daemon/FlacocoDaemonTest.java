@@ -0,0 +1,147 @@
+package fr.spoonlabs.flacoco.cli.daemon;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static fr.spoonlabs.flacoco.TestUtils.getCompilerVersion;
+import static org.junit.Assert.*;
+
+public class FlacocoDaemonTest {
+
+	@Rule
+	public TemporaryFolder workspaceDir = new TemporaryFolder();
+
+	private FlacocoDaemon daemon;
+
+	private File tokenFile;
+
+	@Before
+	public void setUp() throws IOException {
+		tokenFile = new File(workspaceDir.getRoot(), "flacoco-daemon.token");
+		daemon = new FlacocoDaemon(0, 2, Long.MAX_VALUE, tokenFile);
+		daemon.start();
+	}
+
+	@After
+	public void tearDown() {
+		daemon.stop();
+	}
+
+	@Test
+	public void testExampleFL1() throws IOException {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		JsonObject config = new JsonObject();
+		config.addProperty("workspace", workspaceDir.getRoot().getAbsolutePath());
+		config.addProperty("projectPath", new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+		config.addProperty("spectrumFormula", "OCHIAI");
+
+		for (int i = 0; i < 2; i++) {
+			HttpURLConnection connection = authorizedPost("/localize", config.toString());
+			assertEquals(200, connection.getResponseCode());
+
+			JsonArray ranking = new Gson().fromJson(read(connection.getInputStream()), JsonArray.class);
+			assertEquals(6, ranking.size());
+			JsonObject first = ranking.get(0).getAsJsonObject();
+			assertEquals("fr.spoonlabs.FLtest1.Calculator", first.get("className").getAsString());
+			assertEquals(15, first.get("lineNumber").getAsInt());
+			assertEquals(1.0, first.get("suspiciousness").getAsDouble(), 0);
+		}
+
+		// Both requests were served by the same session
+		assertEquals(1, daemon.getSessions().size());
+	}
+
+	@Test
+	public void testInvalidRequest() throws IOException {
+		assertEquals(400, authorizedPost("/localize", "{\"topK\": \"none\"}").getResponseCode());
+
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + daemon.getPort()
+				+ "/localize").openConnection();
+		assertEquals(405, connection.getResponseCode());
+		assertEquals(0, daemon.getSessions().size());
+	}
+
+	@Test
+	public void testUnauthorizedRequests() throws IOException {
+		// The token is only readable by its owner
+		assertEquals(daemon.getToken(), FileUtils.readFileToString(tokenFile, StandardCharsets.UTF_8));
+		if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.toPath())));
+		}
+
+		String authorization = "Bearer " + daemon.getToken();
+		assertEquals(401, post("/localize", "{}", "Content-Type", "application/json").getResponseCode());
+		assertEquals(401, post("/localize", "{}", "Authorization", "Bearer wrong", "Content-Type", "application/json")
+				.getResponseCode());
+		assertEquals(401, post("/shutdown", "").getResponseCode());
+
+		// Requests from web pages are rejected, even with the token. HttpURLConnection does not send Origin headers.
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+			OutputStream outputStream = socket.getOutputStream();
+			outputStream.write(("POST /localize HTTP/1.1\r\nHost: localhost\r\nOrigin: http://example.com\r\n"
+					+ "Authorization: " + authorization + "\r\nContent-Type: application/json\r\n"
+					+ "Content-Length: 2\r\nConnection: close\r\n\r\n{}").getBytes(StandardCharsets.UTF_8));
+			outputStream.flush();
+			assertTrue(read(socket.getInputStream()).startsWith("HTTP/1.1 403"));
+		}
+		assertEquals(415, post("/localize", "{}", "Authorization", authorization, "Content-Type", "text/plain")
+				.getResponseCode());
+		assertEquals(0, daemon.getSessions().size());
+
+		// The token file is removed once the daemon is stopped
+		daemon.stop();
+		assertFalse(tokenFile.exists());
+	}
+
+	private HttpURLConnection authorizedPost(String path, String body) throws IOException {
+		return post(path, body, "Authorization", "Bearer " + daemon.getToken(), "Content-Type", "application/json");
+	}
+
+	/**
+	 * @param headers Names and values of the headers of the request
+	 */
+	private HttpURLConnection post(String path, String body, String... headers) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + daemon.getPort() + path)
+				.openConnection();
+		connection.setRequestMethod("POST");
+		for (int i = 0; i < headers.length; i += 2) {
+			connection.setRequestProperty(headers[i], headers[i + 1]);
+		}
+		connection.setDoOutput(true);
+		try (OutputStream outputStream = connection.getOutputStream()) {
+			outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return connection;
+	}
+
+	private String read(InputStream inputStream) throws IOException {
+		try (InputStream stream = inputStream) {
+			return IOUtils.toString(stream, StandardCharsets.UTF_8);
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package fr.spoonlabs.flacoco.cli.daemon;
+
+import fr.spoonlabs.flacoco.api.FlacocoSession;
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SessionCacheTest {
+
+	@Test
+	public void testLeastRecentlyUsed() {
+		SessionCache cache = new SessionCache(2, Long.MAX_VALUE);
+		FlacocoSession a = cache.get("a", new FlacocoConfig());
+		cache.get("b", new FlacocoConfig());
+
+		// The same key gives the same session, and makes it the most recently used
+		assertSame(a, cache.get("a", new FlacocoConfig()));
+		cache.get("c", new FlacocoConfig());
+
+		assertEquals(2, cache.size());
+		assertTrue(cache.contains("a"));
+		assertFalse(cache.contains("b"));
+		assertTrue(cache.contains("c"));
+	}
+
+	@Test
+	public void testMemoryBudget() {
+		SessionCache cache = new SessionCache(8, Long.MAX_VALUE);
+		cache.get("a", new FlacocoConfig());
+		cache.get("b", new FlacocoConfig());
+		cache.trim();
+		assertEquals(2, cache.size());
+
+		// The most recently used session is always kept
+		cache = new SessionCache(8, 0);
+		cache.get("a", new FlacocoConfig());
+		cache.get("b", new FlacocoConfig());
+		cache.trim();
+		assertEquals(1, cache.size());
+		assertTrue(cache.contains("b"));
+	}
+
+	@Test
+	public void testScheduledTrim() throws Exception {
+		SessionCache cache = new SessionCache(8, 0);
+		try {
+			cache.get("a", new FlacocoConfig());
+			cache.get("b", new FlacocoConfig());
+
+			// The eviction runs on the thread of the cache
+			cache.scheduleTrim().get(1, TimeUnit.MINUTES);
+			assertEquals(1, cache.size());
+			assertTrue(cache.contains("b"));
+		} finally {
+			cache.shutdown();
+		}
+	}
+
+}
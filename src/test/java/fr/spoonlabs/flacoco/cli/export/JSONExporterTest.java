@@ -0,0 +1,50 @@
+package fr.spoonlabs.flacoco.cli.export;
+
+import fr.spoonlabs.flacoco.api.result.FlacocoResult;
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.api.result.Suspiciousness;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class JSONExporterTest {
+
+	@Test
+	public void testExport() throws IOException {
+		Map<Location, Suspiciousness> map = new LinkedHashMap<>();
+		map.put(new Location("fr.spoonlabs.FLtest1.Calculator", 15), new Suspiciousness(1.0, null, null));
+		map.put(new Location("fr.spoonlabs.FLtest1.Calculator$Inner", 14), new Suspiciousness(0.7071067811865475, null, null));
+		FlacocoResult result = new FlacocoResult();
+		result.setDefaultSuspiciousnessMap(map);
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+		new JSONExporter().export(result, writer);
+		writer.close();
+
+		assertEquals("[{\"className\":\"fr.spoonlabs.FLtest1.Calculator\",\"lineNumber\":15,\"suspiciousness\":1.0}," +
+						"{\"className\":\"fr.spoonlabs.FLtest1.Calculator$Inner\",\"lineNumber\":14,\"suspiciousness\":0.7071067811865475}]",
+				new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testExportEmpty() throws IOException {
+		FlacocoResult result = new FlacocoResult();
+		result.setDefaultSuspiciousnessMap(new LinkedHashMap<>());
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+		new JSONExporter().export(result, writer);
+		writer.close();
+
+		assertEquals("[]", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+}
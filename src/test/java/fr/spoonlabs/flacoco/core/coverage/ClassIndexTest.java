@@ -0,0 +1,48 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ClassIndexTest {
+
+	@Test
+	public void testExampleFL1() {
+		FlacocoConfig config = new FlacocoConfig();
+		config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+
+		ClassIndex classIndex = new ClassIndex(config);
+
+		assertEquals(Collections.singleton("fr.spoonlabs.FLtest1.Calculator"), classIndex.getClasses());
+		assertEquals(Collections.singleton("fr.spoonlabs.FLtest1.CalculatorTest"), classIndex.getTestClasses());
+
+		// Classes of the binary directories are instrumented, the others are not
+		assertTrue(classIndex.isInstrumented("fr.spoonlabs.FLtest1.Calculator"));
+		assertTrue(classIndex.isInstrumented("fr.spoonlabs.FLtest1.CalculatorTest"));
+		assertFalse(classIndex.isInstrumented("org.junit.Assert"));
+
+		assertTrue(classIndex.isTestClass("fr.spoonlabs.FLtest1.CalculatorTest"));
+		assertFalse(classIndex.isTestClass("fr.spoonlabs.FLtest1.Calculator"));
+	}
+
+	@Test
+	public void testExampleFL1IncludesExcludes() {
+		FlacocoConfig config = new FlacocoConfig();
+		config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+		config.setJacocoIncludes(Collections.singleton("org.junit.*"));
+		config.setJacocoExcludes(Collections.singleton("*Test"));
+
+		ClassIndex classIndex = new ClassIndex(config);
+
+		// Excludes take precedence over the includes and the binary directories
+		assertTrue(classIndex.isInstrumented("org.junit.Assert"));
+		assertTrue(classIndex.isInstrumented("fr.spoonlabs.FLtest1.Calculator"));
+		assertFalse(classIndex.isInstrumented("org.junit.Test"));
+		assertFalse(classIndex.isInstrumented("fr.spoonlabs.FLtest1.CalculatorTest"));
+	}
+
+}
@@ -0,0 +1,167 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import static org.junit.Assert.*;
+
+public class CompressedBitSetTest {
+
+	@Test
+	public void testSparse() {
+		CompressedBitSet set = new CompressedBitSet();
+		set.add(1000);
+		set.add(10);
+		set.add(500);
+		set.add(10);
+
+		assertFalse(set.isDense());
+		assertEquals(3, set.cardinality());
+		assertTrue(set.contains(10));
+		assertTrue(set.contains(500));
+		assertTrue(set.contains(1000));
+		assertFalse(set.contains(11));
+		assertEquals(Arrays.asList(10, 500, 1000), toList(set));
+	}
+
+	@Test
+	public void testDense() {
+		CompressedBitSet set = new CompressedBitSet();
+		for (int i = 0; i < 100; i += 2) {
+			set.add(i);
+		}
+		set.add(130);
+		set.add(64);
+
+		assertTrue(set.isDense());
+		assertEquals(51, set.cardinality());
+		assertTrue(set.contains(0));
+		assertTrue(set.contains(64));
+		assertTrue(set.contains(130));
+		assertFalse(set.contains(1));
+		assertFalse(set.contains(129));
+		assertFalse(set.contains(10000));
+
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 100; i += 2) {
+			expected.add(i);
+		}
+		expected.add(130);
+		assertEquals(expected, toList(set));
+	}
+
+	@Test
+	public void testIntersectionCardinality() {
+		BitSet other = new BitSet();
+		other.set(10);
+		other.set(64);
+		other.set(2000);
+
+		CompressedBitSet sparse = new CompressedBitSet();
+		sparse.add(1000);
+		sparse.add(10);
+		sparse.add(2000);
+		assertFalse(sparse.isDense());
+		assertEquals(2, sparse.intersectionCardinality(other.toLongArray()));
+
+		CompressedBitSet dense = new CompressedBitSet();
+		for (int i = 0; i < 70; i++) {
+			dense.add(i);
+		}
+		assertTrue(dense.isDense());
+		assertEquals(2, dense.intersectionCardinality(other.toLongArray()));
+		assertEquals(0, dense.intersectionCardinality(new long[0]));
+	}
+
+	@Test
+	public void testRemove() {
+		CompressedBitSet sparse = new CompressedBitSet();
+		sparse.add(1000);
+		sparse.add(10);
+		sparse.add(500);
+		sparse.remove(500);
+		sparse.remove(11);
+		assertFalse(sparse.isDense());
+		assertEquals(2, sparse.cardinality());
+		assertEquals(Arrays.asList(10, 1000), toList(sparse));
+
+		CompressedBitSet dense = new CompressedBitSet();
+		for (int i = 0; i < 70; i++) {
+			dense.add(i);
+		}
+		dense.remove(64);
+		dense.remove(64);
+		dense.remove(10000);
+		assertTrue(dense.isDense());
+		assertEquals(69, dense.cardinality());
+		assertFalse(dense.contains(64));
+		assertTrue(dense.contains(65));
+	}
+
+	@Test
+	public void testAddFarBeyondDense() {
+		CompressedBitSet set = new CompressedBitSet();
+		for (int i = 0; i < 4; i++) {
+			set.add(i);
+		}
+		assertTrue(set.isDense());
+
+		// A bitset up to 10000 would take 157 words for 5 elements
+		set.add(10000);
+		assertFalse(set.isDense());
+		assertEquals(5, set.cardinality());
+		assertEquals(Arrays.asList(0, 1, 2, 3, 10000), toList(set));
+	}
+
+	@Test
+	public void testCompact() {
+		CompressedBitSet set = new CompressedBitSet();
+		for (int i = 0; i < 70; i++) {
+			set.add(i);
+		}
+		for (int i = 1; i < 70; i++) {
+			if (i != 64) {
+				set.remove(i);
+			}
+		}
+		assertTrue(set.isDense());
+
+		set.compact();
+		assertFalse(set.isDense());
+		assertEquals(2, set.cardinality());
+		assertEquals(Arrays.asList(0, 64), toList(set));
+
+		// A compacted set can still be modified
+		for (int i = 1; i < 64; i++) {
+			set.add(i);
+		}
+		set.compact();
+		assertTrue(set.isDense());
+		assertEquals(65, set.cardinality());
+
+		set.remove(0);
+		for (int i = 1; i <= 64; i++) {
+			set.remove(i);
+		}
+		set.compact();
+		assertFalse(set.isDense());
+		assertEquals(0, set.cardinality());
+		set.add(3);
+		assertEquals(Arrays.asList(3), toList(set));
+	}
+
+	private List<Integer> toList(CompressedBitSet set) {
+		List<Integer> values = new ArrayList<>();
+		PrimitiveIterator.OfInt iterator = set.iterator();
+		while (iterator.hasNext()) {
+			values.add(iterator.nextInt());
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,133 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.test.method.StringTestMethod;
+import fr.spoonlabs.flacoco.core.test.method.TestMethod;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CoverageMatrixReaderTest {
+
+	@Rule
+	public TemporaryFolder workspaceDir = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		CoverageMatrix matrix = new CoverageMatrix(config);
+
+		// One line is executed by every test, so that its row is dense
+		for (int i = 0; i < 100; i++) {
+			TestMethod testMethod = new StringTestMethod("fr.spoonlabs.CalculatorTest", "test" + i);
+			matrix.add(new Location("fr.spoonlabs.Calculator", 10), testMethod, 1, i % 10 != 0);
+			if (i % 10 == 0) {
+				matrix.add(new Location("fr.spoonlabs.Calculator", 15), testMethod, 1, false);
+			}
+		}
+		matrix.addTest(new StringTestMethod("fr.spoonlabs.OtherTest", "testNothing"), true);
+
+		File file = workspaceDir.newFile("matrix.bin");
+		new CoverageMatrixWriter().write(matrix, file);
+		CoverageSpectrum read = new CoverageMatrixReader().read(file);
+
+		assertEquals(matrix.getLocations(), read.getLocations());
+		assertEquals(matrix.getTests(), read.getTests());
+		assertEquals(matrix.getResultExecution(), read.getResultExecution());
+		assertEquals(matrix.getFailingTestCases(), read.getFailingTestCases());
+		assertEquals(91, read.getNumberOfPassingTests());
+		assertEquals(10, read.getNumberOfFailingTests());
+
+		int[] passingExecuting = new int[2];
+		int[] failingExecuting = new int[2];
+		read.countExecutions(passingExecuting, failingExecuting);
+		assertArrayEquals(new int[]{90, 0}, passingExecuting);
+		assertArrayEquals(new int[]{10, 10}, failingExecuting);
+		assertEquals(matrix.getExecutingTests(1, false), read.getExecutingTests(1, false));
+		assertEquals(matrix.getExecutingTests(0, true), read.getExecutingTests(0, true));
+
+		// A matrix read from a file can be written again
+		File copy = workspaceDir.newFile("copy.bin");
+		new CoverageMatrixWriter().write(read, copy);
+		assertTrue(FileUtils.contentEquals(file, copy));
+	}
+
+	@Test
+	public void testReadInvalid() throws IOException {
+		File file = workspaceDir.newFile("matrix.bin");
+		FileUtils.writeByteArrayToFile(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17,
+				18, 19, 20, 21, 22, 23, 24});
+
+		try {
+			new CoverageMatrixReader().read(file);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("is not a coverage matrix"));
+		}
+	}
+
+	@Test
+	public void testReadChunks() throws IOException {
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		CoverageMatrix matrix = new CoverageMatrix(config);
+		for (int i = 0; i < 100; i++) {
+			TestMethod testMethod = new StringTestMethod("fr.spoonlabs.CalculatorTest", "test" + i);
+			for (int lineNumber = 1; lineNumber <= 20; lineNumber++) {
+				if (i % lineNumber == 0) {
+					matrix.add(new Location("fr.spoonlabs.Calculator", lineNumber), testMethod, 1, i % 3 != 0);
+				}
+			}
+		}
+
+		File file = workspaceDir.newFile("matrix.bin");
+		new CoverageMatrixWriter().write(matrix, file);
+		// The chunks hold a few rows each
+		CoverageSpectrum read = new CoverageMatrixReader(64).read(file);
+
+		assertEquals(matrix.getResultExecution(), read.getResultExecution());
+		int[] passingExecuting = new int[20];
+		int[] failingExecuting = new int[20];
+		read.countExecutions(passingExecuting, failingExecuting);
+		int[] expectedPassingExecuting = new int[20];
+		int[] expectedFailingExecuting = new int[20];
+		matrix.countExecutions(expectedPassingExecuting, expectedFailingExecuting);
+		assertArrayEquals(expectedPassingExecuting, passingExecuting);
+		assertArrayEquals(expectedFailingExecuting, failingExecuting);
+	}
+
+	@Test
+	public void testReadTruncated() throws IOException {
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		CoverageMatrix matrix = new CoverageMatrix(config);
+		for (int i = 0; i < 10; i++) {
+			matrix.add(new Location("fr.spoonlabs.Calculator", 10),
+					new StringTestMethod("fr.spoonlabs.CalculatorTest", "test" + i), 1, true);
+		}
+		File file = workspaceDir.newFile("matrix.bin");
+		new CoverageMatrixWriter().write(matrix, file);
+		byte[] bytes = FileUtils.readFileToByteArray(file);
+
+		// Every truncation of the file is detected
+		for (int length = 6 * Integer.BYTES; length < bytes.length; length++) {
+			FileUtils.writeByteArrayToFile(file, Arrays.copyOf(bytes, length));
+			try {
+				new CoverageMatrixReader().read(file);
+				fail("Truncated to " + length + " bytes");
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("is truncated or corrupt"));
+			}
+		}
+	}
+
+}
@@ -1,10 +1,15 @@
 package fr.spoonlabs.flacoco.core.coverage;
 
-import eu.stamp_project.testrunner.EntryPoint;
+import eu.stamp_project.testrunner.listener.CoveredTestResultPerTestMethod;
 import fr.spoonlabs.flacoco.api.result.Location;
 import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.framework.InProcessStrategy;
+import fr.spoonlabs.flacoco.core.coverage.framework.JUnit4Strategy;
+import fr.spoonlabs.flacoco.core.coverage.framework.TestRunnerOptions;
+import fr.spoonlabs.flacoco.core.coverage.framework.TestRunnerWorkerPool;
 import fr.spoonlabs.flacoco.core.test.TestContext;
 import fr.spoonlabs.flacoco.core.test.TestDetector;
+import fr.spoonlabs.flacoco.core.test.method.StringTestMethod;
 import fr.spoonlabs.flacoco.core.test.method.TestMethod;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
@@ -12,10 +17,17 @@ import org.junit.*;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static fr.spoonlabs.flacoco.TestUtils.getCompilerVersion;
@@ -594,6 +606,210 @@ public class CoverageRunnerTest {
 		assertThrows(RuntimeException.class, () -> detector.getCoverageMatrix(tests));
 	}
 
+	@Test
+	public void testExampleFL13TimeoutBisection() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL13Timeout/FLtest1").getAbsolutePath());
+		config.setTestRunnerTimeoutPerTestInMs(5000);
+
+		CoverageRunner detector = new CoverageRunner(config);
+
+		// Find the tests
+		TestDetector testDetector = new TestDetector(config);
+		List<TestContext> tests = testDetector.getTests();
+
+		assertTrue(tests.size() > 0);
+
+		CoverageMatrix matrix = detector.getCoverageMatrix(tests);
+
+		// The hanging and exiting tests are isolated, the coverage of the others is kept
+		Set<String> testNames = matrix.getTests().keySet().stream()
+				.map(TestMethod::getFullyQualifiedMethodName).collect(Collectors.toSet());
+		assertEquals(5, testNames.size());
+		assertTrue(testNames.contains("fr.spoonlabs.FLtest1.CalculatorCrashTest#testMod"));
+		assertFalse(testNames.contains("fr.spoonlabs.FLtest1.CalculatorCrashTest#testHang"));
+		assertFalse(testNames.contains("fr.spoonlabs.FLtest1.CalculatorCrashTest#testExit"));
+		assertEquals(1, matrix.getFailingTestCases().size());
+
+		// Line only executed by testMod
+		assertEquals(1, matrix.getResultExecution().get(new Location("fr.spoonlabs.FLtest1.Calculator", 19)).size());
+	}
+
+	@Test
+	public void testBisectionRetriesLimit() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config, every forked JVM fails to start
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+		config.setTestRunnerJVMArgs("-XX:+FlacocoUnknownOption");
+
+		// Counts the executions
+		AtomicInteger executions = new AtomicInteger();
+		TestContext testContext = new TestContext(new JUnit4Strategy(config) {
+			@Override
+			public CoveredTestResultPerTestMethod execute(TestContext testContext, TestRunnerOptions options)
+					throws TimeoutException {
+				executions.incrementAndGet();
+				return super.execute(testContext, options);
+			}
+		});
+		for (int i = 0; i < 64; i++) {
+			testContext.addTestMethods(Collections.singletonList(
+					new StringTestMethod("fr.spoonlabs.FLtest1.CalculatorTest", "testSum" + i)));
+		}
+
+		try {
+			new CoverageRunner(config).getCoverageMatrix(Collections.singletonList(testContext));
+			fail("The failure of every execution must be reported");
+		} catch (RuntimeException e) {
+			// Bisecting down to every test method would take 127 executions
+			assertEquals(1 + 4 * 6, executions.get());
+		}
+	}
+
+	@Test
+	public void testReuseJVM() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+		config.setTestRunnerReuseJVM(true);
+
+		try {
+			// The second run reuses the JVM of the first one
+			int startedWorkers = -1;
+			for (int i = 0; i < 2; i++) {
+				List<TestContext> tests = new TestDetector(config).getTests();
+				CoverageMatrix matrix = new CoverageRunner(config).getCoverageMatrix(tests);
+				if (i == 0) {
+					startedWorkers = TestRunnerWorkerPool.getStartedWorkers();
+				} else {
+					assertEquals(startedWorkers, TestRunnerWorkerPool.getStartedWorkers());
+				}
+
+				assertEquals(4, matrix.getTests().size());
+				assertEquals(1, matrix.getFailingTestCases().size());
+				assertEquals(10, matrix.getResultExecution().keySet().size());
+				assertEquals(4, matrix.getResultExecution().get(new Location("fr.spoonlabs.FLtest1.Calculator", 10)).size());
+				assertEquals(1, matrix.getResultExecution().get(new Location("fr.spoonlabs.FLtest1.Calculator", 15)).size());
+			}
+		} finally {
+			TestRunnerWorkerPool.shutdown();
+		}
+	}
+
+	@Test
+	public void testInProcess() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		for (String project : new String[]{"./examples/exampleFL1/FLtest1", "./examples/exampleFL4JUnit5/FLtest1"}) {
+			// Setup config
+			FlacocoConfig config = new FlacocoConfig();
+			config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+			config.setTestRunnerVerbose(true);
+			config.setProjectPath(new File(project).getAbsolutePath());
+
+			CoverageMatrix forkedMatrix = new CoverageRunner(config).getCoverageMatrix(new TestDetector(config).getTests());
+
+			config.setTestRunnerInProcess(true);
+			List<TestContext> tests = new TestDetector(config).getTests();
+			assertTrue(tests.get(0).getTestFrameworkStrategy() instanceof InProcessStrategy);
+			CoverageMatrix matrix = new CoverageRunner(config).getCoverageMatrix(tests);
+
+			// The coverage is the same as the one computed in a forked JVM
+			assertEquals(forkedMatrix.getTests(), matrix.getTests());
+			assertEquals(forkedMatrix.getFailingTestCases(), matrix.getFailingTestCases());
+			assertEquals(forkedMatrix.getResultExecution(), matrix.getResultExecution());
+		}
+	}
+
+	@Test
+	public void testInProcessTimeout() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL13Timeout/FLtest1").getAbsolutePath());
+		config.setTestRunnerInProcess(true);
+
+		InProcessStrategy strategy = new InProcessStrategy(config, false);
+		TestContext testContext = new TestContext(strategy);
+		testContext.addTestMethods(Collections.singletonList(
+				new StringTestMethod("fr.spoonlabs.FLtest1.CalculatorCrashTest", "testHang")));
+
+		// The hanging test is executed in process, then in a forked JVM, and then only in forked JVMs
+		for (int i = 0; i < 2; i++) {
+			TestRunnerOptions options = strategy.computeTestRunnerOptions();
+			options.setTimeoutInMs(2000);
+			options.setTestMethodNames(Collections.singletonList("testHang"));
+			long start = System.currentTimeMillis();
+			try {
+				strategy.execute(testContext, options);
+				fail("The hanging test must time out");
+			} catch (TimeoutException e) {
+				// The first execution timed out twice, in process and in the forked JVM
+				assertEquals(i == 0, System.currentTimeMillis() - start >= 2 * 2000);
+			}
+		}
+
+		// At most the test thread of the first execution is left running
+		long hangingThreads = Thread.getAllStackTraces().values().stream()
+				.filter(x -> Arrays.stream(x).anyMatch(y -> y.getMethodName().equals("testHang")))
+				.count();
+		assertTrue(hangingThreads <= 1);
+	}
+
+	@Test
+	public void testOfflineInstrumentation() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+
+		CoverageMatrix onlineMatrix = new CoverageRunner(config).getCoverageMatrix(new TestDetector(config).getTests());
+
+		config.setOfflineInstrumentation(true);
+		File instrumentedClass = new File(workspaceDir.getRoot(), "flacoco-instrumented/fr/spoonlabs/FLtest1/Calculator.class");
+		long lastModified = 0;
+		for (int i = 0; i < 2; i++) {
+			CoverageMatrix matrix = new CoverageRunner(config).getCoverageMatrix(new TestDetector(config).getTests());
+
+			// The coverage is the same as the one computed by the jacoco agent
+			assertEquals(onlineMatrix.getTests(), matrix.getTests());
+			assertEquals(onlineMatrix.getFailingTestCases(), matrix.getFailingTestCases());
+			assertEquals(onlineMatrix.getResultExecution(), matrix.getResultExecution());
+
+			// Unchanged classes are not instrumented again
+			assertTrue(instrumentedClass.isFile());
+			if (i > 0) {
+				assertEquals(lastModified, instrumentedClass.lastModified());
+			}
+			lastModified = instrumentedClass.lastModified();
+		}
+	}
+
 	@Test
 	public void testJVMArgs() {
 		// Run only on target release >= 5
@@ -615,7 +831,7 @@ public class CoverageRunnerTest {
 		assertTrue(tests.size() > 0);
 
 		CoverageMatrix matrix = detector.getCoverageMatrix(tests);
-		assertEquals("-Xms16M", EntryPoint.JVMArgs);
+		assertEquals("-Xms16M", tests.get(0).getTestFrameworkStrategy().computeTestRunnerOptions().getJVMArgs());
 
 		// verify nr of test
 		assertEquals(4, matrix.getTests().size());
@@ -1013,6 +1229,78 @@ public class CoverageRunnerTest {
 		assertNull(modCond);
 	}
 
+	@Test
+	public void testExampleFL9Parallel() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath("./examples/exampleFL9NotMavenMultiple/");
+		config.setSrcJavaDir(Collections.singletonList("./examples/exampleFL9NotMavenMultiple/java"));
+		config.setSrcTestDir(Arrays.asList("./examples/exampleFL9NotMavenMultiple/test2", "./examples/exampleFL9NotMavenMultiple/test1"));
+		config.setBinJavaDir(Collections.singletonList("./examples/exampleFL9NotMavenMultiple/bin/classes"));
+		config.setBinTestDir(Arrays.asList("./examples/exampleFL9NotMavenMultiple/bin/test-classes2", "./examples/exampleFL9NotMavenMultiple/bin/test-classes1"));
+
+		// Find the tests
+		TestDetector testDetector = new TestDetector(config);
+		List<TestContext> tests = testDetector.getTests();
+
+		// Each test class is run in its own shard
+		assertEquals(1, tests.size());
+		assertEquals(2, tests.get(0).splitByTestClass(2).size());
+
+		CoverageMatrix sequentialMatrix = new CoverageRunner(config).getCoverageMatrix(tests);
+
+		config.setParallelism(2);
+		CoverageMatrix parallelMatrix = new CoverageRunner(config).getCoverageMatrix(tests);
+
+		// The results must be the same as the sequential ones
+		assertEquals(8, parallelMatrix.getTests().size());
+		assertEquals(sequentialMatrix.getTests(), parallelMatrix.getTests());
+		assertEquals(sequentialMatrix.getResultExecution(), parallelMatrix.getResultExecution());
+		assertEquals(sequentialMatrix.getFailingTestCases(), parallelMatrix.getFailingTestCases());
+	}
+
+	@Test
+	public void testConcurrentRuns() throws Exception {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup configs: one JUnit4 project and one JUnit5 project, with different settings
+		FlacocoConfig config1 = new FlacocoConfig();
+		config1.setWorkspace(workspaceDir.newFolder().getAbsolutePath());
+		config1.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+		config1.setTestRunnerJVMArgs("-Xms16M");
+
+		FlacocoConfig config2 = new FlacocoConfig();
+		config2.setWorkspace(workspaceDir.newFolder().getAbsolutePath());
+		config2.setProjectPath(new File("./examples/exampleFL4JUnit5/FLtest1").getAbsolutePath());
+
+		// Run both coverage computations at the same time
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<CoverageMatrix> future1 = executor.submit(
+					() -> new CoverageRunner(config1).getCoverageMatrix(new TestDetector(config1).getTests()));
+			Future<CoverageMatrix> future2 = executor.submit(
+					() -> new CoverageRunner(config2).getCoverageMatrix(new TestDetector(config2).getTests()));
+
+			CoverageMatrix matrix1 = future1.get();
+			assertEquals(4, matrix1.getTests().size());
+			assertEquals(1, matrix1.getFailingTestCases().size());
+			assertEquals(10, matrix1.getResultExecution().keySet().size());
+
+			CoverageMatrix matrix2 = future2.get();
+			assertEquals(4, matrix2.getTests().size());
+			assertEquals(1, matrix2.getFailingTestCases().size());
+			assertEquals(8, matrix2.getResultExecution().keySet().size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	@Test
 	public void testExampleFL11() {
 		// Run only on target release >= 5
@@ -1222,4 +1510,51 @@ public class CoverageRunnerTest {
 		assertNull(modCond);
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testExampleFL14TestSelectionFromCache() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL14Selection/FLtest1").getAbsolutePath());
+		config.setCoverageCache(true);
+
+		// Fills the cache
+		CoverageMatrix expected = new CoverageRunner(config).getCoverageMatrix(new TestDetector(config).getTests());
+		assertEquals(6, expected.getTests().size());
+
+		// Records the test methods that are executed
+		Set<String> executedTests = Collections.synchronizedSet(new HashSet<>());
+		JUnit4Strategy strategy = new JUnit4Strategy(config) {
+			@Override
+			public CoveredTestResultPerTestMethod execute(TestContext testContext, TestRunnerOptions options)
+					throws TimeoutException {
+				testContext.getTestMethods().forEach(x -> executedTests.add(x.getFullyQualifiedMethodName()));
+				return super.execute(testContext, options);
+			}
+		};
+		List<TestContext> tests = new ArrayList<>();
+		for (TestContext testContext : new TestDetector(config).getTests()) {
+			TestContext recordedTestContext = new TestContext(strategy);
+			recordedTestContext.addTestMethods(testContext.getTestMethods());
+			tests.add(recordedTestContext);
+		}
+
+		config.setTestSelection(true);
+		CoverageMatrix matrix = new CoverageRunner(config).getCoverageMatrix(tests);
+
+		// The outcomes and the coverage of the failing test class are cached, and CounterTest cannot cover Calculator
+		assertTrue(executedTests.isEmpty());
+
+		// The pruned test methods keep their outcome
+		assertEquals(expected.getTests(), matrix.getTests());
+		assertEquals(expected.getFailingTestCases(), matrix.getFailingTestCases());
+		assertEquals(expected.getResultExecution().get(new Location("fr.spoonlabs.FLtest1.Calculator", 15)),
+				matrix.getResultExecution().get(new Location("fr.spoonlabs.FLtest1.Calculator", 15)));
+		assertNull(matrix.getResultExecution().get(new Location("fr.spoonlabs.FLtest1.Counter", 11)));
+	}
+
+}
@@ -0,0 +1,36 @@
+package fr.spoonlabs.flacoco.core.coverage;
+
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.test.method.StringTestMethod;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+
+	@Test
+	public void testIntern() {
+		SymbolTable symbols = new SymbolTable();
+		String first = new String("fr.spoonlabs.FLtest1.Calculator");
+		String second = new String("fr.spoonlabs.FLtest1.Calculator");
+
+		assertSame(first, symbols.intern(first));
+		assertSame(first, symbols.intern(second));
+		assertEquals(1, symbols.size());
+	}
+
+	@Test
+	public void testCoverageMatrixLocations() {
+		CoverageMatrix matrix = new CoverageMatrix(new FlacocoConfig());
+		StringTestMethod testMethod = new StringTestMethod("fr.spoonlabs.FLtest1.CalculatorTest", "testSum");
+		matrix.add(new Location(new String("fr.spoonlabs.FLtest1.Calculator"), 10), testMethod, 1, true);
+		matrix.add(new Location(new String("fr.spoonlabs.FLtest1.Calculator"), 11), testMethod, 1, true);
+
+		// The lines of a class share the instance of its name
+		assertEquals(2, matrix.getLocations().size());
+		assertSame(matrix.getLocations().get(0).getClassName(), matrix.getLocations().get(1).getClassName());
+		assertTrue(matrix.getResultExecution().containsKey(new Location("fr.spoonlabs.FLtest1.Calculator", 11)));
+	}
+
+}
@@ -0,0 +1,125 @@
+package fr.spoonlabs.flacoco.core.coverage.cache;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.CoverageMatrix;
+import fr.spoonlabs.flacoco.core.coverage.CoverageRunner;
+import fr.spoonlabs.flacoco.core.test.TestContext;
+import fr.spoonlabs.flacoco.core.test.TestDetector;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static fr.spoonlabs.flacoco.TestUtils.getCompilerVersion;
+import static org.junit.Assert.*;
+
+public class CoverageCacheTest {
+
+	@Rule
+	public TemporaryFolder workspaceDir = new TemporaryFolder();
+
+	@Before
+	public void setUp() {
+		LogManager.getRootLogger().setLevel(Level.DEBUG);
+	}
+
+	@Test
+	public void testExampleFL1Cache() throws IOException {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Copy the project, since we modify its class files
+		File project = workspaceDir.newFolder("FLtest1");
+		FileUtils.copyDirectory(new File("./examples/exampleFL1/FLtest1"), project);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setProjectPath(project.getAbsolutePath());
+		config.setCoverageCache(true);
+
+		// Find the tests
+		TestDetector testDetector = new TestDetector(config);
+		List<TestContext> tests = testDetector.getTests();
+		assertEquals(1, tests.size());
+
+		// Nothing is cached before the first run
+		assertEquals(4, new CoverageCache(config).getTestsToRun(tests.get(0)).getTestMethods().size());
+		CoverageMatrix matrix = new CoverageRunner(config).getCoverageMatrix(tests);
+		assertTrue(new File(workspaceDir.getRoot(), "flacoco-coverage.cache").exists());
+
+		// Everything is cached after the first run, and the results are the same
+		assertEquals(0, new CoverageCache(config).getTestsToRun(tests.get(0)).getTestMethods().size());
+		CoverageMatrix cachedMatrix = new CoverageRunner(config).getCoverageMatrix(tests);
+		assertEquals(matrix.getTests(), cachedMatrix.getTests());
+		assertEquals(matrix.getResultExecution(), cachedMatrix.getResultExecution());
+		assertEquals(matrix.getFailingTestCases(), cachedMatrix.getFailingTestCases());
+
+		// Changing a covered class invalidates the tests covering it
+		try (FileOutputStream outputStream = new FileOutputStream(
+				new File(project, "target/classes/fr/spoonlabs/FLtest1/Calculator.class"), true)) {
+			outputStream.write(0);
+		}
+		assertEquals(4, new CoverageCache(config).getTestsToRun(tests.get(0)).getTestMethods().size());
+
+		// Changing the options invalidates the whole cache
+		FileUtils.copyDirectory(new File("./examples/exampleFL1/FLtest1/target"), new File(project, "target"));
+		assertEquals(0, new CoverageCache(config).getTestsToRun(tests.get(0)).getTestMethods().size());
+		config.setCoverTests(true);
+		assertEquals(4, new CoverageCache(config).getTestsToRun(tests.get(0)).getTestMethods().size());
+	}
+
+	@Test
+	public void testExampleFL1CacheTestFixture() throws IOException {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Copy the project, and make its test class use a fixture of the test binary directory
+		File project = workspaceDir.newFolder("FLtest1");
+		FileUtils.copyDirectory(new File("./examples/exampleFL1/FLtest1"), project);
+		File testDir = new File(project, "src/test/java/fr/spoonlabs/FLtest1");
+		File fixtureFile = new File(testDir, "CalculatorFixture.java");
+		FileUtils.writeStringToFile(fixtureFile, "package fr.spoonlabs.FLtest1;\n\n"
+				+ "public class CalculatorFixture {\n\tpublic static int four() {\n\t\treturn 4;\n\t}\n}\n",
+				StandardCharsets.UTF_8);
+		File testFile = new File(testDir, "CalculatorTest.java");
+		FileUtils.writeStringToFile(testFile, FileUtils.readFileToString(testFile, StandardCharsets.UTF_8)
+				.replace("assertEquals(4, ", "assertEquals(CalculatorFixture.four(), "), StandardCharsets.UTF_8);
+		File testClassesDir = new File(project, "target/test-classes");
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertEquals(0, compiler.run(null, null, null, "-source", "1.8", "-target", "1.8",
+				"-cp", new File(project, "target/classes").getAbsolutePath() + File.pathSeparator
+						+ System.getProperty("java.class.path"),
+				"-d", testClassesDir.getAbsolutePath(), fixtureFile.getAbsolutePath(), testFile.getAbsolutePath()));
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setProjectPath(project.getAbsolutePath());
+		config.setCoverageCache(true);
+
+		List<TestContext> tests = new TestDetector(config).getTests();
+		new CoverageRunner(config).getCoverageMatrix(tests);
+		assertEquals(0, new CoverageCache(config).getTestsToRun(tests.get(0)).getTestMethods().size());
+
+		// Changing the fixture, which is not covered, invalidates the tests using it
+		try (FileOutputStream outputStream = new FileOutputStream(
+				new File(testClassesDir, "fr/spoonlabs/FLtest1/CalculatorFixture.class"), true)) {
+			outputStream.write(0);
+		}
+		assertEquals(4, new CoverageCache(config).getTestsToRun(tests.get(0)).getTestMethods().size());
+	}
+
+}
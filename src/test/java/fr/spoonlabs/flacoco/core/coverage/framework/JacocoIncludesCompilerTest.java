@@ -0,0 +1,86 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.coverage.ClassIndex;
+import org.jacoco.core.runtime.WildcardMatcher;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JacocoIncludesCompilerTest {
+
+	@Test
+	public void testPackageWildcards() {
+		Set<String> classes = new HashSet<>(Arrays.asList(
+				"fr.spoonlabs.FLtest1.Calculator", "fr.spoonlabs.FLtest1.Calculator$1",
+				"fr.spoonlabs.FLtest1.util.Helper", "fr.spoonlabs.FLtest1.util.other.Other",
+				"fr.spoonlabs.FLtest2.Single"));
+		Set<String> otherClasses = new HashSet<>(Arrays.asList(
+				"fr.spoonlabs.FLtest1.CalculatorTest", "fr.spoonlabs.FLtest2.SingleTest",
+				"org.junit.Assert", "org.junit.Test"));
+
+		JacocoIncludesCompiler.Patterns patterns = JacocoIncludesCompiler.compile(classes, otherClasses);
+
+		// A package wildcard with an exception is better than every class name
+		assertEquals(Arrays.asList("fr.spoonlabs.FLtest1.*", "fr.spoonlabs.FLtest2.Single"), patterns.getIncludes());
+		assertEquals(Collections.singletonList("fr.spoonlabs.FLtest1.CalculatorTest"), patterns.getExcludes());
+	}
+
+	@Test
+	public void testSuffixExcludes() {
+		Set<String> classes = new HashSet<>(Arrays.asList("p.A", "p.B", "p.C", "p.D"));
+		Set<String> otherClasses = new HashSet<>(Arrays.asList("p.ATest", "p.BTest", "p.CTest", "p.CTest$1"));
+
+		JacocoIncludesCompiler.Patterns patterns = JacocoIncludesCompiler.compile(classes, otherClasses);
+
+		assertEquals(Collections.singletonList("p.*"), patterns.getIncludes());
+		assertEquals(Arrays.asList("p.*Test", "p.*Test$*"), patterns.getExcludes());
+
+		// A class to instrument with the suffix prevents excluding it
+		classes.add("p.ChiSquareTest");
+		patterns = JacocoIncludesCompiler.compile(classes, otherClasses);
+		assertFalse(patterns.getExcludes().contains("p.*Test"));
+		assertTrue(patterns.getIncludes().contains("p.ChiSquareTest") || patterns.getIncludes().contains("p.*"));
+	}
+
+	@Test
+	public void testNoClasses() {
+		JacocoIncludesCompiler.Patterns patterns = JacocoIncludesCompiler.compile(new HashSet<>(),
+				new HashSet<>(Collections.singletonList("fr.spoonlabs.FLtest1.CalculatorTest")));
+
+		assertTrue(patterns.getIncludes().isEmpty());
+		assertTrue(patterns.getExcludes().isEmpty());
+	}
+
+	@Test
+	public void testMath70() {
+		String classes = new File("./examples/math_70/target/classes").getAbsolutePath();
+		String testClasses = new File("./examples/math_70/target/test-classes").getAbsolutePath();
+		FlacocoConfig config = new FlacocoConfig();
+		config.setBinJavaDir(Collections.singletonList(classes));
+		config.setBinTestDir(Collections.singletonList(testClasses));
+		ClassIndex classIndex = new ClassIndex(config);
+
+		JacocoIncludesCompiler.Patterns patterns = JacocoIncludesCompiler.compile(classIndex, false,
+				Arrays.asList(classes, testClasses));
+
+		// Patterns match every class of the sources, and none of the tests
+		WildcardMatcher includes = new WildcardMatcher(String.join(":", patterns.getIncludes()));
+		WildcardMatcher excludes = new WildcardMatcher(String.join(":", patterns.getExcludes()));
+		assertTrue(includes.matches("org.apache.commons.math.analysis.solvers.BisectionSolver"));
+		assertTrue(!excludes.matches("org.apache.commons.math.analysis.solvers.BisectionSolver"));
+		assertTrue(!includes.matches("org.apache.commons.math.analysis.solvers.BisectionSolverTest")
+				|| excludes.matches("org.apache.commons.math.analysis.solvers.BisectionSolverTest"));
+		assertTrue(patterns.getIncludes().size() + patterns.getExcludes().size() < 100);
+
+		// The patterns are cached
+		assertTrue(patterns == JacocoIncludesCompiler.compile(new ClassIndex(config), false,
+				Arrays.asList(classes, testClasses)));
+	}
+
+}
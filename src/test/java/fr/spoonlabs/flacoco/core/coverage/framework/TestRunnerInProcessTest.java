@@ -0,0 +1,66 @@
+package fr.spoonlabs.flacoco.core.coverage.framework;
+
+import org.apache.commons.io.FileUtils;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class TestRunnerInProcessTest {
+
+	@Rule
+	public TemporaryFolder workspaceDir = new TemporaryFolder();
+
+	@Test
+	public void testProjectJarsFirst() throws Exception {
+		// A jar of the project with its own version of a library of flacoco
+		File sourceFile = new File(workspaceDir.newFolder("src", "com", "google", "gson"), "Gson.java");
+		FileUtils.writeStringToFile(sourceFile, "package com.google.gson;\n\n"
+				+ "public class Gson {\n\tpublic static String version() {\n\t\treturn \"project\";\n\t}\n}\n",
+				StandardCharsets.UTF_8);
+		File classesDir = workspaceDir.newFolder("classes");
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertEquals(0, compiler.run(null, null, null, "-source", "1.8", "-target", "1.8",
+				"-d", classesDir.getAbsolutePath(), sourceFile.getAbsolutePath()));
+		File jar = new File(workspaceDir.getRoot(), "gson.jar");
+		addToJar(jar, new File(classesDir, "com/google/gson/Gson.class"), "com/google/gson/Gson.class");
+
+		try (TestRunnerInProcess.InstrumentingClassLoader classLoader = new TestRunnerInProcess.InstrumentingClassLoader(
+				new URL[]{jar.toURI().toURL()}, new Instrumenter(new LoggerRuntime()), "*", "*")) {
+			// The classes of the project jars are loaded before the ones of flacoco
+			Class<?> gson = classLoader.loadClass("com.google.gson.Gson");
+			assertSame(classLoader, gson.getClassLoader());
+			assertEquals("project", gson.getMethod("version").invoke(null));
+			assertNotNull(gson.getPackage());
+
+			// The JUnit classes are shared with flacoco
+			assertSame(Assert.class, classLoader.loadClass("org.junit.Assert"));
+		}
+	}
+
+	private void addToJar(File jar, File file, String entryName) throws IOException {
+		try (JarOutputStream outputStream = new JarOutputStream(new FileOutputStream(jar))) {
+			outputStream.putNextEntry(new JarEntry(entryName));
+			outputStream.write(Files.readAllBytes(file.toPath()));
+			outputStream.closeEntry();
+		}
+	}
+
+}
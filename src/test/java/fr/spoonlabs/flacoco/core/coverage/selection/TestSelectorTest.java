@@ -0,0 +1,59 @@
+package fr.spoonlabs.flacoco.core.coverage.selection;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import fr.spoonlabs.flacoco.core.test.method.StringTestMethod;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+
+import static fr.spoonlabs.flacoco.TestUtils.getCompilerVersion;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSelectorTest {
+
+	@Rule
+	public TemporaryFolder workspaceDir = new TemporaryFolder();
+
+	@Before
+	public void setUp() {
+		LogManager.getRootLogger().setLevel(Level.DEBUG);
+	}
+
+	@Test
+	public void testMath70ClassReferences() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setProjectPath(new File("./examples/math_70").getAbsolutePath());
+
+		TestSelector selector = new TestSelector(config, null);
+		Set<String> classes = Collections.singleton("org.apache.commons.math.analysis.solvers.BisectionSolver");
+
+		// Test classes referencing the class, directly or not
+		assertTrue(selector.isSelected(new StringTestMethod(
+				"org.apache.commons.math.analysis.solvers.BisectionSolverTest", "testMath369"), classes));
+		assertTrue(selector.isSelected(new StringTestMethod(
+				"org.apache.commons.math.analysis.solvers.UnivariateRealSolverFactoryImplTest", "testNewBisectionSolverValid"), classes));
+
+		// Test class that cannot reach the class
+		assertFalse(selector.isSelected(new StringTestMethod(
+				"org.apache.commons.math.util.BigRealTest", "testAdd"), classes));
+
+		// Test class without class file
+		assertTrue(selector.isSelected(new StringTestMethod(
+				"org.apache.commons.math.UnknownTest", "testUnknown"), classes));
+	}
+
+}
@@ -10,13 +10,18 @@ import org.junit.*;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 
 import static fr.spoonlabs.flacoco.TestUtils.getCompilerVersion;
 import static fr.spoonlabs.flacoco.TestUtils.isLessThanJava11;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class SpectrumRunnerTest {
 
@@ -69,6 +74,85 @@ public class SpectrumRunnerTest {
 		assertEquals(0.5, susp.get(new Location("fr.spoonlabs.FLtest1.Calculator", 6)).getScore(), 0);
 	}
 
+	@Test
+	public void testExampleFL1AdditionalFormulas() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OCHIAI);
+		config.setAdditionalSpectrumFormulas(new HashSet<>(Arrays.asList(SpectrumFormula.OP2,
+				SpectrumFormula.TARANTULA, SpectrumFormula.OCHIAI, SpectrumFormula.DSTAR)));
+
+		SpectrumRunner runner = new SpectrumRunner(config);
+
+		FlacocoResult result = runner.run();
+
+		// One ranking per formula, the spectrum formula first
+		Map<SpectrumFormula, Map<Location, Suspiciousness>> rankings = result.getFormulaSuspiciousnessMaps();
+		assertEquals(Arrays.asList(SpectrumFormula.OCHIAI, SpectrumFormula.TARANTULA, SpectrumFormula.DSTAR,
+				SpectrumFormula.OP2), new ArrayList<>(rankings.keySet()));
+		assertSame(result.getDefaultSuspiciousnessMap(), rankings.get(SpectrumFormula.OCHIAI));
+
+		Map<Location, Suspiciousness> tarantula = rankings.get(SpectrumFormula.TARANTULA);
+		assertEquals(6, tarantula.size());
+		assertEquals(1.0, tarantula.get(new Location("fr.spoonlabs.FLtest1.Calculator", 15)).getScore(), 0);
+		assertEquals(0.75, tarantula.get(new Location("fr.spoonlabs.FLtest1.Calculator", 14)).getScore(), 0.01);
+		assertEquals(0.5, tarantula.get(new Location("fr.spoonlabs.FLtest1.Calculator", 10)).getScore(), 0.01);
+
+		Map<Location, Suspiciousness> dstar = rankings.get(SpectrumFormula.DSTAR);
+		assertEquals(new Location("fr.spoonlabs.FLtest1.Calculator", 15), dstar.keySet().iterator().next());
+		assertEquals(1.0, dstar.get(new Location("fr.spoonlabs.FLtest1.Calculator", 14)).getScore(), 0.01);
+
+		Map<Location, Suspiciousness> op2 = rankings.get(SpectrumFormula.OP2);
+		assertEquals(1.0, op2.get(new Location("fr.spoonlabs.FLtest1.Calculator", 15)).getScore(), 0.01);
+		assertEquals(0.75, op2.get(new Location("fr.spoonlabs.FLtest1.Calculator", 14)).getScore(), 0.01);
+
+		// The executing tests are the same for all the formulas
+		assertEquals(1, op2.get(new Location("fr.spoonlabs.FLtest1.Calculator", 14)).getFailingTestCases().size());
+		assertEquals(1, op2.get(new Location("fr.spoonlabs.FLtest1.Calculator", 14)).getPassingTestCases().size());
+	}
+
+	@Test
+	public void testExampleFL1FromMatrix() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OCHIAI);
+		config.setSaveMatrix(new File(workspaceDir.getRoot(), "matrix.bin").getAbsolutePath());
+
+		FlacocoResult result = new SpectrumRunner(config).run();
+		assertTrue(new File(config.getSaveMatrix()).exists());
+
+		// The saved matrix is scored without running the tests, even if the project is gone
+		FlacocoConfig fromMatrixConfig = new FlacocoConfig();
+		fromMatrixConfig.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		fromMatrixConfig.setProjectPath(new File(workspaceDir.getRoot(), "missing").getAbsolutePath());
+		fromMatrixConfig.setSpectrumFormula(SpectrumFormula.OCHIAI);
+		fromMatrixConfig.setFromMatrix(config.getSaveMatrix());
+
+		FlacocoResult fromMatrix = new SpectrumRunner(fromMatrixConfig).run();
+
+		assertEquals(new ArrayList<>(result.getDefaultSuspiciousnessMap().keySet()),
+				new ArrayList<>(fromMatrix.getDefaultSuspiciousnessMap().keySet()));
+		for (Map.Entry<Location, Suspiciousness> entry : result.getDefaultSuspiciousnessMap().entrySet()) {
+			Suspiciousness suspiciousness = fromMatrix.getDefaultSuspiciousnessMap().get(entry.getKey());
+			assertEquals(entry.getValue().getScore(), suspiciousness.getScore(), 0);
+			assertEquals(entry.getValue().getPassingTestCases(), suspiciousness.getPassingTestCases());
+			assertEquals(entry.getValue().getFailingTestCases(), suspiciousness.getFailingTestCases());
+		}
+		assertEquals(result.getFailingTests(), fromMatrix.getFailingTests());
+	}
+
 	@Test
 	public void testExampleFL2Ochiai() {
 		// Run only on target release >= 5
@@ -403,6 +487,167 @@ public class SpectrumRunnerTest {
 		assertEquals(0.5, susp.get(new Location("fr.spoonlabs.FLtest1.Calculator", 10)).getScore(), 0);
 	}
 
+	@Test
+	public void testExampleFL6MixedOchiaiFailingTestsFirst() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL6Mixed/FLtest1").getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OCHIAI);
+
+		Map<Location, Suspiciousness> expected = new SpectrumRunner(config).run().getDefaultSuspiciousnessMap();
+
+		config.setFailingTestsFirst(true);
+		Map<Location, Suspiciousness> susp = new SpectrumRunner(config).run().getDefaultSuspiciousnessMap();
+
+		// The ranking must be the same as with a single phase
+		assertEquals(4, susp.size());
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(susp.keySet()));
+		for (Location location : expected.keySet()) {
+			assertEquals(expected.get(location).getScore(), susp.get(location).getScore(), 0);
+		}
+	}
+
+	@Test
+	public void testExampleFL14SelectionOp2FailingTestsFirst() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL14Selection/FLtest1").getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OP2);
+
+		Map<Location, Suspiciousness> expected = new SpectrumRunner(config).run().getDefaultSuspiciousnessMap();
+
+		config.setFailingTestsFirst(true);
+		Map<Location, Suspiciousness> susp = new SpectrumRunner(config).run().getDefaultSuspiciousnessMap();
+
+		// CounterTest covers no line of Calculator, but still counts as a passing test for Op2
+		assertEquals(expected.size(), susp.size());
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(susp.keySet()));
+		for (Location location : expected.keySet()) {
+			assertEquals(expected.get(location).getScore(), susp.get(location).getScore(), 0);
+		}
+	}
+
+	@Test
+	public void testExampleFL14SelectionOp2TestSelection() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL14Selection/FLtest1").getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OP2);
+		config.setAdditionalSpectrumFormulas(Collections.singleton(SpectrumFormula.OCHIAI));
+
+		FlacocoResult expected = new SpectrumRunner(config).run();
+
+		config.setTestSelection(true);
+		FlacocoResult result = new SpectrumRunner(config).run();
+
+		// CounterTest is not executed, but still counts as a passing test for Op2
+		for (SpectrumFormula formula : Arrays.asList(SpectrumFormula.OP2, SpectrumFormula.OCHIAI)) {
+			Map<Location, Suspiciousness> expectedSusp = expected.getFormulaSuspiciousnessMaps().get(formula);
+			Map<Location, Suspiciousness> susp = result.getFormulaSuspiciousnessMaps().get(formula);
+			assertEquals(new ArrayList<>(expectedSusp.keySet()), new ArrayList<>(susp.keySet()));
+			for (Location location : expectedSusp.keySet()) {
+				assertEquals(expectedSusp.get(location).getScore(), susp.get(location).getScore(), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testExampleFL6MixedOchiaiTestSelection() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL6Mixed/FLtest1").getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OCHIAI);
+
+		Map<Location, Suspiciousness> expected = new SpectrumRunner(config).run().getDefaultSuspiciousnessMap();
+
+		config.setTestSelection(true);
+		Map<Location, Suspiciousness> susp = new SpectrumRunner(config).run().getDefaultSuspiciousnessMap();
+
+		// Every test class references the faulty class, so the ranking must be the same
+		assertEquals(4, susp.size());
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(susp.keySet()));
+		for (Location location : expected.keySet()) {
+			assertEquals(expected.get(location).getScore(), susp.get(location).getScore(), 0);
+		}
+	}
+
+	@Test
+	public void testExampleFL1OchiaiHierarchical() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OCHIAI);
+
+		Map<Location, Suspiciousness> expected = new SpectrumRunner(config).run().getDefaultSuspiciousnessMap();
+
+		config.setHierarchicalTopMethods(1);
+		FlacocoResult result = new SpectrumRunner(config).run();
+		Map<Location, Suspiciousness> susp = result.getDefaultSuspiciousnessMap();
+
+		// The only class is the one of the top method, so the ranking must be the same
+		assertEquals(6, susp.size());
+		assertEquals(1, result.getFailingTests().size());
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(susp.keySet()));
+		for (Location location : expected.keySet()) {
+			assertEquals(expected.get(location).getScore(), susp.get(location).getScore(), 0);
+		}
+	}
+
+	@Test
+	public void testExampleFL6MixedOchiaiCoverTestsHierarchical() {
+		// Run only on target release >= 5
+		Assume.assumeTrue(getCompilerVersion() >= 5);
+
+		// Setup config
+		FlacocoConfig config = new FlacocoConfig();
+		config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+		config.setTestRunnerVerbose(true);
+		config.setProjectPath(new File("./examples/exampleFL6Mixed/FLtest1").getAbsolutePath());
+		config.setSpectrumFormula(SpectrumFormula.OCHIAI);
+		config.setCoverTests(true);
+
+		Map<Location, Suspiciousness> expected = new SpectrumRunner(config).run().getDefaultSuspiciousnessMap();
+
+		config.setHierarchicalTopMethods(1);
+		Map<Location, Suspiciousness> susp = new SpectrumRunner(config).run().getDefaultSuspiciousnessMap();
+
+		// Only the lines of the class of the top method are ranked, with the same scores
+		String topClass = susp.keySet().iterator().next().getClassName();
+		assertTrue(susp.size() < expected.size());
+		for (Location location : expected.keySet()) {
+			if (location.getClassName().equals(topClass)) {
+				assertEquals(expected.get(location).getScore(), susp.get(location).getScore(), 0);
+			} else {
+				assertFalse(susp.containsKey(location));
+			}
+		}
+	}
+
 	@Test
 	public void testExampleFL7Ochiai() {
 		// Run only on target release >= 5
@@ -9,7 +9,12 @@ import fr.spoonlabs.flacoco.localization.spectrum.formulas.OchiaiFormula;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
@@ -81,4 +86,75 @@ public class SpectrumSuspiciousComputationTest {
 		assertEquals(0.70, susp.get(new Location("test", 1)).getScore(), 0.01);
 	}
 
+	@Test
+	public void testOchiaiComputationTopK() {
+		SpectrumSuspiciousComputation comp = new SpectrumSuspiciousComputation(new FlacocoConfig());
+		Map<Location, Suspiciousness> all = comp.calculateSuspicious(exampleCoverageMatrix, new OchiaiFormula());
+
+		FlacocoConfig config = new FlacocoConfig();
+		config.setTopK(3);
+		comp = new SpectrumSuspiciousComputation(config);
+		Map<Location, Suspiciousness> susp = comp.calculateSuspicious(exampleCoverageMatrix, new OchiaiFormula());
+
+		// The top K lines are the first K lines of the full ranking
+		assertEquals(new ArrayList<>(all.keySet()).subList(0, 3), new ArrayList<>(susp.keySet()));
+		assertEquals(new Location("test", 6), susp.keySet().iterator().next());
+
+		// Ties are broken by line number
+		assertEquals(Arrays.asList(new Location("test", 6), new Location("test", 5), new Location("test", 1)),
+				new ArrayList<>(susp.keySet()));
+	}
+
+	@Test
+	public void testOchiaiComputationTestCases() {
+		SpectrumSuspiciousComputation comp = new SpectrumSuspiciousComputation(new FlacocoConfig());
+
+		Map<Location, Suspiciousness> susp = comp.calculateSuspicious(exampleCoverageMatrix, new OchiaiFormula());
+
+		// Line executed by test3, passing, and by test2 and test4, failing
+		Suspiciousness suspiciousness = susp.get(new Location("test", 5));
+		assertEquals(1, suspiciousness.getNrPassingTestCases());
+		assertEquals(2, suspiciousness.getNrFailingTestCases());
+		assertEquals(Collections.singletonList("test3"), suspiciousness.getPassingTestCases().stream()
+				.map(TestMethod::getFullyQualifiedMethodName).collect(Collectors.toList()));
+		assertEquals(Arrays.asList("test2", "test4"), suspiciousness.getFailingTestCases().stream()
+				.map(TestMethod::getFullyQualifiedMethodName).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testOchiaiRecomputation() {
+		CoverageMatrix matrix = new CoverageMatrix(new FlacocoConfig());
+		TestMethod passing = mock(TestMethod.class);
+		TestMethod failing = mock(TestMethod.class);
+		TestMethod changed = mock(TestMethod.class);
+		for (int i = 1; i <= 4; i++) {
+			matrix.add(new Location("test", i), passing, 1, true);
+			matrix.add(new Location("test", i + 2), failing, 1, false);
+			matrix.add(new Location("test", i + 4), changed, 1, true);
+		}
+
+		SpectrumSuspiciousComputation comp = new SpectrumSuspiciousComputation(new FlacocoConfig());
+		Map<Location, Suspiciousness> previous = comp.calculateSuspicious(matrix, new OchiaiFormula());
+
+		// The changed test now executes lines 1 and 2 only, with the same result
+		BitSet affected = matrix.getExecutedLocations(Collections.singleton(changed));
+		matrix.removeTests(Collections.singleton(changed));
+		matrix.add(new Location("test", 1), changed, 1, true);
+		matrix.add(new Location("test", 2), changed, 1, true);
+		affected.or(matrix.getExecutedLocations(Collections.singleton(changed)));
+
+		Map<Location, Suspiciousness> susp = comp.recalculateSuspicious(matrix,
+				Collections.singletonList(new OchiaiFormula()), Collections.singletonList(previous), affected).get(0);
+		Map<Location, Suspiciousness> expected = comp.calculateSuspicious(matrix, new OchiaiFormula());
+
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(susp.keySet()));
+		for (Map.Entry<Location, Suspiciousness> entry : expected.entrySet()) {
+			assertEquals(entry.getValue().getScore(), susp.get(entry.getKey()).getScore(), 0);
+		}
+		// Lines 7 and 8 are no longer executed
+		assertEquals(4, susp.size());
+		assertEquals(1.0, susp.get(new Location("test", 5)).getScore(), 0);
+		assertEquals(0.70, susp.get(new Location("test", 3)).getScore(), 0.01);
+	}
+
 }
@@ -0,0 +1,102 @@
+package fr.spoonlabs.flacoco.utils.spoon;
+
+import fr.spoonlabs.flacoco.api.result.Location;
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SpoonBlockInspectorTest {
+
+    @Rule
+    public TemporaryFolder workspaceDir = new TemporaryFolder();
+
+    @Test
+    public void testExampleFL1() {
+        FlacocoConfig config = new FlacocoConfig();
+        config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+        config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+
+        SpoonBlockInspector inspector = new SpoonBlockInspector(config);
+        StackTraceElement element = new StackTraceElement("fr.spoonlabs.FLtest1.Calculator", "calculate",
+                "Calculator.java", 15);
+
+        List<Location> expected = Collections.singletonList(new Location("fr.spoonlabs.FLtest1.Calculator", 15));
+        assertEquals(expected, inspector.getBlockLocations(element));
+        // Second lookup is served from the inspector
+        assertEquals(expected, inspector.getBlockLocations(element));
+
+        // Nothing is persisted without the coverage cache
+        inspector.save();
+        assertFalse(new File(workspaceDir.getRoot(), "flacoco-blocks.cache").exists());
+    }
+
+    @Test
+    public void testExampleFL1Cache() throws IOException {
+        // Copy the project, since we modify its source files
+        File projectDir = workspaceDir.newFolder("FLtest1");
+        FileUtils.copyDirectory(new File("./examples/exampleFL1/FLtest1"), projectDir);
+        File sourceFile = new File(projectDir, "src/main/java/fr/spoonlabs/FLtest1/Calculator.java");
+
+        FlacocoConfig config = new FlacocoConfig();
+        config.setProjectPath(projectDir.getAbsolutePath());
+        config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+        config.setCoverageCache(true);
+
+        StackTraceElement element = new StackTraceElement("fr.spoonlabs.FLtest1.Calculator", "calculate",
+                "Calculator.java", 15);
+        List<Location> expected = Collections.singletonList(new Location("fr.spoonlabs.FLtest1.Calculator", 15));
+
+        SpoonBlockInspector inspector = new SpoonBlockInspector(config);
+        assertEquals(expected, inspector.getBlockLocations(element));
+        inspector.save();
+        assertTrue(new File(workspaceDir.getRoot(), "flacoco-blocks.cache").exists());
+
+        // A new inspector reuses the stored locations
+        assertEquals(expected, new SpoonBlockInspector(config).getBlockLocations(element));
+
+        // Once the source file changes, the stored locations are discarded
+        String source = FileUtils.readFileToString(sourceFile, StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(sourceFile, source.replace("return op1 / op2;//buggy",
+                "op1 = op1 + 0; return op1 / op2;"), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList(
+                new Location("fr.spoonlabs.FLtest1.Calculator", 15),
+                new Location("fr.spoonlabs.FLtest1.Calculator", 15)),
+                new SpoonBlockInspector(config).getBlockLocations(element));
+    }
+
+    @Test
+    public void testExampleFL1Concurrent() {
+        FlacocoConfig config = new FlacocoConfig();
+        config.setProjectPath(new File("./examples/exampleFL1/FLtest1").getAbsolutePath());
+        config.setWorkspace(workspaceDir.getRoot().getAbsolutePath());
+        config.setParallelism(4);
+
+        SpoonBlockInspector inspector = new SpoonBlockInspector(config);
+        List<StackTraceElement> elements = new ArrayList<>();
+        List<List<Location>> expected = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            int line = i % 2 == 0 ? 15 : 17;
+            elements.add(new StackTraceElement("fr.spoonlabs.FLtest1.Calculator", "calculate", "Calculator.java", line));
+            expected.add(Collections.singletonList(new Location("fr.spoonlabs.FLtest1.Calculator", line)));
+        }
+
+        // Locations are returned in the order of the elements, also when the pool of the inspector is reused
+        assertEquals(expected, inspector.getBlockLocations(elements));
+        assertEquals(expected, inspector.getBlockLocations(elements));
+        // Small batches are computed on the calling thread
+        assertEquals(expected.subList(0, 2), inspector.getBlockLocations(elements.subList(0, 2)));
+    }
+
+}
@@ -0,0 +1,65 @@
+package fr.spoonlabs.flacoco.utils.spoon;
+
+import fr.spoonlabs.flacoco.core.config.FlacocoConfig;
+import org.junit.Test;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtReturn;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class SpoonStatementIndexTest {
+
+	@Test
+	public void testExampleFL1() {
+		CtModel model = buildModel("./examples/exampleFL1/FLtest1");
+		SpoonStatementIndex index = new SpoonStatementIndex(model);
+
+		CtStatement statement = index.find("fr.spoonlabs.FLtest1.Calculator", 15);
+		assertNotNull(statement);
+		assertTrue(statement instanceof CtReturn);
+		assertEquals(15, statement.getPosition().getLine());
+
+		assertNull(index.find("fr.spoonlabs.FLtest1.Calculator", 1000));
+		assertNull(index.find("fr.spoonlabs.FLtest1.Unknown", 15));
+	}
+
+	@Test
+	public void testSameAsProcessorMath70() {
+		CtModel model = buildModel("./examples/math_70");
+		SpoonStatementIndex index = new SpoonStatementIndex(model);
+
+		// Every line of every type of the solvers must be resolved as the processor does
+		for (CtType<?> ctType : model.getElements(new TypeFilter<CtType<?>>(CtType.class))) {
+			if (!ctType.getQualifiedName().startsWith("org.apache.commons.math.analysis.solvers.")
+					|| !ctType.getPosition().isValidPosition()) {
+				continue;
+			}
+			for (int line = ctType.getPosition().getLine(); line <= ctType.getPosition().getEndLine(); line++) {
+				SpoonLocalizedFaultFinder finder = new SpoonLocalizedFaultFinder(ctType.getQualifiedName(), line);
+				finder.process(ctType);
+
+				assertSame(ctType.getQualifiedName() + ":" + line, finder.getFound(),
+						index.find(ctType.getQualifiedName(), line));
+			}
+		}
+	}
+
+	private CtModel buildModel(String projectPath) {
+		FlacocoConfig config = new FlacocoConfig();
+		config.setProjectPath(new File(projectPath).getAbsolutePath());
+
+		Launcher launcher = new Launcher();
+		for (String dir : config.getSrcJavaDir())
+			launcher.addInputResource(dir);
+		for (String dir : config.getSrcTestDir())
+			launcher.addInputResource(dir);
+		return launcher.buildModel();
+	}
+
+}